@@ -0,0 +1,73 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.tests.StripeRequestValidationMatrixTests;
+import com.stripe.automation.api.validation.BatchValidationResult;
+import com.stripe.automation.api.validation.StripeRequestValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchValidationBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int cores;
+
+    @Param({"1000000"})
+    public int items;
+
+    private List<PaymentIntentRequest> requests;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        Object[][] matrix = new StripeRequestValidationMatrixTests().paymentIntentValidationCases();
+        requests = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            requests.add((PaymentIntentRequest) matrix[i % matrix.length][0]);
+        }
+        pool = new ForkJoinPool(cores);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int throwingLoop() {
+        int invalid = 0;
+        for (PaymentIntentRequest request : requests) {
+            try {
+                StripeRequestValidator.validatePaymentIntent(request);
+            } catch (IllegalArgumentException e) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    @Benchmark
+    public BatchValidationResult forkJoinBatch() {
+        return StripeRequestValidator.validatePaymentIntents(requests, pool);
+    }
+}
@@ -0,0 +1,49 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.utils.CorrelationId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class CorrelationIdBenchmark {
+
+    @Benchmark
+    public String uuidRandom() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String correlationIdNext() {
+        return CorrelationId.next();
+    }
+
+    @Benchmark
+    public String correlationIdRefresh() {
+        return CorrelationId.refresh();
+    }
+
+    @Benchmark
+    public Runnable correlationIdWrap() {
+        return CorrelationId.wrap(CorrelationIdBenchmark::noop);
+    }
+
+    private static void noop() {
+    }
+}
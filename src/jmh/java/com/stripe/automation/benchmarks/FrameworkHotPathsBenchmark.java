@@ -0,0 +1,113 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.utils.CorrelationId;
+import com.stripe.automation.utils.TestDataLoader;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dbenchmark.systemProperty=from-system-property")
+public class FrameworkHotPathsBenchmark {
+    private static final String SECRET = "whsec_hot_paths";
+
+    private WebhookReceiverServer server;
+    private byte[] payload;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        ConfigManager.override("stripe.webhook.secret", SECRET);
+        ConfigManager.override("benchmark.override", "from-override");
+        server = new WebhookReceiverServer();
+        payload = "{\"id\":\"evt_hot_paths\",\"type\":\"payment_intent.succeeded\",\"data\":{\"object\":{\"id\":\"pi_hot\"}}}"
+                .getBytes(StandardCharsets.UTF_8);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        signature = "v1=" + HexFormat.of().formatHex(mac.doFinal(payload));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConfigManager.clearOverride("stripe.webhook.secret");
+        ConfigManager.clearOverride("benchmark.override");
+    }
+
+    @Benchmark
+    public boolean serverVerifySignature() {
+        return server.verifySignature(payload, signature);
+    }
+
+    @Benchmark
+    public String configGetFromFile() {
+        return ConfigManager.get("stripe.api.baseUrl");
+    }
+
+    @Benchmark
+    public String configGetEnvPlaceholder() {
+        return ConfigManager.get("stripe.secretKey");
+    }
+
+    @Benchmark
+    public String configGetSystemProperty() {
+        return ConfigManager.get("benchmark.systemProperty");
+    }
+
+    @Benchmark
+    public String configGetOverride() {
+        return ConfigManager.get("benchmark.override");
+    }
+
+    @Benchmark
+    public String configGetMissing() {
+        return ConfigManager.get("benchmark.missing");
+    }
+
+    @Benchmark
+    public int configGetInt() {
+        return ConfigManager.getInt("stripe.api.bulk.maxInFlight", 1);
+    }
+
+    @Benchmark
+    public String correlationIdGet() {
+        return CorrelationId.get();
+    }
+
+    @Benchmark
+    public String correlationIdRefresh() {
+        CorrelationId.refresh();
+        return CorrelationId.get();
+    }
+
+    @Benchmark
+    public Map<String, Object> testDataLoadJson() {
+        return TestDataLoader.loadJson("schemas/payment-intent-schema.json");
+    }
+
+    @Benchmark
+    public List<Map<String, String>> testDataLoadJsonArray() {
+        return TestDataLoader.loadJsonArray("testdata/payment-data.json");
+    }
+}
@@ -0,0 +1,71 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.reporting.PortableReportGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PortableReportBenchmark {
+    private static final String[] STATUSES = {"passed", "passed", "passed", "failed", "broken", "skipped"};
+
+    @Param({"100", "2000"})
+    public int results;
+
+    private Path resultsDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        resultsDir = Files.createTempDirectory("allure-results-bench");
+        for (int i = 0; i < results; i++) {
+            String status = STATUSES[i % STATUSES.length];
+            StringBuilder steps = new StringBuilder();
+            for (int s = 0; s < 20; s++) {
+                steps.append(s == 0 ? "" : ",").append("{\"name\":\"step ").append(s)
+                        .append("\",\"status\":\"passed\",\"start\":1700000000000,\"stop\":1700000000010,\"attachments\":[]}");
+            }
+            Files.writeString(resultsDir.resolve(String.format("%08d-result.json", i)), "{\"uuid\":\"" + i + "\",\"name\":\"test " + i
+                    + "\",\"status\":\"" + status + "\",\"statusDetails\":{\"message\":\"" + (status.equals("passed") ? "" : "expected 200 but was 402")
+                    + "\"},\"start\":1700000000000,\"stop\":" + (1700000000000L + i) + ",\"labels\":[{\"name\":\"suite\",\"value\":\"Suite "
+                    + i % 7 + "\"},{\"name\":\"package\",\"value\":\"com.stripe.automation.api.tests\"},{\"name\":\"host\",\"value\":\"ci\"}],"
+                    + "\"steps\":[" + steps + "]}");
+            Files.writeString(resultsDir.resolve(String.format("%08d-container.json", i)), "{\"uuid\":\"c" + i + "\",\"children\":[\"" + i + "\"]}");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(resultsDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<PortableReportGenerator.Row> loadRows() throws IOException {
+        return PortableReportGenerator.loadRows(resultsDir);
+    }
+}
@@ -0,0 +1,69 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.tests.StripeRequestValidationMatrixTests;
+import com.stripe.automation.api.validation.StripeRequestValidator;
+import com.stripe.automation.api.validation.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestValidationBenchmark {
+    @Param({"valid", "invalid", "matrix"})
+    public String mix;
+
+    private final ValidationResult result = StripeRequestValidator.newPaymentIntentResult();
+    private PaymentIntentRequest[] requests;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<PaymentIntentRequest> selected = new ArrayList<>();
+        for (Object[] row : new StripeRequestValidationMatrixTests().paymentIntentValidationCases()) {
+            boolean valid = (Boolean) row[1];
+            if (mix.equals("matrix") || valid == mix.equals("valid")) {
+                selected.add((PaymentIntentRequest) row[0]);
+            }
+        }
+        requests = selected.toArray(new PaymentIntentRequest[0]);
+    }
+
+    @Benchmark
+    public int throwingValidator() {
+        try {
+            StripeRequestValidator.validatePaymentIntent(nextRequest());
+            return 0;
+        } catch (IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    @Benchmark
+    public int compiledRules() {
+        return StripeRequestValidator.checkPaymentIntent(nextRequest(), result).size();
+    }
+
+    private PaymentIntentRequest nextRequest() {
+        PaymentIntentRequest request = requests[next];
+        next = next + 1 == requests.length ? 0 : next + 1;
+        return request;
+    }
+}
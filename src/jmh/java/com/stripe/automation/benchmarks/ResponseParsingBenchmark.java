@@ -0,0 +1,68 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.api.models.PaymentIntentResponse;
+import com.stripe.automation.api.validation.ResponseSchemaValidator;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.module.jsv.JsonSchemaValidator;
+import io.restassured.response.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+    private static final String BODY = "{\"id\":\"pi_3Nbench\",\"object\":\"payment_intent\",\"amount\":2000,\"amount_received\":2000,"
+            + "\"currency\":\"usd\",\"status\":\"succeeded\",\"payment_method\":\"pm_card_visa\",\"livemode\":false,"
+            + "\"metadata\":{\"order_id\":\"6735\"},\"payment_method_types\":[\"card\"],\"created\":1700000000}";
+
+    private Response response() {
+        return new ResponseBuilder().setStatusCode(200).setContentType(ContentType.JSON).setBody(BODY).build();
+    }
+
+    @Benchmark
+    public void jsonPathPerField(Blackhole blackhole) {
+        Response response = response();
+        blackhole.consume(response.jsonPath().getString("id"));
+        blackhole.consume(response.jsonPath().getString("status"));
+        blackhole.consume(response.jsonPath().getString("currency"));
+    }
+
+    @Benchmark
+    public void typedSingleParse(Blackhole blackhole) {
+        PaymentIntentResponse intent = PaymentIntentResponse.from(response());
+        blackhole.consume(intent.id());
+        blackhole.consume(intent.status());
+        blackhole.consume(intent.currency());
+    }
+
+    @Benchmark
+    public void jsonPathPerFieldWithSchemaMatcher(Blackhole blackhole) {
+        Response response = response();
+        response.then().body(JsonSchemaValidator.matchesJsonSchemaInClasspath(ResponseSchemaValidator.PAYMENT_INTENT_SCHEMA));
+        jsonPathPerField(blackhole);
+    }
+
+    @Benchmark
+    public void typedSingleParseWithSchema(Blackhole blackhole) {
+        PaymentIntentResponse intent = PaymentIntentResponse.from(response());
+        blackhole.consume(ResponseSchemaValidator.violations(intent.json(), ResponseSchemaValidator.PAYMENT_INTENT_SCHEMA));
+        blackhole.consume(intent.id());
+        blackhole.consume(intent.status());
+        blackhole.consume(intent.currency());
+    }
+}
@@ -0,0 +1,99 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.api.client.StripeApiClient;
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.spec.ApiSpecifications;
+import com.stripe.automation.api.validation.StripeRequestValidator;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.utils.CorrelationId;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StripeApiClientBenchmark {
+    private static final Filter CANNED_RESPONSE = (request, response, ctx) -> new ResponseBuilder()
+            .setStatusCode(200)
+            .setContentType(ContentType.JSON)
+            .setBody("{\"id\":\"pi_bench\",\"object\":\"payment_intent\"}")
+            .build();
+
+    private final StripeApiClient client = new StripeApiClient();
+    private final PaymentIntentRequest request = new PaymentIntentRequest(1000L, "usd", "pm_card_visa", false);
+
+    @Setup
+    public void setUp() {
+        ConfigManager.override("stripe.secretKey", "sk_test_benchmark");
+        ConfigManager.override("stripe.api.baseUrl", "http://localhost:1/v1");
+        RestAssured.filters(CANNED_RESPONSE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RestAssured.reset();
+        ConfigManager.clearOverride("stripe.secretKey");
+        ConfigManager.clearOverride("stripe.api.baseUrl");
+    }
+
+    @Benchmark
+    public RequestSpecification rebuiltSpecOnly() {
+        return given().spec(rebuiltSpec()).header("Idempotency-Key", "idem-bench");
+    }
+
+    @Benchmark
+    public RequestSpecification cachedTemplateOnly() {
+        return ApiSpecifications.stripeRequest("idem-bench");
+    }
+
+    @Benchmark
+    public Response rebuiltSpecPerRequest() {
+        StripeRequestValidator.validatePaymentIntent(request);
+        return given()
+                .spec(rebuiltSpec())
+                .header("Idempotency-Key", "idem-bench")
+                .formParam("amount", request.amount())
+                .formParam("currency", request.currency())
+                .formParam("payment_method", request.payment_method())
+                .formParam("confirm", request.confirm())
+                .post("/payment_intents");
+    }
+
+    @Benchmark
+    public Response cachedTemplate() {
+        return client.createPaymentIntent(request, "idem-bench");
+    }
+
+    private static RequestSpecification rebuiltSpec() {
+        String secretKey = ConfigManager.get("stripe.secretKey");
+        return new RequestSpecBuilder()
+                .setBaseUri(ConfigManager.get("stripe.api.baseUrl"))
+                .setContentType(ContentType.URLENC)
+                .addHeader("Authorization", "Bearer " + secretKey)
+                .addHeader("X-Correlation-Id", CorrelationId.get())
+                .build();
+    }
+}
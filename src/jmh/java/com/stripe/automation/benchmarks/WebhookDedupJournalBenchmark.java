@@ -0,0 +1,97 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.webhook.JournalSyncPolicy;
+import com.stripe.automation.webhook.WebhookDedupJournal;
+import com.stripe.automation.webhook.WebhookEventDeduplicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Fork(1)
+public class WebhookDedupJournalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class AppendState {
+        @Param({"OS", "BATCHED", "PER_WRITE"})
+        public JournalSyncPolicy syncPolicy;
+
+        private Path file;
+        private WebhookDedupJournal journal;
+        private long sequence;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            file = Files.createTempFile("dedup-append", ".journal");
+            Files.delete(file);
+            journal = new WebhookDedupJournal(file, syncPolicy);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            journal.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+        @Param({"1000000", "5000000"})
+        public int entries;
+
+        private Path file;
+
+        @Setup(Level.Trial)
+        public void writeJournal() throws IOException {
+            file = Files.createTempFile("dedup-recovery", ".journal");
+            Files.delete(file);
+            long now = System.currentTimeMillis();
+            try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+                for (int i = 0; i < entries; i++) {
+                    journal.append("evt_1PQxYz" + Integer.toString(i, 36) + "AbCdEfGhIjKl", now - entries + i);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteJournal() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public boolean append(AppendState state) throws IOException {
+        return state.journal.append("evt_" + state.sequence++, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public long recoverIntoDeduplicator(RecoveryState state) throws IOException {
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofDays(3), Long.MAX_VALUE);
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(state.file, JournalSyncPolicy.OS)) {
+            return journal.recover(deduplicator::restore, deduplicator.oldestRetainedMillis());
+        }
+    }
+}
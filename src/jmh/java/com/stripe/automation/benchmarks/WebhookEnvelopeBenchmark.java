@@ -0,0 +1,61 @@
+package com.stripe.automation.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.automation.webhook.WebhookEnvelopeReader;
+import com.stripe.automation.webhook.WebhookEventEnvelope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebhookEnvelopeBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Param({"1", "200"})
+    public int lineItems;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        StringBuilder body = new StringBuilder("{\"id\":\"evt_bench\",\"object\":\"event\",\"created\":1700000000,")
+                .append("\"type\":\"payment_intent.succeeded\",\"data\":{\"object\":{\"id\":\"pi_bench\",\"lines\":[");
+        for (int i = 0; i < lineItems; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"id\":\"li_").append(i).append("\",\"amount\":").append(i * 100)
+                    .append(",\"metadata\":{\"sku\":\"sku_").append(i).append("\",\"note\":\"benchmark line item\"}}");
+        }
+        payload = body.append("]}},\"livemode\":false}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String legacyStringAndReadTree() throws IOException {
+        JsonNode node = objectMapper.readTree(new String(payload, StandardCharsets.UTF_8));
+        return node.path("id").asText();
+    }
+
+    @Benchmark
+    public WebhookEventEnvelope streamingEnvelope() throws IOException {
+        return WebhookEnvelopeReader.read(payload);
+    }
+}
@@ -0,0 +1,98 @@
+package com.stripe.automation.benchmarks;
+
+import com.stripe.automation.webhook.WebhookSignatureVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebhookSignatureBenchmark {
+    private static final String SECRET = "whsec_benchmark_secret";
+    private static final long TIMESTAMP = 1_700_000_000L;
+
+    @Param({"512", "16384"})
+    public int payloadBytes;
+
+    private String payload;
+    private byte[] payloadUtf8;
+    private String legacyHeader;
+    private String stripeHeader;
+    private WebhookSignatureVerifier verifier;
+
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder body = new StringBuilder("{\"id\":\"evt_bench\",\"type\":\"payment_intent.succeeded\",\"data\":{\"object\":{\"pad\":\"");
+        while (body.length() < payloadBytes - 4) {
+            body.append('x');
+        }
+        payload = body.append("\"}}}").toString();
+        payloadUtf8 = payload.getBytes(StandardCharsets.UTF_8);
+        legacyHeader = "v1=" + HexFormat.of().formatHex(sign(payloadUtf8));
+        stripeHeader = "t=" + TIMESTAMP + ",v1=" + HexFormat.of().formatHex(sign((TIMESTAMP + "." + payload).getBytes(StandardCharsets.UTF_8)));
+        verifier = new WebhookSignatureVerifier(SECRET, Duration.ofMinutes(5), Clock.fixed(Instant.ofEpochSecond(TIMESTAMP), ZoneOffset.UTC));
+    }
+
+    @Benchmark
+    public boolean legacyStringHmac() {
+        return legacyVerify(payload, legacyHeader);
+    }
+
+    @Benchmark
+    public boolean cachedMacLegacyHeader() {
+        return verifier.verify(payloadUtf8, legacyHeader);
+    }
+
+    @Benchmark
+    public boolean cachedMacTimestampedHeader() {
+        return verifier.verify(payloadUtf8, stripeHeader);
+    }
+
+    private static boolean legacyVerify(String payload, String header) {
+        if (header == null || !header.contains("v1=")) {
+            return false;
+        }
+        try {
+            Mac sha256 = Mac.getInstance("HmacSHA256");
+            sha256.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] hash = sha256.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            String actual = header.substring(header.indexOf("v1=") + 3);
+            return MessageDigest.isEqual(sb.toString().getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] sign(byte[] data) throws Exception {
+        Mac sha256 = Mac.getInstance("HmacSHA256");
+        sha256.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return sha256.doFinal(data);
+    }
+}
@@ -0,0 +1,372 @@
+package com.stripe.automation.api.cassette;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Cassette implements Closeable {
+    private static final int MAGIC = 0x53434131;
+    private static final int VERSION = 1;
+    private static final int INDEX_HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final Map<Path, Cassette> SHARED = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    private interface ChannelCall<T> {
+        T run() throws IOException;
+    }
+
+    public record Interaction(int statusCode, String statusLine, List<Map.Entry<String, String>> headers, byte[] body) {
+    }
+
+    private final Path path;
+    private final CassetteMode mode;
+    private final boolean writable;
+    private final Path indexPath;
+    private FileChannel data;
+    private FileChannel indexChannel;
+    private boolean closed;
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private MappedByteBuffer index;
+    private int slots;
+    private int size;
+    private long dataLength;
+    private long replayed;
+    private long recorded;
+
+    private Cassette(Path path, CassetteMode mode) throws IOException {
+        if (mode == CassetteMode.OFF) {
+            throw new IllegalArgumentException("Cassette mode must not be off");
+        }
+        this.path = path;
+        this.mode = mode;
+        this.writable = mode != CassetteMode.REPLAY;
+        this.indexPath = path.resolveSibling(path.getFileName() + ".idx");
+        if (!writable && (!Files.exists(path) || !Files.exists(indexPath))) {
+            throw new NoSuchFileException(path.toString(), indexPath.toString(), "No cassette recorded; run once with api.cassette.mode=record");
+        }
+        if (writable && path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+        Set<OpenOption> options = !writable ? Set.of(StandardOpenOption.READ)
+                : mode == CassetteMode.RECORD
+                ? Set.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : Set.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        data = FileChannel.open(path, options);
+        indexChannel = FileChannel.open(indexPath, options);
+        if (indexChannel.size() == 0) {
+            mapIndex(INITIAL_SLOTS);
+            index.putInt(0, MAGIC);
+            index.putInt(Integer.BYTES, VERSION);
+            index.putInt(Integer.BYTES * 2, INITIAL_SLOTS);
+        } else {
+            MappedByteBuffer header = indexChannel.map(mapMode(), 0, INDEX_HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+                close();
+                throw new IllegalStateException("Not a Stripe API cassette index: " + indexPath);
+            }
+            size = header.getInt(Integer.BYTES * 3);
+            dataLength = header.getLong(Integer.BYTES * 4);
+            mapIndex(header.getInt(Integer.BYTES * 2));
+            if (dataLength > data.size()) {
+                close();
+                throw new IllegalStateException("Cassette data is shorter than its index: " + path);
+            }
+        }
+    }
+
+    public static Cassette open(Path path, CassetteMode mode) throws IOException {
+        return new Cassette(path, mode);
+    }
+
+    public static Cassette shared(Path path, CassetteMode mode) {
+        Cassette cassette = SHARED.computeIfAbsent(path.toAbsolutePath().normalize(), key -> {
+            try {
+                Cassette opened = open(key, mode);
+                Runtime.getRuntime().addShutdownHook(new Thread(opened::closeQuietly, "cassette-close"));
+                return opened;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open Stripe API cassette " + key, e);
+            }
+        });
+        if (cassette.mode != mode) {
+            throw new IllegalStateException("Cassette " + path + " is already open in " + cassette.mode + " mode");
+        }
+        return cassette;
+    }
+
+    public synchronized String nextKey(String method, String pathAndQuery, String normalizedForm) {
+        String base = method.toUpperCase(Locale.ROOT) + ' ' + pathAndQuery + ' ' + HexFormat.of().formatHex(sha256(normalizedForm), 0, 16);
+        int ordinal = ordinals.merge(base, 1, Integer::sum) - 1;
+        return base + '#' + ordinal;
+    }
+
+    public synchronized Interaction find(String key) throws IOException {
+        Interaction interaction = lookup(key);
+        if (interaction == null && mode == CassetteMode.REPLAY) {
+            int marker = key.lastIndexOf('#');
+            String base = key.substring(0, marker + 1);
+            for (int ordinal = Integer.parseInt(key.substring(marker + 1)) - 1; interaction == null && ordinal >= 0; ordinal--) {
+                interaction = lookup(base + ordinal);
+            }
+        }
+        if (interaction != null) {
+            replayed++;
+        }
+        return interaction;
+    }
+
+    public synchronized void record(String key, Interaction interaction) throws IOException {
+        if (!writable) {
+            throw new IllegalStateException("Cassette " + path + " is open for replay only");
+        }
+        byte[] encoded = encode(key, interaction);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + encoded.length).putInt(encoded.length).put(encoded).flip();
+        long offset = dataLength;
+        uninterruptibly(() -> {
+            while (buffer.hasRemaining()) {
+                data.write(buffer, offset + buffer.position());
+            }
+            return null;
+        });
+        dataLength += buffer.limit();
+        if ((size + 1) * 2 > slots) {
+            grow();
+        }
+        put(hash(key), key, offset);
+        index.putLong(Integer.BYTES * 4, dataLength);
+        index.putInt(Integer.BYTES * 3, size);
+        recorded++;
+    }
+
+    public synchronized void rewind() {
+        ordinals.clear();
+    }
+
+    public CassetteMode mode() {
+        return mode;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long replayed() {
+        return replayed;
+    }
+
+    public synchronized long recorded() {
+        return recorded;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        SHARED.remove(path.toAbsolutePath().normalize(), this);
+        if (data.isOpen() && writable) {
+            if (index != null) {
+                index.force();
+            }
+            data.force(true);
+        }
+        data.close();
+        indexChannel.close();
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Interaction lookup(String key) throws IOException {
+        long hash = hash(key);
+        int mask = slots - 1;
+        for (int slot = (int) hash & mask, probes = 0; probes < slots; slot = (slot + 1) & mask, probes++) {
+            int at = slotOffset(slot);
+            long stored = index.getLong(at);
+            if (stored == 0L) {
+                return null;
+            }
+            if (stored == hash) {
+                DataInputStream in = read(index.getLong(at + Long.BYTES));
+                if (in.readUTF().equals(key)) {
+                    return decode(in);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void put(long hash, String key, long offset) throws IOException {
+        int mask = slots - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            int at = slotOffset(slot);
+            long stored = index.getLong(at);
+            if (stored == 0L) {
+                index.putLong(at + Long.BYTES, offset);
+                index.putLong(at, hash);
+                size++;
+                return;
+            }
+            if (stored == hash && read(index.getLong(at + Long.BYTES)).readUTF().equals(key)) {
+                index.putLong(at + Long.BYTES, offset);
+                return;
+            }
+        }
+    }
+
+    private void grow() throws IOException {
+        List<long[]> entries = new ArrayList<>(size);
+        for (int slot = 0; slot < slots; slot++) {
+            long stored = index.getLong(slotOffset(slot));
+            if (stored != 0L) {
+                entries.add(new long[]{stored, index.getLong(slotOffset(slot) + Long.BYTES)});
+            }
+        }
+        mapIndex(slots * 2);
+        for (int slot = 0; slot < slots; slot++) {
+            index.putLong(slotOffset(slot), 0L);
+        }
+        int mask = slots - 1;
+        for (long[] entry : entries) {
+            int slot = (int) entry[0] & mask;
+            while (index.getLong(slotOffset(slot)) != 0L) {
+                slot = (slot + 1) & mask;
+            }
+            index.putLong(slotOffset(slot) + Long.BYTES, entry[1]);
+            index.putLong(slotOffset(slot), entry[0]);
+        }
+        index.putInt(Integer.BYTES * 2, slots);
+    }
+
+    private void mapIndex(int slotCount) throws IOException {
+        index = uninterruptibly(() -> indexChannel.map(mapMode(), 0, INDEX_HEADER_BYTES + (long) slotCount * SLOT_BYTES));
+        slots = slotCount;
+    }
+
+    private FileChannel.MapMode mapMode() {
+        return writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+    }
+
+    private DataInputStream read(long offset) throws IOException {
+        ByteBuffer length = readFully(offset, Integer.BYTES);
+        return new DataInputStream(new ByteArrayInputStream(readFully(offset + Integer.BYTES, length.getInt(0)).array()));
+    }
+
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        return uninterruptibly(() -> {
+            while (buffer.hasRemaining()) {
+                if (data.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Truncated cassette record at offset " + offset + " in " + path);
+                }
+            }
+            return buffer;
+        });
+    }
+
+    private <T> T uninterruptibly(ChannelCall<T> call) throws IOException {
+        try {
+            return call.run();
+        } catch (ClosedChannelException e) {
+            if (closed) {
+                throw e;
+            }
+            boolean interrupted = Thread.interrupted();
+            try {
+                reopen();
+                return call.run();
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void reopen() throws IOException {
+        data.close();
+        indexChannel.close();
+        Set<OpenOption> options = writable ? Set.of(StandardOpenOption.READ, StandardOpenOption.WRITE) : Set.of(StandardOpenOption.READ);
+        data = FileChannel.open(path, options);
+        indexChannel = FileChannel.open(indexPath, options);
+    }
+
+    private static byte[] encode(String key, Interaction interaction) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + interaction.body().length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(key);
+        out.writeInt(interaction.statusCode());
+        out.writeUTF(interaction.statusLine() == null ? "" : interaction.statusLine());
+        out.writeShort(interaction.headers().size());
+        for (Map.Entry<String, String> header : interaction.headers()) {
+            out.writeUTF(header.getKey());
+            out.writeUTF(header.getValue());
+        }
+        out.writeInt(interaction.body().length);
+        out.write(interaction.body());
+        return bytes.toByteArray();
+    }
+
+    private static Interaction decode(DataInputStream in) throws IOException {
+        int statusCode = in.readInt();
+        String statusLine = in.readUTF();
+        int headerCount = in.readUnsignedShort();
+        List<Map.Entry<String, String>> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(Map.entry(in.readUTF(), in.readUTF()));
+        }
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return new Interaction(statusCode, statusLine, headers, body);
+    }
+
+    private static long hash(String key) {
+        long hash = ByteBuffer.wrap(sha256(key)).getLong();
+        return hash == 0L ? 1L : hash;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return INDEX_HEADER_BYTES + slot * SLOT_BYTES;
+    }
+}
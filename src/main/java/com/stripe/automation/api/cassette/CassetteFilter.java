@@ -0,0 +1,121 @@
+package com.stripe.automation.api.cassette;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+public class CassetteFilter implements Filter {
+    private static final Set<String> UNRECORDED_HEADERS = Set.of("content-length", "transfer-encoding", "connection", "set-cookie");
+
+    private final Cassette cassette;
+
+    public CassetteFilter(Cassette cassette) {
+        this.cassette = cassette;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification request, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        String key = cassette.nextKey(request.getMethod(), pathAndQuery(request.getURI()), normalizedForm(request));
+        try {
+            Cassette.Interaction recorded = cassette.mode() == CassetteMode.RECORD ? null : cassette.find(key);
+            if (recorded != null) {
+                return replay(recorded);
+            }
+            if (cassette.mode() == CassetteMode.REPLAY) {
+                throw new IllegalStateException("No recorded Stripe response for " + key + " in " + cassette.path());
+            }
+            Response response = ctx.next(request, responseSpec);
+            cassette.record(key, interaction(response));
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to access Stripe API cassette " + cassette.path(), e);
+        }
+    }
+
+    public Cassette cassette() {
+        return cassette;
+    }
+
+    static String pathAndQuery(String uri) {
+        URI parsed = URI.create(uri);
+        String query = parsed.getRawQuery();
+        return query == null || query.isEmpty() ? parsed.getRawPath() : parsed.getRawPath() + '?' + sortedPairs(query);
+    }
+
+    static String normalizedForm(FilterableRequestSpecification request) {
+        List<String> pairs = new ArrayList<>();
+        for (Map.Entry<String, String> param : request.getFormParams().entrySet()) {
+            pairs.add(param.getKey() + '=' + param.getValue());
+        }
+        Object body = request.getBody();
+        if (body != null) {
+            pairs.addAll(decodedPairs(body.toString()));
+        }
+        pairs.sort(null);
+        return String.join("&", pairs);
+    }
+
+    private static String sortedPairs(String query) {
+        List<String> pairs = decodedPairs(query);
+        pairs.sort(null);
+        return String.join("&", pairs);
+    }
+
+    private static List<String> decodedPairs(String encoded) {
+        List<String> pairs = new ArrayList<>();
+        for (String pair : encoded.split("&")) {
+            if (!pair.isEmpty()) {
+                pairs.add(URLDecoder.decode(pair, StandardCharsets.UTF_8));
+            }
+        }
+        return pairs;
+    }
+
+    private static Cassette.Interaction interaction(Response response) {
+        List<Map.Entry<String, String>> headers = new ArrayList<>();
+        for (Header header : response.getHeaders()) {
+            if (!UNRECORDED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                headers.add(Map.entry(header.getName(), header.getValue()));
+            }
+        }
+        return new Cassette.Interaction(response.statusCode(), response.statusLine(), headers, response.asByteArray());
+    }
+
+    private static Response replay(Cassette.Interaction recorded) {
+        List<Header> headers = new ArrayList<>(recorded.headers().size());
+        String contentType = null;
+        for (Map.Entry<String, String> header : recorded.headers()) {
+            headers.add(new Header(header.getKey(), header.getValue()));
+            if (header.getKey().equalsIgnoreCase("Content-Type")) {
+                contentType = header.getValue();
+            }
+        }
+        ResponseBuilder builder = new ResponseBuilder()
+                .setStatusCode(recorded.statusCode())
+                .setHeaders(new Headers(headers))
+                .setBody(recorded.body());
+        if (!recorded.statusLine().isEmpty()) {
+            builder.setStatusLine(recorded.statusLine());
+        }
+        if (contentType != null) {
+            builder.setContentType(contentType);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.stripe.automation.api.cassette;
+
+import java.util.Locale;
+
+public enum CassetteMode {
+    OFF,
+    RECORD,
+    REPLAY,
+    REPLAY_OR_RECORD;
+
+    public static CassetteMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return OFF;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
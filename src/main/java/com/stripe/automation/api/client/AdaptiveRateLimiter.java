@@ -0,0 +1,205 @@
+package com.stripe.automation.api.client;
+
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.metrics.ApiCallMetrics;
+import com.stripe.automation.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+public class AdaptiveRateLimiter {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private static volatile AdaptiveRateLimiter shared;
+
+    static {
+        ConfigManager.addListener((changedKeys, current) -> {
+            AdaptiveRateLimiter limiter = shared;
+            if (limiter != null && changedKeys.stream().anyMatch(key -> key.startsWith("stripe.api.rateLimit."))) {
+                limiter.settings = Settings.configured();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    public interface Sleeper {
+        void sleepNanos(long nanos) throws InterruptedException;
+    }
+
+    public record Settings(boolean enabled, double initialPerSecond, double minPerSecond, double maxPerSecond, double burst,
+                           double decreaseFactor, double increasePerSecond, Duration maxBackoff) {
+        public static final Settings DEFAULT = new Settings(true, 20, 1, 100, 10, 0.5, 1, Duration.ofSeconds(30));
+
+        public static Settings configured() {
+            return new Settings(
+                    ConfigManager.getBoolean("stripe.api.rateLimit.enabled", DEFAULT.enabled()),
+                    ConfigManager.getDouble("stripe.api.rateLimit.initialPerSecond", DEFAULT.initialPerSecond()),
+                    ConfigManager.getDouble("stripe.api.rateLimit.minPerSecond", DEFAULT.minPerSecond()),
+                    ConfigManager.getDouble("stripe.api.rateLimit.maxPerSecond", DEFAULT.maxPerSecond()),
+                    ConfigManager.getDouble("stripe.api.rateLimit.burst", DEFAULT.burst()),
+                    ConfigManager.getDouble("stripe.api.rateLimit.decreaseFactor", DEFAULT.decreaseFactor()),
+                    ConfigManager.getDouble("stripe.api.rateLimit.increasePerSecond", DEFAULT.increasePerSecond()),
+                    ConfigManager.getDuration("stripe.api.rateLimit.maxBackoffSeconds", ChronoUnit.SECONDS, DEFAULT.maxBackoff()));
+        }
+    }
+
+    public record Stats(double ratePerSecond, double tokens, long acquired, long throttled, long blockedForNanos,
+                        LatencyHistogram.Snapshot waits) {
+    }
+
+    private volatile Settings settings;
+    private final LongSupplier nanoClock;
+    private final Sleeper sleeper;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public AdaptiveRateLimiter(Settings settings) {
+        this(settings, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    public AdaptiveRateLimiter(Settings settings, LongSupplier nanoClock, Sleeper sleeper) {
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.sleeper = sleeper;
+    }
+
+    public static AdaptiveRateLimiter shared() {
+        AdaptiveRateLimiter current = shared;
+        if (current == null) {
+            synchronized (AdaptiveRateLimiter.class) {
+                current = shared;
+                if (current == null) {
+                    current = shared = new AdaptiveRateLimiter(Settings.configured());
+                }
+            }
+        }
+        return current;
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    public long acquire(String credential, String endpoint) throws InterruptedException {
+        if (!settings.enabled()) {
+            return 0L;
+        }
+        Bucket bucket = bucket(credential, endpoint);
+        long waitNanos = bucket.reserve(nanoClock.getAsLong());
+        if (waitNanos > 0) {
+            sleeper.sleepNanos(waitNanos);
+        }
+        bucket.waits.recordNanos(waitNanos);
+        return waitNanos;
+    }
+
+    public void onResponse(String credential, String endpoint, int statusCode, UnaryOperator<String> headers) {
+        if (!settings.enabled()) {
+            return;
+        }
+        Bucket bucket = bucket(credential, endpoint);
+        if (statusCode == 429) {
+            bucket.throttled(nanoClock.getAsLong(), retryAfterNanos(headers.apply("Retry-After")));
+        } else if (statusCode >= 200 && statusCode < 300) {
+            bucket.succeeded();
+        }
+    }
+
+    public Map<String, Stats> stats() {
+        Map<String, Stats> snapshot = new TreeMap<>();
+        long now = nanoClock.getAsLong();
+        buckets.forEach((key, bucket) -> snapshot.put(key, bucket.stats(now)));
+        return snapshot;
+    }
+
+    public Map<String, Object> summary() {
+        Map<String, Object> rendered = new LinkedHashMap<>();
+        stats().forEach((key, stats) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("ratePerSecond", Math.round(stats.ratePerSecond() * 1000) / 1000.0);
+            values.put("tokens", Math.round(stats.tokens() * 1000) / 1000.0);
+            values.put("acquired", stats.acquired());
+            values.put("throttled", stats.throttled());
+            values.put("blockedForMillis", TimeUnit.NANOSECONDS.toMillis(stats.blockedForNanos()));
+            values.put("waitMillis", ApiCallMetrics.latencyMillis(stats.waits()));
+            rendered.put(key, values);
+        });
+        return rendered;
+    }
+
+    private Bucket bucket(String credential, String endpoint) {
+        return buckets.computeIfAbsent(credential + ' ' + endpoint, key -> new Bucket(nanoClock.getAsLong()));
+    }
+
+    private static long retryAfterNanos(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return 0L;
+        }
+        try {
+            return (long) (Double.parseDouble(retryAfter.trim()) * NANOS_PER_SECOND);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private final class Bucket {
+        private final LatencyHistogram waits = new LatencyHistogram();
+        private double rate = settings.initialPerSecond();
+        private double tokens = settings.burst();
+        private long lastRefillNanos;
+        private long blockedUntilNanos;
+        private long acquired;
+        private long throttled;
+        private int consecutiveThrottles;
+
+        private Bucket(long nowNanos) {
+            this.lastRefillNanos = nowNanos;
+            this.blockedUntilNanos = nowNanos;
+        }
+
+        private synchronized long reserve(long nowNanos) {
+            refill(nowNanos);
+            acquired++;
+            tokens -= 1;
+            long tokenWait = tokens >= 0 ? 0L : (long) Math.ceil(-tokens / rate * NANOS_PER_SECOND);
+            return Math.max(tokenWait, blockedUntilNanos - nowNanos);
+        }
+
+        private synchronized void succeeded() {
+            consecutiveThrottles = 0;
+            rate = Math.min(settings.maxPerSecond(), rate + settings.increasePerSecond() / rate);
+        }
+
+        private synchronized void throttled(long nowNanos, long retryAfterNanos) {
+            refill(nowNanos);
+            throttled++;
+            consecutiveThrottles++;
+            rate = Math.max(settings.minPerSecond(), rate * settings.decreaseFactor());
+            long ceiling = Math.min(settings.maxBackoff().toNanos(), BASE_BACKOFF_NANOS << Math.min(consecutiveThrottles - 1, 16));
+            long backoff = Math.max(retryAfterNanos, ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+            tokens = Math.min(tokens, 0) + 1 - backoff * rate / NANOS_PER_SECOND;
+            blockedUntilNanos = Math.max(blockedUntilNanos, nowNanos + backoff);
+        }
+
+        private synchronized Stats stats(long nowNanos) {
+            refill(nowNanos);
+            return new Stats(rate, tokens, acquired, throttled, Math.max(0L, blockedUntilNanos - nowNanos), waits.snapshot());
+        }
+
+        private void refill(long nowNanos) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(settings.burst(), tokens + elapsed * rate / NANOS_PER_SECOND);
+                lastRefillNanos = nowNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.stripe.automation.api.client;
+
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.RefundRequest;
+import com.stripe.automation.api.spec.ApiSpecifications;
+import com.stripe.automation.api.validation.StripeRequestValidator;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.utils.CorrelationId;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncStripeApiClient {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final HttpClient SHARED = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final String authorization;
+    private final Duration timeout;
+
+    public AsyncStripeApiClient() {
+        this(ConfigManager.get("stripe.api.baseUrl"), configuredSecretKey(), configuredTimeout(), SHARED);
+    }
+
+    public AsyncStripeApiClient(String baseUrl, String secretKey, Duration timeout, HttpClient http) {
+        this.http = http;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.authorization = "Bearer " + secretKey;
+        this.timeout = timeout;
+    }
+
+    public CompletableFuture<StripeHttpResponse> createPaymentIntent(PaymentIntentRequest request, String idempotencyKey) {
+        StripeRequestValidator.validatePaymentIntent(request);
+        String form = new FormBuilder()
+                .add("amount", request.amount())
+                .add("currency", request.currency())
+                .add("payment_method", request.payment_method())
+                .add("confirm", request.confirm())
+                .build();
+        return post("/payment_intents", form, idempotencyKey);
+    }
+
+    public CompletableFuture<StripeHttpResponse> confirmPaymentIntent(String paymentIntentId) {
+        return post("/payment_intents/" + URLEncoder.encode(paymentIntentId, StandardCharsets.UTF_8) + "/confirm", "", null);
+    }
+
+    public CompletableFuture<StripeHttpResponse> createRefund(RefundRequest request) {
+        return createRefund(request, null);
+    }
+
+    public CompletableFuture<StripeHttpResponse> createRefund(RefundRequest request, String idempotencyKey) {
+        StripeRequestValidator.validateRefund(request);
+        String form = new FormBuilder()
+                .add("payment_intent", request.payment_intent())
+                .add("amount", request.amount())
+                .build();
+        return post("/refunds", form, idempotencyKey);
+    }
+
+    private CompletableFuture<StripeHttpResponse> post(String path, String form, String idempotencyKey) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header(ApiSpecifications.CORRELATION_HEADER, CorrelationId.get())
+                .POST(HttpRequest.BodyPublishers.ofString(form, StandardCharsets.UTF_8));
+        if (idempotencyKey != null) {
+            builder.header(ApiSpecifications.IDEMPOTENCY_HEADER, idempotencyKey);
+        }
+        return http.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> new StripeHttpResponse(response.statusCode(), response.headers(), response.body()));
+    }
+
+    private static String configuredSecretKey() {
+        String secretKey = ConfigManager.get("stripe.secretKey");
+        if (secretKey == null || secretKey.isBlank()) {
+            throw new IllegalStateException("stripe.secretKey is not configured. Set STRIPE_SECRET_KEY or stripe.secretKey.");
+        }
+        return secretKey;
+    }
+
+    private static Duration configuredTimeout() {
+        return ConfigManager.getDuration("stripe.api.timeoutSeconds", ChronoUnit.SECONDS, DEFAULT_TIMEOUT);
+    }
+
+    private static final class FormBuilder {
+        private final StringBuilder form = new StringBuilder(128);
+
+        private FormBuilder add(String name, Object value) {
+            if (value == null) {
+                return this;
+            }
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(name).append('=').append(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+            return this;
+        }
+
+        private String build() {
+            return form.toString();
+        }
+    }
+}
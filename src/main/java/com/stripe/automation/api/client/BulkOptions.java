@@ -0,0 +1,25 @@
+package com.stripe.automation.api.client;
+
+import com.stripe.automation.config.ConfigManager;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+public record BulkOptions(int maxInFlight, int maxAttempts, Duration initialBackoff) {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final Duration DEFAULT_BACKOFF = Duration.ofMillis(200);
+
+    public BulkOptions {
+        if (maxInFlight < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Bulk in-flight limit and attempts must be positive");
+        }
+    }
+
+    public static BulkOptions configured() {
+        return new BulkOptions(
+                ConfigManager.getInt("stripe.api.bulk.maxInFlight", DEFAULT_MAX_IN_FLIGHT),
+                ConfigManager.getInt("stripe.api.bulk.maxAttempts", DEFAULT_MAX_ATTEMPTS),
+                ConfigManager.getDuration("stripe.api.bulk.backoffMillis", ChronoUnit.MILLIS, DEFAULT_BACKOFF));
+    }
+}
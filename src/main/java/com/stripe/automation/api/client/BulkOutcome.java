@@ -0,0 +1,14 @@
+package com.stripe.automation.api.client;
+
+import io.restassured.response.Response;
+
+public record BulkOutcome<T>(int index, T request, String idempotencyKey, Response response, Throwable error, int attempts) {
+
+    public boolean isSuccess() {
+        return error == null && response != null && response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    public int statusCode() {
+        return response == null ? -1 : response.statusCode();
+    }
+}
@@ -0,0 +1,47 @@
+package com.stripe.automation.api.client;
+
+import com.stripe.automation.config.ConfigManager;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public record ListParams(Map<String, String> filters, int pageSize, int prefetchPages) {
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_PREFETCH_PAGES = 1;
+
+    public ListParams {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("Prefetch depth must not be negative");
+        }
+        filters = Map.copyOf(filters);
+    }
+
+    public static ListParams configured() {
+        return new ListParams(Map.of(),
+                ConfigManager.getInt("stripe.api.list.pageSize", MAX_PAGE_SIZE),
+                ConfigManager.getInt("stripe.api.list.prefetchPages", DEFAULT_PREFETCH_PAGES));
+    }
+
+    public ListParams createdBetween(Instant fromInclusive, Instant toExclusive) {
+        return with("created[gte]", String.valueOf(fromInclusive.getEpochSecond()))
+                .with("created[lt]", String.valueOf(toExclusive.getEpochSecond()));
+    }
+
+    public ListParams with(String name, String value) {
+        Map<String, String> updated = new LinkedHashMap<>(filters);
+        updated.put(name, value);
+        return new ListParams(updated, pageSize, prefetchPages);
+    }
+
+    public ListParams withPageSize(int size) {
+        return new ListParams(filters, size, prefetchPages);
+    }
+
+    public ListParams withPrefetchPages(int pages) {
+        return new ListParams(filters, pageSize, pages);
+    }
+}
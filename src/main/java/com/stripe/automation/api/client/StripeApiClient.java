@@ -1,53 +1,273 @@
 package com.stripe.automation.api.client;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.PaymentIntentResponse;
 import com.stripe.automation.api.models.RefundRequest;
+import com.stripe.automation.api.models.RefundResponse;
+import com.stripe.automation.api.models.StripeError;
 import com.stripe.automation.api.spec.ApiSpecifications;
 import com.stripe.automation.api.validation.StripeRequestValidator;
+import com.stripe.automation.utils.CorrelationId;
+import com.stripe.automation.utils.Json;
+import com.stripe.automation.utils.VirtualThreads;
 import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-
-import static io.restassured.RestAssured.given;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StripeApiClient {
+    private static final String PAYMENT_INTENTS = "POST /payment_intents";
+    private static final String CONFIRM_PAYMENT_INTENT = "POST /payment_intents/{id}/confirm";
+    private static final String REFUNDS = "POST /refunds";
+    private static final ExecutorService LIST_PREFETCH = CorrelationId.executorService(VirtualThreads.newPerTaskExecutor("stripe-list"));
+
+    private final AdaptiveRateLimiter rateLimiter;
+
+    public StripeApiClient() {
+        this(AdaptiveRateLimiter.shared());
+    }
+
+    public StripeApiClient(AdaptiveRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public AdaptiveRateLimiter rateLimiter() {
+        return rateLimiter;
+    }
 
     public Response createPaymentIntent(PaymentIntentRequest request, String idempotencyKey) {
         StripeRequestValidator.validatePaymentIntent(request);
-        return given()
-                .spec(ApiSpecifications.stripeRequestSpec())
-                .header("Idempotency-Key", idempotencyKey)
+        return limited(PAYMENT_INTENTS, () -> ApiSpecifications.stripeRequest(idempotencyKey)
                 .formParam("amount", request.amount())
                 .formParam("currency", request.currency())
                 .formParam("payment_method", request.payment_method())
                 .formParam("confirm", request.confirm())
-                .post("/payment_intents");
+                .post("/payment_intents"));
     }
 
     public Response confirmPaymentIntent(String paymentIntentId) {
-        return given()
-                .spec(ApiSpecifications.stripeRequestSpec())
-                .post("/payment_intents/{id}/confirm", paymentIntentId);
+        return limited(CONFIRM_PAYMENT_INTENT, () -> ApiSpecifications.stripeRequest()
+                .post("/payment_intents/{id}/confirm", paymentIntentId));
     }
 
     public Response createRefund(RefundRequest request) {
         StripeRequestValidator.validateRefund(request);
-        var req = given()
-                .spec(ApiSpecifications.stripeRequestSpec())
-                .formParam("payment_intent", request.payment_intent());
-        if (request.amount() != null) {
-            req.formParam("amount", request.amount());
-        }
-        return req.post("/refunds");
+        return limited(REFUNDS, () -> {
+            var req = ApiSpecifications.stripeRequest()
+                    .formParam("payment_intent", request.payment_intent());
+            if (request.amount() != null) {
+                req.formParam("amount", request.amount());
+            }
+            return req.post("/refunds");
+        });
     }
 
     public Response createRefundWithHeaders(RefundRequest request, Map<String, String> headers) {
         StripeRequestValidator.validateRefund(request);
-        var req = given().spec(ApiSpecifications.stripeRequestSpec()).headers(headers)
-                .formParam("payment_intent", request.payment_intent());
-        if (request.amount() != null) {
-            req.formParam("amount", request.amount());
+        return limited(REFUNDS, () -> {
+            var req = ApiSpecifications.stripeRequest().headers(headers)
+                    .formParam("payment_intent", request.payment_intent());
+            if (request.amount() != null) {
+                req.formParam("amount", request.amount());
+            }
+            return req.post("/refunds");
+        });
+    }
+
+    public PaymentIntentResponse createPaymentIntentTyped(PaymentIntentRequest request, String idempotencyKey) {
+        return PaymentIntentResponse.from(createPaymentIntent(request, idempotencyKey));
+    }
+
+    public PaymentIntentResponse confirmPaymentIntentTyped(String paymentIntentId) {
+        return PaymentIntentResponse.from(confirmPaymentIntent(paymentIntentId));
+    }
+
+    public RefundResponse createRefundTyped(RefundRequest request) {
+        return RefundResponse.from(createRefund(request));
+    }
+
+    public RefundResponse createRefundTyped(RefundRequest request, Map<String, String> headers) {
+        return RefundResponse.from(createRefundWithHeaders(request, headers));
+    }
+
+    public List<BulkOutcome<PaymentIntentRequest>> createPaymentIntents(List<PaymentIntentRequest> requests) {
+        return createPaymentIntents(requests, BulkOptions.configured());
+    }
+
+    public List<BulkOutcome<PaymentIntentRequest>> createPaymentIntents(List<PaymentIntentRequest> requests, BulkOptions options) {
+        return runBulk(requests, options, this::createPaymentIntent);
+    }
+
+    public List<BulkOutcome<RefundRequest>> createRefunds(List<RefundRequest> requests) {
+        return createRefunds(requests, BulkOptions.configured());
+    }
+
+    public List<BulkOutcome<RefundRequest>> createRefunds(List<RefundRequest> requests, BulkOptions options) {
+        return runBulk(requests, options,
+                (request, idempotencyKey) -> createRefundWithHeaders(request, Map.of("Idempotency-Key", idempotencyKey)));
+    }
+
+    public Stream<JsonNode> listPaymentIntents(ListParams params) {
+        return list("/payment_intents", params);
+    }
+
+    public Stream<JsonNode> listRefunds(ListParams params) {
+        return list("/refunds", params);
+    }
+
+    public Stream<JsonNode> listDisputes(ListParams params) {
+        return list("/disputes", params);
+    }
+
+    public StripeListIterator iterate(String path, ListParams params) {
+        return new StripeListIterator(startingAfter -> fetchPage(path, "GET " + path, params, startingAfter),
+                params.prefetchPages(), LIST_PREFETCH);
+    }
+
+    private Stream<JsonNode> list(String path, ListParams params) {
+        StripeListIterator iterator = iterate(path, params);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    private JsonNode fetchPage(String path, String endpoint, ListParams params, String startingAfter) {
+        BulkOptions retries = BulkOptions.configured();
+        Response response = null;
+        for (int attempt = 1; attempt <= retries.maxAttempts(); attempt++) {
+            response = limited(endpoint, () -> {
+                RequestSpecification request = ApiSpecifications.stripeRequest()
+                        .queryParam("limit", params.pageSize())
+                        .queryParams(params.filters());
+                if (startingAfter != null) {
+                    request.queryParam("starting_after", startingAfter);
+                }
+                return request.get(path);
+            });
+            if (!isRetryable(response.statusCode()) || attempt == retries.maxAttempts()) {
+                break;
+            }
+            if (response.statusCode() != 429) {
+                try {
+                    Thread.sleep(backoffMillis(retries, attempt, response));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while retrying Stripe list page", e);
+                }
+            }
+        }
+        JsonNode body = Json.readTree(response.asByteArray());
+        if (response.statusCode() != 200) {
+            StripeError error = StripeError.from(body);
+            throw new IllegalStateException("Listing " + path + " failed with status " + response.statusCode()
+                    + (error == null ? "" : ": " + error.message()));
+        }
+        return body;
+    }
+
+    private Response limited(String endpoint, Supplier<Response> call) {
+        String credential = ApiSpecifications.credentialKey();
+        try {
+            if (!ApiSpecifications.replayingCassette()) {
+                rateLimiter.acquire(credential, endpoint);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Stripe rate limit", e);
+        }
+        Response response = call.get();
+        rateLimiter.onResponse(credential, endpoint, response.statusCode(), response::getHeader);
+        return response;
+    }
+
+    private static <T> List<BulkOutcome<T>> runBulk(List<T> requests, BulkOptions options, BiFunction<T, String, Response> call) {
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        List<Future<BulkOutcome<T>>> pending = new ArrayList<>(requests.size());
+        ExecutorService executor = CorrelationId.executorService(VirtualThreads.newPerTaskExecutor("stripe-bulk"));
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                int index = i;
+                T request = requests.get(i);
+                inFlight.acquireUninterruptibly();
+                pending.add(executor.submit(() -> {
+                    try {
+                        return attempt(index, request, options, call);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            List<BulkOutcome<T>> outcomes = new ArrayList<>(requests.size());
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    outcomes.add(pending.get(i).get());
+                } catch (ExecutionException e) {
+                    outcomes.add(new BulkOutcome<>(i, requests.get(i), null, null, e.getCause(), 0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for bulk Stripe requests", e);
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> BulkOutcome<T> attempt(int index, T request, BulkOptions options, BiFunction<T, String, Response> call)
+            throws InterruptedException {
+        String idempotencyKey = UUID.randomUUID().toString();
+        Response response = null;
+        RuntimeException error = null;
+        int attempts = 0;
+        while (attempts < options.maxAttempts()) {
+            attempts++;
+            try {
+                response = call.apply(request, idempotencyKey);
+                error = null;
+                if (!isRetryable(response.statusCode())) {
+                    break;
+                }
+            } catch (IllegalArgumentException e) {
+                return new BulkOutcome<>(index, request, idempotencyKey, null, e, attempts);
+            } catch (RuntimeException e) {
+                response = null;
+                error = e;
+            }
+            if (attempts < options.maxAttempts() && (response == null || response.statusCode() != 429)) {
+                Thread.sleep(backoffMillis(options, attempts, response));
+            }
+        }
+        return new BulkOutcome<>(index, request, idempotencyKey, response, error, attempts);
+    }
+
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == 409 || statusCode == 429 || statusCode >= 500;
+    }
+
+    private static long backoffMillis(BulkOptions options, int attempt, Response response) {
+        String retryAfter = response == null ? null : response.getHeader("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Long.parseLong(retryAfter.trim()) * 1_000L;
+            } catch (NumberFormatException ignored) {
+            }
         }
-        return req.post("/refunds");
+        long ceiling = options.initialBackoff().toMillis() << Math.min(attempt - 1, 10);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
     }
 }
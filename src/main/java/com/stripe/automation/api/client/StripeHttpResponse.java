@@ -0,0 +1,14 @@
+package com.stripe.automation.api.client;
+
+import java.net.http.HttpHeaders;
+
+public record StripeHttpResponse(int statusCode, HttpHeaders headers, String body) {
+
+    public String header(String name) {
+        return headers.firstValue(name).orElse(null);
+    }
+
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+}
@@ -0,0 +1,173 @@
+package com.stripe.automation.api.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+public class StripeListIterator implements Iterator<JsonNode>, AutoCloseable {
+    private final Function<String, JsonNode> fetchPage;
+    private final int prefetchPages;
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<JsonNode> ready = new ArrayDeque<>();
+    private Iterator<JsonNode> current = Collections.emptyIterator();
+    private Future<?> inFlight;
+    private String cursor;
+    private boolean exhausted;
+    private boolean closed;
+    private RuntimeException failure;
+    private long pagesFetched;
+    private int maxBufferedPages;
+
+    public StripeListIterator(Function<String, JsonNode> fetchPage, int prefetchPages, Executor executor) {
+        this.fetchPage = fetchPage;
+        this.prefetchPages = prefetchPages;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (current.hasNext()) {
+            return true;
+        }
+        lock.lock();
+        try {
+            while (!closed) {
+                JsonNode page = ready.poll();
+                if (page != null) {
+                    current = page.elements();
+                    fetchIfNeeded(false);
+                    if (current.hasNext()) {
+                        return true;
+                    }
+                    continue;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                if (exhausted && inFlight == null) {
+                    return false;
+                }
+                fetchIfNeeded(true);
+                if (inFlight == null) {
+                    continue;
+                }
+                try {
+                    changed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the next Stripe list page", e);
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public JsonNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.clear();
+            current = Collections.emptyIterator();
+            if (inFlight != null) {
+                inFlight.cancel(false);
+                inFlight = null;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long pagesFetched() {
+        lock.lock();
+        try {
+            return pagesFetched;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int maxBufferedPages() {
+        lock.lock();
+        try {
+            return maxBufferedPages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fetchIfNeeded(boolean demanded) {
+        if (inFlight != null || exhausted || closed || failure != null) {
+            return;
+        }
+        if (demanded ? !ready.isEmpty() : ready.size() >= prefetchPages) {
+            return;
+        }
+        String startingAfter = cursor;
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            JsonNode page = null;
+            RuntimeException error = null;
+            try {
+                page = fetchPage.apply(startingAfter);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            completed(page, error);
+        }, null);
+        inFlight = task;
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            inFlight = null;
+            failure = e;
+        }
+    }
+
+    private void completed(JsonNode page, RuntimeException error) {
+        lock.lock();
+        try {
+            inFlight = null;
+            if (closed) {
+                return;
+            }
+            if (error != null) {
+                failure = error;
+            } else {
+                JsonNode data = page.path("data");
+                pagesFetched++;
+                ready.add(data);
+                maxBufferedPages = Math.max(maxBufferedPages, ready.size());
+                JsonNode last = data.isArray() && !data.isEmpty() ? data.get(data.size() - 1).path("id") : null;
+                cursor = last == null || last.isMissingNode() ? null : last.asText();
+                exhausted = cursor == null || !page.path("has_more").asBoolean(false);
+                fetchIfNeeded(false);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.stripe.automation.api.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.stripe.automation.utils.Json;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+
+public record PaymentIntentResponse(int statusCode, Headers headers, JsonNode json, String id, String object, Long amount,
+                                    Long amountReceived, String currency, String status, String paymentMethod,
+                                    StripeError error) {
+
+    public static PaymentIntentResponse from(Response response) {
+        JsonNode json = Json.readTree(response.asByteArray());
+        return new PaymentIntentResponse(response.statusCode(), response.getHeaders(), json, Json.text(json, "id"),
+                Json.text(json, "object"), Json.longValue(json, "amount"), Json.longValue(json, "amount_received"),
+                Json.text(json, "currency"), Json.text(json, "status"), Json.text(json, "payment_method"), StripeError.from(json));
+    }
+
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    public String header(String name) {
+        return headers.getValue(name);
+    }
+}
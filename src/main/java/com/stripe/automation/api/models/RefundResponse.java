@@ -0,0 +1,25 @@
+package com.stripe.automation.api.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.stripe.automation.utils.Json;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+
+public record RefundResponse(int statusCode, Headers headers, JsonNode json, String id, String object, Long amount,
+                             String currency, String paymentIntent, String status, StripeError error) {
+
+    public static RefundResponse from(Response response) {
+        JsonNode json = Json.readTree(response.asByteArray());
+        return new RefundResponse(response.statusCode(), response.getHeaders(), json, Json.text(json, "id"),
+                Json.text(json, "object"), Json.longValue(json, "amount"), Json.text(json, "currency"),
+                Json.text(json, "payment_intent"), Json.text(json, "status"), StripeError.from(json));
+    }
+
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    public String header(String name) {
+        return headers.getValue(name);
+    }
+}
@@ -0,0 +1,16 @@
+package com.stripe.automation.api.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.stripe.automation.utils.Json;
+
+public record StripeError(String type, String code, String declineCode, String message, String param) {
+
+    public static StripeError from(JsonNode body) {
+        JsonNode error = body.path("error");
+        if (!error.isObject()) {
+            return null;
+        }
+        return new StripeError(Json.text(error, "type"), Json.text(error, "code"), Json.text(error, "decline_code"),
+                Json.text(error, "message"), Json.text(error, "param"));
+    }
+}
@@ -0,0 +1,16 @@
+package com.stripe.automation.api.spec;
+
+import java.util.Locale;
+
+public enum ApiLogMode {
+    ALL,
+    ON_FAILURE,
+    NONE;
+
+    public static ApiLogMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return ON_FAILURE;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
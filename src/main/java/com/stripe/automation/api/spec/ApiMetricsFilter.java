@@ -0,0 +1,92 @@
+package com.stripe.automation.api.spec;
+
+import com.stripe.automation.metrics.ApiCallMetrics;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class ApiMetricsFilter implements Filter {
+
+    @Override
+    public Response filter(FilterableRequestSpecification request, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        String endpoint = request.getMethod() + ' ' + templatedPath(request.getUserDefinedPath());
+        String correlationId = request.getHeaders().getValue(ApiSpecifications.CORRELATION_HEADER);
+        long sent = requestBytes(request);
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = ctx.next(request, responseSpec);
+        } catch (RuntimeException e) {
+            ApiCallMetrics.record(endpoint, ApiCallMetrics.NO_RESPONSE, System.nanoTime() - start, sent, 0L, correlationId);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        ApiCallMetrics.record(endpoint, response.statusCode(), elapsed, sent, response.asByteArray().length, correlationId);
+        return response;
+    }
+
+    static String templatedPath(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        int query = path.indexOf('?');
+        String bare = query < 0 ? path : path.substring(0, query);
+        StringBuilder out = null;
+        int segmentStart = 0;
+        for (int i = 0; i <= bare.length(); i++) {
+            if (i == bare.length() || bare.charAt(i) == '/') {
+                if (looksLikeObjectId(bare, segmentStart, i)) {
+                    if (out == null) {
+                        out = new StringBuilder(bare.length()).append(bare, 0, segmentStart);
+                    }
+                    out.append("{id}");
+                } else if (out != null) {
+                    out.append(bare, segmentStart, i);
+                }
+                if (out != null && i < bare.length()) {
+                    out.append('/');
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return out == null ? bare : out.toString();
+    }
+
+    private static boolean looksLikeObjectId(String path, int from, int to) {
+        int underscore = path.indexOf('_', from);
+        if (underscore < from + 2 || underscore >= to - 6 || underscore > from + 6) {
+            return false;
+        }
+        for (int i = from; i < underscore; i++) {
+            if (!Character.isLowerCase(path.charAt(i))) {
+                return false;
+            }
+        }
+        for (int i = underscore + 1; i < to; i++) {
+            if (!Character.isLetterOrDigit(path.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long requestBytes(FilterableRequestSpecification request) {
+        Object body = request.getBody();
+        if (body instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (body != null) {
+            return body.toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+        long bytes = 0;
+        for (Map.Entry<String, String> param : request.getFormParams().entrySet()) {
+            bytes += (bytes == 0 ? 0 : 1) + param.getKey().length() + 1 + String.valueOf(param.getValue()).length();
+        }
+        return bytes;
+    }
+}
@@ -1,5 +1,8 @@
 package com.stripe.automation.api.spec;
 
+import com.stripe.automation.api.cassette.Cassette;
+import com.stripe.automation.api.cassette.CassetteFilter;
+import com.stripe.automation.api.cassette.CassetteMode;
 import com.stripe.automation.config.ConfigManager;
 import com.stripe.automation.utils.CorrelationId;
 import io.restassured.builder.RequestSpecBuilder;
@@ -9,28 +12,148 @@ import io.restassured.http.ContentType;
 import io.restassured.specification.RequestSpecification;
 import io.restassured.specification.ResponseSpecification;
 
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static io.restassured.RestAssured.given;
+
 public final class ApiSpecifications {
+    public static final String CORRELATION_HEADER = "X-Correlation-Id";
+    public static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    public static final String DEFAULT_CASSETTE_PATH = "src/test/resources/cassettes/stripe-api.cassette";
+    private static final ApiMetricsFilter METRICS_FILTER = new ApiMetricsFilter();
+    private static final String REPLAY_SECRET_KEY = "sk_test_cassette_replay";
+
+    private static volatile RequestSpecification template;
+    private static volatile String credentialKey;
+
+    static {
+        ConfigManager.addListener((changedKeys, current) -> {
+            for (String key : changedKeys) {
+                if (key.startsWith("stripe.") || key.startsWith("api.")) {
+                    invalidate();
+                    return;
+                }
+            }
+        });
+    }
+
     private ApiSpecifications() {}
 
     public static RequestSpecification stripeRequestSpec() {
+        return new RequestSpecBuilder()
+                .addRequestSpecification(template())
+                .addHeader(CORRELATION_HEADER, CorrelationId.get())
+                .build();
+    }
+
+    public static RequestSpecification stripeRequest() {
+        return given().spec(template()).header(CORRELATION_HEADER, CorrelationId.get());
+    }
+
+    public static RequestSpecification stripeRequest(String idempotencyKey) {
+        RequestSpecification request = stripeRequest();
+        return idempotencyKey == null ? request : request.header(IDEMPOTENCY_HEADER, idempotencyKey);
+    }
+
+    public static RequestSpecification unauthenticatedRequest() {
+        RequestSpecification request = given().baseUri(ConfigManager.get("stripe.api.baseUrl"));
+        if (metricsEnabled()) {
+            request.filter(METRICS_FILTER);
+        }
+        CassetteFilter cassette = cassetteFilter();
+        return cassette == null ? request : request.filter(cassette);
+    }
+
+    public static RequestSpecification template() {
+        RequestSpecification current = template;
+        if (current == null) {
+            synchronized (ApiSpecifications.class) {
+                current = template;
+                if (current == null) {
+                    current = template = buildTemplate();
+                }
+            }
+        }
+        return current;
+    }
+
+    public static String credentialKey() {
+        template();
+        return credentialKey;
+    }
+
+    public static void invalidate() {
+        template = null;
+    }
+
+    public static CassetteMode cassetteMode() {
+        return CassetteMode.from(ConfigManager.get("api.cassette.mode"));
+    }
+
+    public static boolean replayingCassette() {
+        return cassetteMode() == CassetteMode.REPLAY;
+    }
+
+    public static ResponseSpecification successSpec() {
+        ResponseSpecBuilder builder = new ResponseSpecBuilder().expectStatusCode(200);
+        if (logMode() == ApiLogMode.ALL) {
+            builder.log(LogDetail.ALL);
+        }
+        return builder.build();
+    }
+
+    private static RequestSpecification buildTemplate() {
         String secretKey = ConfigManager.get("stripe.secretKey");
+        if ((secretKey == null || secretKey.isBlank()) && replayingCassette()) {
+            secretKey = REPLAY_SECRET_KEY;
+        }
         if (secretKey == null || secretKey.isBlank()) {
             throw new IllegalStateException("stripe.secretKey is not configured. Set STRIPE_SECRET_KEY or stripe.secretKey.");
         }
 
-        return new RequestSpecBuilder()
+        credentialKey = secretKey.length() <= 8 ? "key" : secretKey.substring(0, 8) + "..." + secretKey.substring(secretKey.length() - 4);
+        RequestSpecBuilder builder = new RequestSpecBuilder()
                 .setBaseUri(ConfigManager.get("stripe.api.baseUrl"))
                 .setContentType(ContentType.URLENC)
-                .addHeader("Authorization", "Bearer " + secretKey)
-                .addHeader("X-Correlation-Id", CorrelationId.get())
-                .log(LogDetail.ALL)
-                .build();
+                .addHeader("Authorization", "Bearer " + secretKey);
+        switch (logMode()) {
+            case ALL -> builder.log(LogDetail.ALL);
+            case ON_FAILURE -> builder.addFilter(new RingBufferLoggingFilter(
+                    ConfigManager.getInt("api.log.bufferSize", RingBufferLoggingFilter.DEFAULT_CAPACITY),
+                    logDetail(), ConfigManager.getDouble("api.log.sampleRate", 0.0)));
+            case NONE -> {
+            }
+        }
+        if (metricsEnabled()) {
+            builder.addFilter(METRICS_FILTER);
+        }
+        CassetteFilter cassette = cassetteFilter();
+        if (cassette != null) {
+            builder.addFilter(cassette);
+        }
+        return builder.build();
     }
 
-    public static ResponseSpecification successSpec() {
-        return new ResponseSpecBuilder()
-                .expectStatusCode(200)
-                .log(LogDetail.ALL)
-                .build();
+    private static CassetteFilter cassetteFilter() {
+        CassetteMode mode = cassetteMode();
+        if (mode == CassetteMode.OFF) {
+            return null;
+        }
+        String path = ConfigManager.get("api.cassette.path");
+        return new CassetteFilter(Cassette.shared(Path.of(path == null || path.isBlank() ? DEFAULT_CASSETTE_PATH : path.trim()), mode));
+    }
+
+    private static boolean metricsEnabled() {
+        return ConfigManager.getBoolean("api.metrics.enabled", true);
+    }
+
+    private static ApiLogMode logMode() {
+        return ApiLogMode.from(ConfigManager.get("api.log.mode"));
+    }
+
+    private static LogDetail logDetail() {
+        String level = ConfigManager.get("api.log.level");
+        return level == null || level.isBlank() ? LogDetail.ALL : LogDetail.valueOf(level.trim().toUpperCase(Locale.ROOT));
     }
 }
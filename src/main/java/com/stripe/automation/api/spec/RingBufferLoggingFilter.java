@@ -0,0 +1,220 @@
+package com.stripe.automation.api.spec;
+
+import com.stripe.automation.utils.CorrelationId;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.log.LogDetail;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RingBufferLoggingFilter implements Filter {
+    public static final int DEFAULT_CAPACITY = 20;
+
+    private static final Logger LOG = LoggerFactory.getLogger(RingBufferLoggingFilter.class);
+    private static final ThreadLocal<Ring> RINGS = new ThreadLocal<>();
+
+    static {
+        CorrelationId.propagate(RINGS);
+    }
+
+    private final int capacity;
+    private final LogDetail detail;
+    private final double sampleRate;
+
+    public RingBufferLoggingFilter(int capacity, LogDetail detail, double sampleRate) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.detail = detail;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification request, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long startNanos = System.nanoTime();
+        Response response;
+        try {
+            response = ctx.next(request, responseSpec);
+        } catch (RuntimeException e) {
+            ring().add(new Exchange(request.getMethod(), request.getURI(), requestHeaders(request), requestBody(request),
+                    -1, null, e.toString(), System.nanoTime() - startNanos));
+            flush("request failed: " + e.getClass().getSimpleName());
+            throw e;
+        }
+        Exchange exchange = new Exchange(request.getMethod(), request.getURI(), requestHeaders(request), requestBody(request),
+                response.statusCode(), responseHeaders(response), responseBody(response), System.nanoTime() - startNanos);
+        ring().add(exchange);
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            flush("non-2xx response " + response.statusCode());
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            LOG.info("Sampled API exchange\n{}", exchange.format());
+        }
+        return response;
+    }
+
+    public static String drainCurrentThread() {
+        Ring ring = RINGS.get();
+        if (ring == null) {
+            return "";
+        }
+        return ring.drain();
+    }
+
+    public static void clearCurrentThread() {
+        Ring ring = RINGS.get();
+        if (ring == null) {
+            RINGS.set(new Ring(DEFAULT_CAPACITY));
+        } else {
+            ring.clear();
+        }
+    }
+
+    private void flush(String reason) {
+        Ring ring = RINGS.get();
+        String unflushed = ring.formatUnflushed();
+        if (!unflushed.isEmpty()) {
+            LOG.warn("Last API exchanges on {} ({})\n{}", Thread.currentThread().getName(), reason, unflushed);
+        }
+    }
+
+    private Ring ring() {
+        Ring ring = RINGS.get();
+        if (ring == null) {
+            ring = new Ring(capacity);
+            RINGS.set(ring);
+        } else {
+            ring.resize(capacity);
+        }
+        return ring;
+    }
+
+    private String requestHeaders(FilterableRequestSpecification request) {
+        return includesHeaders() ? headers(request.getHeaders()) : null;
+    }
+
+    private String responseHeaders(Response response) {
+        return includesHeaders() ? headers(response.getHeaders()) : null;
+    }
+
+    private String requestBody(FilterableRequestSpecification request) {
+        if (!includesBodies()) {
+            return null;
+        }
+        Object body = request.getBody();
+        if (body != null) {
+            return body.toString();
+        }
+        return request.getFormParams().isEmpty() ? null : request.getFormParams().toString();
+    }
+
+    private String responseBody(Response response) {
+        return includesBodies() ? response.asString() : null;
+    }
+
+    private boolean includesHeaders() {
+        return detail == LogDetail.ALL || detail == LogDetail.HEADERS;
+    }
+
+    private boolean includesBodies() {
+        return detail == LogDetail.ALL || detail == LogDetail.BODY;
+    }
+
+    private static String headers(Headers headers) {
+        StringBuilder out = new StringBuilder();
+        for (Header header : headers) {
+            String value = header.getName().toLowerCase(Locale.ROOT).equals("authorization") ? mask(header.getValue()) : header.getValue();
+            out.append("    ").append(header.getName()).append(": ").append(value).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String mask(String value) {
+        return value == null || value.length() <= 4 ? "****" : "****" + value.substring(value.length() - 4);
+    }
+
+    private record Exchange(String method, String uri, String requestHeaders, String requestBody,
+                            int status, String responseHeaders, String responseBody, long elapsedNanos) {
+
+        String format() {
+            StringBuilder out = new StringBuilder(256);
+            out.append(method).append(' ').append(uri).append(" -> ")
+                    .append(status < 0 ? "no response" : String.valueOf(status))
+                    .append(" (").append(elapsedNanos / 1_000_000.0).append(" ms)\n");
+            if (requestHeaders != null) {
+                out.append("  request headers:\n").append(requestHeaders);
+            }
+            if (requestBody != null) {
+                out.append("  request body: ").append(requestBody).append('\n');
+            }
+            if (responseHeaders != null) {
+                out.append("  response headers:\n").append(responseHeaders);
+            }
+            if (responseBody != null) {
+                out.append("  response body: ").append(responseBody).append('\n');
+            }
+            return out.toString();
+        }
+    }
+
+    private static final class Ring {
+        private Exchange[] exchanges;
+        private long written;
+        private long flushed;
+
+        private Ring(int capacity) {
+            this.exchanges = new Exchange[capacity];
+        }
+
+        private synchronized void resize(int capacity) {
+            if (exchanges.length == capacity) {
+                return;
+            }
+            Exchange[] resized = new Exchange[capacity];
+            for (long i = Math.max(0, written - Math.min(capacity, exchanges.length)); i < written; i++) {
+                resized[(int) (i % capacity)] = exchanges[(int) (i % exchanges.length)];
+            }
+            exchanges = resized;
+        }
+
+        private synchronized void add(Exchange exchange) {
+            exchanges[(int) (written % exchanges.length)] = exchange;
+            written++;
+        }
+
+        private synchronized void clear() {
+            Arrays.fill(exchanges, null);
+            written = 0;
+            flushed = 0;
+        }
+
+        private synchronized String drain() {
+            String formatted = formatFrom(Math.max(0, written - exchanges.length));
+            clear();
+            return formatted;
+        }
+
+        private synchronized String formatUnflushed() {
+            String formatted = formatFrom(Math.max(flushed, written - exchanges.length));
+            flushed = written;
+            return formatted;
+        }
+
+        private String formatFrom(long first) {
+            StringBuilder out = new StringBuilder();
+            for (long i = first; i < written; i++) {
+                out.append(exchanges[(int) (i % exchanges.length)].format());
+            }
+            return out.toString();
+        }
+    }
+}
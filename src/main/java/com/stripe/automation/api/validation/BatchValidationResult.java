@@ -0,0 +1,62 @@
+package com.stripe.automation.api.validation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+public final class BatchValidationResult {
+    private final int size;
+    private final BitSet valid;
+    private final int[] invalidIndexes;
+    private final Violation[][] violations;
+
+    BatchValidationResult(int size, BitSet valid, int[] invalidIndexes, Violation[][] violations) {
+        this.size = size;
+        this.valid = valid;
+        this.invalidIndexes = invalidIndexes;
+        this.violations = violations;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int validCount() {
+        return size - invalidIndexes.length;
+    }
+
+    public int invalidCount() {
+        return invalidIndexes.length;
+    }
+
+    public boolean allValid() {
+        return invalidIndexes.length == 0;
+    }
+
+    public boolean isValid(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Item " + index + " of " + size);
+        }
+        return valid.get(index);
+    }
+
+    public BitSet validItems() {
+        return (BitSet) valid.clone();
+    }
+
+    public int[] invalidIndexes() {
+        return invalidIndexes.clone();
+    }
+
+    public List<Violation> violations(int index) {
+        if (isValid(index)) {
+            return List.of();
+        }
+        return List.of(violations[Arrays.binarySearch(invalidIndexes, index)]);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchValidationResult[size=" + size + ", valid=" + validCount() + ", invalid=" + invalidCount() + "]";
+    }
+}
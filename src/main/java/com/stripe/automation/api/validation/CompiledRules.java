@@ -0,0 +1,146 @@
+package com.stripe.automation.api.validation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+public final class CompiledRules<T> {
+    private static final int LEAF_ITEMS = 4_096;
+
+    private final Predicate<? super T>[] checks;
+    private final Violation[] violations;
+    private final boolean[] stops;
+
+    @SuppressWarnings("unchecked")
+    private CompiledRules(List<ValidationRule<T>> rules) {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("At least one validation rule is required");
+        }
+        checks = new Predicate[rules.size()];
+        violations = new Violation[rules.size()];
+        stops = new boolean[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            checks[i] = rules.get(i).check();
+            violations[i] = rules.get(i).violation();
+            stops[i] = rules.get(i).stopOnFailure();
+        }
+    }
+
+    @SafeVarargs
+    public static <T> CompiledRules<T> compile(ValidationRule<T>... rules) {
+        return new CompiledRules<>(List.of(rules));
+    }
+
+    public static <T> CompiledRules<T> compile(List<ValidationRule<T>> rules) {
+        return new CompiledRules<>(List.copyOf(rules));
+    }
+
+    public ValidationResult newResult() {
+        return new ValidationResult(checks.length);
+    }
+
+    public ValidationResult validate(T value, ValidationResult result) {
+        result.reset();
+        for (int i = 0; i < checks.length; i++) {
+            if (!checks[i].test(value)) {
+                result.add(violations[i]);
+                if (stops[i]) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public BatchValidationResult validateAll(T[] items, ForkJoinPool pool) {
+        long[] words = new long[(items.length + Long.SIZE - 1) / Long.SIZE];
+        Invalid invalid = items.length <= LEAF_ITEMS
+                ? validateRange(items, 0, items.length, words)
+                : pool.invoke(new RangeTask(items, 0, items.length, words));
+        return new BatchValidationResult(items.length, BitSet.valueOf(words),
+                Arrays.copyOf(invalid.indexes, invalid.size), Arrays.copyOf(invalid.violations, invalid.size));
+    }
+
+    public int size() {
+        return checks.length;
+    }
+
+    private Invalid validateRange(T[] items, int from, int to, long[] words) {
+        ValidationResult result = newResult();
+        Invalid invalid = new Invalid(16);
+        for (int i = from; i < to; i++) {
+            if (validate(items[i], result).isValid()) {
+                words[i >>> 6] |= 1L << i;
+            } else {
+                invalid.add(i, result);
+            }
+        }
+        return invalid;
+    }
+
+    private static final class Invalid {
+        private int[] indexes;
+        private Violation[][] violations;
+        private int size;
+
+        private Invalid(int capacity) {
+            indexes = new int[capacity];
+            violations = new Violation[capacity][];
+        }
+
+        private void add(int index, ValidationResult result) {
+            ensureCapacity(size + 1);
+            Violation[] found = new Violation[result.size()];
+            for (int i = 0; i < found.length; i++) {
+                found[i] = result.violation(i);
+            }
+            indexes[size] = index;
+            violations[size++] = found;
+        }
+
+        private Invalid append(Invalid other) {
+            ensureCapacity(size + other.size);
+            System.arraycopy(other.indexes, 0, indexes, size, other.size);
+            System.arraycopy(other.violations, 0, violations, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > indexes.length) {
+                int capacity = Math.max(required, indexes.length * 2);
+                indexes = Arrays.copyOf(indexes, capacity);
+                violations = Arrays.copyOf(violations, capacity);
+            }
+        }
+    }
+
+    private final class RangeTask extends RecursiveTask<Invalid> {
+        private final T[] items;
+        private final int from;
+        private final int to;
+        private final long[] words;
+
+        private RangeTask(T[] items, int from, int to, long[] words) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.words = words;
+        }
+
+        @Override
+        protected Invalid compute() {
+            if (to - from <= LEAF_ITEMS) {
+                return validateRange(items, from, to, words);
+            }
+            int middle = from + ((to - from) / 2 & -Long.SIZE);
+            RangeTask right = new RangeTask(items, middle, to, words);
+            right.fork();
+            Invalid left = new RangeTask(items, from, middle, words).compute();
+            return left.append(right.join());
+        }
+    }
+}
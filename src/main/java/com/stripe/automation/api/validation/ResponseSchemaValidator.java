@@ -0,0 +1,67 @@
+package com.stripe.automation.api.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import com.stripe.automation.utils.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ResponseSchemaValidator {
+    public static final String PAYMENT_INTENT_SCHEMA = "schemas/payment-intent-schema.json";
+
+    private static final Map<String, JsonSchema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private ResponseSchemaValidator() {}
+
+    public static List<String> violations(JsonNode json, String schemaResource) {
+        ProcessingReport report;
+        try {
+            report = schema(schemaResource).validate(json, true);
+        } catch (ProcessingException e) {
+            return List.of(e.getProcessingMessage().getMessage());
+        }
+        List<String> violations = new ArrayList<>();
+        for (ProcessingMessage message : report) {
+            if (message.getLogLevel().compareTo(LogLevel.ERROR) >= 0) {
+                String pointer = message.asJson().path("instance").path("pointer").asText();
+                violations.add((pointer.isEmpty() ? "/" : pointer) + ": " + message.getMessage());
+            }
+        }
+        return violations;
+    }
+
+    public static void validate(JsonNode json, String schemaResource) {
+        List<String> violations = violations(json, schemaResource);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Response does not match " + schemaResource + ": " + String.join("; ", violations));
+        }
+    }
+
+    private static JsonSchema schema(String resource) {
+        return SCHEMAS.computeIfAbsent(resource, ResponseSchemaValidator::load);
+    }
+
+    private static JsonSchema load(String resource) {
+        try (InputStream input = ResponseSchemaValidator.class.getClassLoader().getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalArgumentException("Missing schema resource: " + resource);
+            }
+            return JsonSchemaFactory.byDefault().getJsonSchema(Json.MAPPER.readTree(input));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read schema " + resource, e);
+        } catch (ProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON schema " + resource + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -3,37 +3,126 @@ package com.stripe.automation.api.validation;
 import com.stripe.automation.api.models.PaymentIntentRequest;
 import com.stripe.automation.api.models.RefundRequest;
 
-import java.util.Set;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static com.stripe.automation.api.validation.ValidationRule.guard;
+import static com.stripe.automation.api.validation.ValidationRule.rule;
 
 public final class StripeRequestValidator {
-    private static final Set<String> SUPPORTED_CURRENCIES = Set.of("usd", "eur", "gbp", "aud", "cad");
+    private static final long[] SUPPORTED_CURRENCIES = currencyTable("usd", "eur", "gbp", "aud", "cad");
+    private static final long MIN_AMOUNT = 50L;
+    private static final long MAX_AMOUNT = 99_999_999L;
+    private static final String AMOUNT_RANGE = "Amount must be between 50 and 99,999,999";
+
+    private static final CompiledRules<PaymentIntentRequest> PAYMENT_INTENT_RULES = CompiledRules.compile(
+            guard("request", "parameter_missing", "PaymentIntentRequest must not be null", Objects::nonNull),
+            rule("amount", "parameter_missing", "amount is required", request -> request.amount() != null),
+            rule("amount", "amount_too_small", AMOUNT_RANGE, request -> request.amount() == null || request.amount() >= MIN_AMOUNT),
+            rule("amount", "amount_too_large", AMOUNT_RANGE, request -> request.amount() == null || request.amount() <= MAX_AMOUNT),
+            rule("currency", "parameter_missing", "currency is required", request -> !isBlank(request.currency())),
+            rule("currency", "invalid_currency", "Unsupported currency",
+                    request -> isBlank(request.currency()) || isSupportedCurrency(request.currency())),
+            rule("payment_method", "parameter_missing", "payment_method must not be blank", request -> !isBlank(request.payment_method())));
+
+    private static final CompiledRules<RefundRequest> REFUND_RULES = CompiledRules.compile(
+            guard("request", "parameter_missing", "RefundRequest must not be null", Objects::nonNull),
+            rule("payment_intent", "parameter_missing", "payment_intent must not be blank", request -> !isBlank(request.payment_intent())),
+            rule("amount", "amount_too_small", "Refund amount must be positive", request -> request.amount() == null || request.amount() >= 1));
+
+    private static final ThreadLocal<ValidationResult> PAYMENT_INTENT_RESULT = ThreadLocal.withInitial(PAYMENT_INTENT_RULES::newResult);
+    private static final ThreadLocal<ValidationResult> REFUND_RESULT = ThreadLocal.withInitial(REFUND_RULES::newResult);
 
     private StripeRequestValidator() {}
 
+    public static ValidationResult checkPaymentIntent(PaymentIntentRequest request) {
+        return PAYMENT_INTENT_RULES.validate(request, PAYMENT_INTENT_RESULT.get()).snapshot();
+    }
+
+    public static ValidationResult checkPaymentIntent(PaymentIntentRequest request, ValidationResult result) {
+        return PAYMENT_INTENT_RULES.validate(request, result);
+    }
+
+    public static ValidationResult checkRefund(RefundRequest request) {
+        return REFUND_RULES.validate(request, REFUND_RESULT.get()).snapshot();
+    }
+
+    public static ValidationResult checkRefund(RefundRequest request, ValidationResult result) {
+        return REFUND_RULES.validate(request, result);
+    }
+
     public static void validatePaymentIntent(PaymentIntentRequest request) {
-        if (request == null) {
-            throw new IllegalArgumentException("PaymentIntentRequest must not be null");
-        }
-        if (request.amount() == null || request.amount() < 50 || request.amount() > 99_999_999) {
-            throw new IllegalArgumentException("Amount must be between 50 and 99,999,999");
-        }
-        if (request.currency() == null || !SUPPORTED_CURRENCIES.contains(request.currency().toLowerCase())) {
-            throw new IllegalArgumentException("Unsupported currency");
-        }
-        if (request.payment_method() == null || request.payment_method().isBlank()) {
-            throw new IllegalArgumentException("payment_method must not be blank");
-        }
+        PAYMENT_INTENT_RULES.validate(request, PAYMENT_INTENT_RESULT.get()).throwIfInvalid();
     }
 
     public static void validateRefund(RefundRequest request) {
-        if (request == null) {
-            throw new IllegalArgumentException("RefundRequest must not be null");
+        REFUND_RULES.validate(request, REFUND_RESULT.get()).throwIfInvalid();
+    }
+
+    public static BatchValidationResult validatePaymentIntents(Collection<PaymentIntentRequest> requests) {
+        return validatePaymentIntents(requests, ForkJoinPool.commonPool());
+    }
+
+    public static BatchValidationResult validatePaymentIntents(Collection<PaymentIntentRequest> requests, ForkJoinPool pool) {
+        return PAYMENT_INTENT_RULES.validateAll(requests.toArray(new PaymentIntentRequest[0]), pool);
+    }
+
+    public static BatchValidationResult validatePaymentIntents(Stream<PaymentIntentRequest> requests) {
+        return PAYMENT_INTENT_RULES.validateAll(requests.toArray(PaymentIntentRequest[]::new), ForkJoinPool.commonPool());
+    }
+
+    public static BatchValidationResult validateRefunds(Collection<RefundRequest> requests) {
+        return validateRefunds(requests, ForkJoinPool.commonPool());
+    }
+
+    public static BatchValidationResult validateRefunds(Collection<RefundRequest> requests, ForkJoinPool pool) {
+        return REFUND_RULES.validateAll(requests.toArray(new RefundRequest[0]), pool);
+    }
+
+    public static BatchValidationResult validateRefunds(Stream<RefundRequest> requests) {
+        return REFUND_RULES.validateAll(requests.toArray(RefundRequest[]::new), ForkJoinPool.commonPool());
+    }
+
+    public static ValidationResult newPaymentIntentResult() {
+        return PAYMENT_INTENT_RULES.newResult();
+    }
+
+    public static ValidationResult newRefundResult() {
+        return REFUND_RULES.newResult();
+    }
+
+    private static boolean isSupportedCurrency(String currency) {
+        int code = currencyCode(currency);
+        return code >= 0 && (SUPPORTED_CURRENCIES[code >>> 6] & 1L << code) != 0;
+    }
+
+    private static int currencyCode(String currency) {
+        if (currency.length() != 3) {
+            return -1;
         }
-        if (request.payment_intent() == null || request.payment_intent().isBlank()) {
-            throw new IllegalArgumentException("payment_intent must not be blank");
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = (currency.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= 26) {
+                return -1;
+            }
+            code = code * 26 + letter;
         }
-        if (request.amount() != null && request.amount() < 1) {
-            throw new IllegalArgumentException("Refund amount must be positive");
+        return code;
+    }
+
+    private static long[] currencyTable(String... currencies) {
+        long[] table = new long[(26 * 26 * 26 + Long.SIZE - 1) / Long.SIZE];
+        for (String currency : currencies) {
+            int code = currencyCode(currency);
+            table[code >>> 6] |= 1L << code;
         }
+        return table;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 }
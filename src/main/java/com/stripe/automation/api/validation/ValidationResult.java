@@ -0,0 +1,88 @@
+package com.stripe.automation.api.validation;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class ValidationResult {
+    public static final ValidationResult VALID = new ValidationResult(new Violation[0]);
+
+    private Violation[] violations;
+    private int size;
+
+    public ValidationResult(int capacity) {
+        violations = new Violation[Math.max(1, capacity)];
+    }
+
+    private ValidationResult(Violation[] violations) {
+        this.violations = violations;
+        this.size = violations.length;
+    }
+
+    public boolean isValid() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Violation violation(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Violation " + index + " of " + size);
+        }
+        return violations[index];
+    }
+
+    public boolean hasViolation(String field, String code) {
+        for (int i = 0; i < size; i++) {
+            if (violations[i].field().equals(field) && violations[i].code().equals(code)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Violation> violations() {
+        return List.of(Arrays.copyOf(violations, size));
+    }
+
+    public String message() {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                message.append("; ");
+            }
+            message.append(violations[i].message());
+        }
+        return message.toString();
+    }
+
+    public void throwIfInvalid() {
+        if (size > 0) {
+            throw new IllegalArgumentException(message());
+        }
+    }
+
+    ValidationResult snapshot() {
+        return size == 0 ? VALID : new ValidationResult(Arrays.copyOf(violations, size));
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    void add(Violation violation) {
+        if (this == VALID) {
+            throw new IllegalStateException("ValidationResult.VALID is shared and cannot collect violations");
+        }
+        if (size == violations.length) {
+            violations = Arrays.copyOf(violations, size * 2);
+        }
+        violations[size++] = violation;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationResult" + Arrays.toString(Arrays.copyOf(violations, size));
+    }
+}
@@ -0,0 +1,20 @@
+package com.stripe.automation.api.validation;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+public record ValidationRule<T>(Violation violation, Predicate<? super T> check, boolean stopOnFailure) {
+
+    public ValidationRule {
+        Objects.requireNonNull(violation, "violation");
+        Objects.requireNonNull(check, "check");
+    }
+
+    public static <T> ValidationRule<T> rule(String field, String code, String message, Predicate<? super T> check) {
+        return new ValidationRule<>(new Violation(field, code, message), check, false);
+    }
+
+    public static <T> ValidationRule<T> guard(String field, String code, String message, Predicate<? super T> check) {
+        return new ValidationRule<>(new Violation(field, code, message), check, true);
+    }
+}
@@ -0,0 +1,4 @@
+package com.stripe.automation.api.validation;
+
+public record Violation(String field, String code, String message) {
+}
@@ -0,0 +1,8 @@
+package com.stripe.automation.config;
+
+import java.util.Set;
+
+@FunctionalInterface
+public interface ConfigChangeListener {
+    void configChanged(Set<String> changedKeys, ConfigSnapshot current);
+}
@@ -0,0 +1,62 @@
+package com.stripe.automation.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+public final class ConfigFileWatcher implements Closeable {
+    private final Path file;
+    private final Runnable onChange;
+    private final WatchService service;
+    private final Thread thread;
+
+    private ConfigFileWatcher(Path file, Runnable onChange) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.onChange = onChange;
+        this.service = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "config-watcher");
+        thread.setDaemon(true);
+    }
+
+    public static ConfigFileWatcher start(Path file, Runnable onChange) throws IOException {
+        ConfigFileWatcher watcher = new ConfigFileWatcher(file, onChange);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    private void run() {
+        Path fileName = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= fileName.equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+}
@@ -1,39 +1,233 @@
 package com.stripe.automation.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
 public final class ConfigManager {
-    private static final Properties PROPERTIES = new Properties();
-    private static final Pattern ENV_PATTERN = Pattern.compile("\\$\\{(.+?)}");
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigManager.class);
+    private static final Object LOCK = new Object();
+    private static final ReentrantLock NOTIFY_LOCK = new ReentrantLock();
+    private static final ConcurrentLinkedQueue<Change> PENDING = new ConcurrentLinkedQueue<>();
+    private static final CopyOnWriteArrayList<ConfigChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final String RESOURCE;
+    private static final Path SOURCE_FILE;
+
+    private static final Map<String, String> OVERRIDES = new HashMap<>();
+
+    private static volatile ConfigSnapshot snapshot;
+    private static Map<String, String> fileValues;
+    private static Map<String, String> systemValues;
+    private static ConfigFileWatcher watcher;
 
     static {
         String env = System.getProperty("env", System.getenv().getOrDefault("ENV", "test"));
-        String resource = "config/" + env + ".properties";
-        try (InputStream input = ConfigManager.class.getClassLoader().getResourceAsStream(resource)) {
-            if (input == null) {
-                throw new IllegalStateException("Config file not found: " + resource);
-            }
-            PROPERTIES.load(input);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to load config file: " + resource, e);
+        RESOURCE = "config/" + env + ".properties";
+        String explicit = System.getProperty("config.file");
+        SOURCE_FILE = explicit == null || explicit.isBlank() ? resourceFile(RESOURCE) : Path.of(explicit.trim());
+        synchronized (LOCK) {
+            fileValues = loadFile();
+            systemValues = systemProperties();
+            snapshot = ConfigSnapshot.resolve(fileValues, systemValues, System.getenv(), 1L);
+        }
+        if (snapshot.getBoolean("config.reload.enabled", false)) {
+            startWatching();
         }
     }
 
     private ConfigManager() {}
 
     public static String get(String key) {
-        String raw = System.getProperty(key, PROPERTIES.getProperty(key));
-        if (raw == null) {
+        return snapshot.get(key);
+    }
+
+    public static String get(String key, String fallback) {
+        return snapshot.get(key, fallback);
+    }
+
+    public static int getInt(String key, int fallback) {
+        return snapshot.getInt(key, fallback);
+    }
+
+    public static long getLong(String key, long fallback) {
+        return snapshot.getLong(key, fallback);
+    }
+
+    public static double getDouble(String key, double fallback) {
+        return snapshot.getDouble(key, fallback);
+    }
+
+    public static boolean getBoolean(String key, boolean fallback) {
+        return snapshot.getBoolean(key, fallback);
+    }
+
+    public static Duration getDuration(String key, ChronoUnit bareNumberUnit, Duration fallback) {
+        return snapshot.getDuration(key, bareNumberUnit, fallback);
+    }
+
+    public static ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+
+    public static void addListener(ConfigChangeListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void removeListener(ConfigChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static void reload() {
+        synchronized (LOCK) {
+            fileValues = loadFile();
+            systemValues = systemProperties();
+            rebuild();
+        }
+        notifyListeners();
+    }
+
+    public static String override(String key, String value) {
+        String previous;
+        synchronized (LOCK) {
+            previous = value == null ? OVERRIDES.remove(key) : OVERRIDES.put(key, value);
+            rebuild();
+        }
+        notifyListeners();
+        return previous;
+    }
+
+    public static String clearOverride(String key) {
+        return override(key, null);
+    }
+
+    public static void startWatching() {
+        synchronized (LOCK) {
+            if (watcher != null) {
+                return;
+            }
+            if (SOURCE_FILE == null || !Files.isRegularFile(SOURCE_FILE)) {
+                LOG.warn("Config hot reload needs {} on the file system; not watching", RESOURCE);
+                return;
+            }
+            try {
+                watcher = ConfigFileWatcher.start(SOURCE_FILE, ConfigManager::reloadQuietly);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to watch " + SOURCE_FILE, e);
+            }
+        }
+    }
+
+    public static void stopWatching() {
+        synchronized (LOCK) {
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException ignored) {
+                }
+                watcher = null;
+            }
+        }
+    }
+
+    public static Path sourceFile() {
+        return SOURCE_FILE;
+    }
+
+    private static void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            LOG.warn("Keeping previous configuration; reload of {} failed", SOURCE_FILE, e);
+        }
+    }
+
+    private static void rebuild() {
+        ConfigSnapshot previous = snapshot;
+        Map<String, String> overridden = new HashMap<>(systemValues);
+        overridden.putAll(OVERRIDES);
+        ConfigSnapshot next = ConfigSnapshot.resolve(fileValues, overridden, System.getenv(), previous.version() + 1);
+        Set<String> changed = next.changedKeys(previous);
+        if (changed.isEmpty()) {
+            return;
+        }
+        snapshot = next;
+        PENDING.add(new Change(changed, next));
+    }
+
+    private static void notifyListeners() {
+        while (!PENDING.isEmpty() && NOTIFY_LOCK.tryLock()) {
+            try {
+                Change change;
+                while ((change = PENDING.poll()) != null) {
+                    for (ConfigChangeListener listener : LISTENERS) {
+                        try {
+                            listener.configChanged(change.keys(), change.snapshot());
+                        } catch (RuntimeException e) {
+                            LOG.warn("Config change listener {} failed", listener, e);
+                        }
+                    }
+                }
+            } finally {
+                NOTIFY_LOCK.unlock();
+            }
+        }
+    }
+
+    private static Map<String, String> systemProperties() {
+        Map<String, String> values = new HashMap<>();
+        Properties properties = System.getProperties();
+        for (String name : properties.stringPropertyNames()) {
+            values.put(name, properties.getProperty(name));
+        }
+        return values;
+    }
+
+    private static Map<String, String> loadFile() {
+        Properties properties = new Properties();
+        try (InputStream input = SOURCE_FILE != null && Files.isRegularFile(SOURCE_FILE)
+                ? Files.newInputStream(SOURCE_FILE)
+                : ConfigManager.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (input == null) {
+                throw new IllegalStateException("Config file not found: " + RESOURCE);
+            }
+            properties.load(input);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load config file: " + RESOURCE, e);
+        }
+        Map<String, String> values = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            values.put(name, properties.getProperty(name));
+        }
+        return values;
+    }
+
+    private static Path resourceFile(String resource) {
+        URL url = ConfigManager.class.getClassLoader().getResource(resource);
+        if (url == null || !"file".equals(url.getProtocol())) {
             return null;
         }
-        Matcher matcher = ENV_PATTERN.matcher(raw);
-        if (matcher.matches()) {
-            return System.getenv(matcher.group(1));
+        try {
+            return Path.of(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
         }
-        return raw;
+    }
+
+    private record Change(Set<String> keys, ConfigSnapshot snapshot) {
     }
 }
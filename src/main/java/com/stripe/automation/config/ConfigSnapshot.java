@@ -0,0 +1,215 @@
+package com.stripe.automation.config;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public final class ConfigSnapshot {
+    private static final Object NONE = new Object();
+
+    private final Map<String, String> values;
+    private final long version;
+    private final Map<String, Object> ints = new ConcurrentHashMap<>();
+    private final Map<String, Object> longs = new ConcurrentHashMap<>();
+    private final Map<String, Object> doubles = new ConcurrentHashMap<>();
+    private final Map<String, Object> booleans = new ConcurrentHashMap<>();
+    private final Map<ChronoUnit, Map<String, Object>> durations = new ConcurrentHashMap<>();
+
+    private ConfigSnapshot(Map<String, String> values, long version) {
+        this.values = values;
+        this.version = version;
+    }
+
+    public static ConfigSnapshot resolve(Map<String, String> fileValues, Map<String, String> systemProperties,
+                                         Map<String, String> environment, long version) {
+        Map<String, String> raw = new HashMap<>(fileValues);
+        raw.putAll(systemProperties);
+        Map<String, String> resolved = new HashMap<>();
+        Resolver resolver = new Resolver(raw, environment);
+        for (String key : raw.keySet()) {
+            String value = resolver.resolveKey(key, new HashSet<>());
+            if (value != null) {
+                resolved.put(key, value);
+            }
+        }
+        return new ConfigSnapshot(Map.copyOf(resolved), version);
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public String get(String key, String fallback) {
+        String value = values.get(key);
+        return value == null || value.isEmpty() ? fallback : value;
+    }
+
+    public int getInt(String key, int fallback) {
+        Integer value = typed(ints, "int", key, Integer::parseInt);
+        return value == null ? fallback : value;
+    }
+
+    public long getLong(String key, long fallback) {
+        Long value = typed(longs, "long", key, Long::parseLong);
+        return value == null ? fallback : value;
+    }
+
+    public double getDouble(String key, double fallback) {
+        Double value = typed(doubles, "double", key, Double::parseDouble);
+        return value == null ? fallback : value;
+    }
+
+    public boolean getBoolean(String key, boolean fallback) {
+        Boolean value = typed(booleans, "boolean", key, ConfigSnapshot::parseBoolean);
+        return value == null ? fallback : value;
+    }
+
+    public Duration getDuration(String key, ChronoUnit bareNumberUnit, Duration fallback) {
+        Map<String, Object> cache = durations.computeIfAbsent(bareNumberUnit, unit -> new ConcurrentHashMap<>());
+        Duration value = typed(cache, "duration", key, text -> parseDuration(text, bareNumberUnit));
+        return value == null ? fallback : value;
+    }
+
+    public Set<String> keys() {
+        return values.keySet();
+    }
+
+    public long version() {
+        return version;
+    }
+
+    Set<String> changedKeys(ConfigSnapshot previous) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (!entry.getValue().equals(previous.values.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : previous.values.keySet()) {
+            if (!values.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T typed(Map<String, Object> cache, String type, String key, Function<String, T> parser) {
+        Object cached = cache.get(key);
+        if (cached == null) {
+            String text = values.get(key);
+            if (text == null || text.isEmpty()) {
+                cached = NONE;
+            } else {
+                try {
+                    cached = Objects.requireNonNull(parser.apply(text));
+                } catch (RuntimeException e) {
+                    throw new IllegalStateException("Invalid " + type + " value for " + key + ": " + text, e);
+                }
+            }
+            cache.putIfAbsent(key, cached);
+        }
+        return cached == NONE ? null : (T) cached;
+    }
+
+    private static Boolean parseBoolean(String text) {
+        return switch (text.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "on", "1" -> Boolean.TRUE;
+            case "false", "no", "off", "0" -> Boolean.FALSE;
+            default -> throw new IllegalArgumentException("Not a boolean: " + text);
+        };
+    }
+
+    static Duration parseDuration(String text, ChronoUnit bareNumberUnit) {
+        String value = text.toLowerCase(Locale.ROOT);
+        if (value.startsWith("p") || value.startsWith("-p")) {
+            try {
+                return Duration.parse(text);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        int unitStart = 0;
+        while (unitStart < value.length() && (Character.isDigit(value.charAt(unitStart)) || value.charAt(unitStart) == '-')) {
+            unitStart++;
+        }
+        long amount = Long.parseLong(value.substring(0, unitStart));
+        return switch (value.substring(unitStart).trim()) {
+            case "" -> Duration.of(amount, bareNumberUnit);
+            case "ms" -> Duration.ofMillis(amount);
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            case "d" -> Duration.ofDays(amount);
+            default -> throw new IllegalArgumentException("Unknown duration unit in " + text);
+        };
+    }
+
+    private static final class Resolver {
+        private final Map<String, String> raw;
+        private final Map<String, String> environment;
+        private final Map<String, Object> done = new HashMap<>();
+
+        private Resolver(Map<String, String> raw, Map<String, String> environment) {
+            this.raw = raw;
+            this.environment = environment;
+        }
+
+        private String resolveKey(String key, Set<String> resolving) {
+            Object known = done.get(key);
+            if (known != null) {
+                return known == NONE ? null : (String) known;
+            }
+            if (!resolving.add(key)) {
+                throw new IllegalStateException("Circular config placeholder involving " + resolving);
+            }
+            String value = interpolate(raw.get(key), resolving);
+            if (value != null) {
+                value = value.trim();
+            }
+            resolving.remove(key);
+            done.put(key, value == null ? NONE : value);
+            return value;
+        }
+
+        private String interpolate(String value, Set<String> resolving) {
+            int open = value.indexOf("${");
+            if (open < 0) {
+                return value;
+            }
+            StringBuilder out = new StringBuilder(value.length());
+            int from = 0;
+            while (open >= 0) {
+                int close = value.indexOf('}', open + 2);
+                if (close < 0) {
+                    break;
+                }
+                String expression = value.substring(open + 2, close);
+                int colon = expression.indexOf(':');
+                String name = colon < 0 ? expression : expression.substring(0, colon);
+                String replacement = environment.get(name);
+                if (replacement == null && raw.containsKey(name)) {
+                    replacement = resolveKey(name, resolving);
+                }
+                if (replacement == null) {
+                    if (colon < 0) {
+                        return null;
+                    }
+                    replacement = expression.substring(colon + 1);
+                }
+                out.append(value, from, open).append(replacement);
+                from = close + 1;
+                open = value.indexOf("${", from);
+            }
+            return out.append(value, from, value.length()).toString();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.stripe.automation.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.stripe.automation.utils.CorrelationId;
+import com.stripe.automation.utils.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ApiCallMetrics {
+    public static final int NO_RESPONSE = -1;
+    private static final int RECENT_FAILURES = 10;
+    private static final ApiCallMetrics GLOBAL = new ApiCallMetrics();
+    private static final ThreadLocal<ApiCallMetrics> TEST_SCOPE = new ThreadLocal<>();
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    static {
+        CorrelationId.propagate(TEST_SCOPE);
+    }
+
+    public record EndpointSnapshot(long calls, long errors, Map<Integer, Long> statusCounts, long bytesSent, long bytesReceived,
+                                   LatencyHistogram.Snapshot latency, String slowestCorrelationId,
+                                   List<String> recentFailureCorrelationIds) {
+    }
+
+    public static ApiCallMetrics global() {
+        return GLOBAL;
+    }
+
+    public static void startTestScope() {
+        TEST_SCOPE.set(new ApiCallMetrics());
+    }
+
+    public static ApiCallMetrics endTestScope() {
+        ApiCallMetrics scope = TEST_SCOPE.get();
+        TEST_SCOPE.remove();
+        return scope;
+    }
+
+    public static void record(String endpoint, int status, long nanos, long bytesSent, long bytesReceived, String correlationId) {
+        GLOBAL.add(endpoint, status, nanos, bytesSent, bytesReceived, correlationId);
+        ApiCallMetrics scope = TEST_SCOPE.get();
+        if (scope != null) {
+            scope.add(endpoint, status, nanos, bytesSent, bytesReceived, correlationId);
+        }
+    }
+
+    public void add(String endpoint, int status, long nanos, long bytesSent, long bytesReceived, String correlationId) {
+        endpoints.computeIfAbsent(endpoint, key -> new Endpoint()).add(status, nanos, bytesSent, bytesReceived, correlationId);
+    }
+
+    public boolean isEmpty() {
+        return endpoints.isEmpty();
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    public Map<String, EndpointSnapshot> snapshot() {
+        Map<String, EndpointSnapshot> snapshot = new TreeMap<>();
+        endpoints.forEach((name, endpoint) -> snapshot.put(name, endpoint.snapshot()));
+        return snapshot;
+    }
+
+    public String toJson(Long suiteMillis) {
+        return toJson(suiteMillis, Map.of());
+    }
+
+    public String toJson(Long suiteMillis, Map<String, ?> sections) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("generatedAt", Instant.now().toString());
+        long apiNanos = 0;
+        Map<String, Object> rendered = new LinkedHashMap<>();
+        for (Map.Entry<String, EndpointSnapshot> entry : snapshot().entrySet()) {
+            EndpointSnapshot endpoint = entry.getValue();
+            apiNanos += endpoint.latency().sumNanos();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("calls", endpoint.calls());
+            values.put("errors", endpoint.errors());
+            values.put("status", endpoint.statusCounts());
+            values.put("bytesSent", endpoint.bytesSent());
+            values.put("bytesReceived", endpoint.bytesReceived());
+            values.put("latencyMillis", latencyMillis(endpoint.latency()));
+            values.put("slowestCorrelationId", endpoint.slowestCorrelationId());
+            values.put("recentFailureCorrelationIds", endpoint.recentFailureCorrelationIds());
+            rendered.put(entry.getKey(), values);
+        }
+        root.put("apiMillis", millis(apiNanos));
+        if (suiteMillis != null) {
+            root.put("suiteMillis", suiteMillis);
+            root.put("apiShareOfSuite", suiteMillis == 0 ? 0.0 : Math.round(apiNanos / 1e6 / suiteMillis * 1000) / 1000.0);
+        }
+        root.put("endpoints", rendered);
+        root.putAll(sections);
+        try {
+            return Json.MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to render API metrics", e);
+        }
+    }
+
+    public void writeSummary(Path output, Long suiteMillis) throws IOException {
+        writeSummary(output, suiteMillis, Map.of());
+    }
+
+    public void writeSummary(Path output, Long suiteMillis, Map<String, ?> sections) throws IOException {
+        if (output.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+        }
+        Files.writeString(output, toJson(suiteMillis, sections));
+    }
+
+    public static Map<String, Object> latencyMillis(LatencyHistogram.Snapshot latency) {
+        Map<String, Object> rendered = new LinkedHashMap<>();
+        rendered.put("mean", millis(latency.meanNanos()));
+        rendered.put("p50", millis(latency.p50Nanos()));
+        rendered.put("p99", millis(latency.p99Nanos()));
+        rendered.put("p999", millis(latency.p999Nanos()));
+        rendered.put("max", millis(latency.maxNanos()));
+        rendered.put("total", millis(latency.sumNanos()));
+        return rendered;
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private record Slowest(long nanos, String correlationId) {
+    }
+
+    private static final class Endpoint {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final AtomicReference<Slowest> slowest = new AtomicReference<>(new Slowest(-1L, null));
+        private final AtomicReferenceArray<String> failures = new AtomicReferenceArray<>(RECENT_FAILURES);
+        private final AtomicLong failureCursor = new AtomicLong();
+
+        private void add(int status, long nanos, long sent, long received, String correlationId) {
+            latency.recordNanos(nanos);
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+            bytesSent.add(sent);
+            bytesReceived.add(received);
+            if (status < 200 || status >= 300) {
+                errors.increment();
+                failures.set((int) (failureCursor.getAndIncrement() % RECENT_FAILURES), correlationId);
+            }
+            Slowest current = slowest.get();
+            while (nanos > current.nanos() && !slowest.compareAndSet(current, new Slowest(nanos, correlationId))) {
+                current = slowest.get();
+            }
+        }
+
+        private EndpointSnapshot snapshot() {
+            Map<Integer, Long> statusCounts = new TreeMap<>();
+            statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+            long written = failureCursor.get();
+            List<String> recent = new ArrayList<>();
+            for (long i = Math.max(0, written - RECENT_FAILURES); i < written; i++) {
+                String correlationId = failures.get((int) (i % RECENT_FAILURES));
+                if (correlationId != null) {
+                    recent.add(correlationId);
+                }
+            }
+            LatencyHistogram.Snapshot latencySnapshot = latency.snapshot();
+            return new EndpointSnapshot(latencySnapshot.count(), errors.sum(), statusCounts, bytesSent.sum(), bytesReceived.sum(),
+                    latencySnapshot, slowest.get().correlationId(), recent);
+        }
+    }
+}
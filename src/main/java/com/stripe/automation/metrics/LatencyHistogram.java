@@ -0,0 +1,107 @@
+package com.stripe.automation.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = other.counts.get(i);
+            if (bucketCount != 0) {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0L);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        long maxNanos = max.get();
+        return new Snapshot(total, sum.sum(), maxNanos,
+                percentile(copy, total, 0.50, maxNanos),
+                percentile(copy, total, 0.99, maxNanos),
+                percentile(copy, total, 0.999, maxNanos));
+    }
+
+    private static long percentile(long[] buckets, long total, double quantile, long maxNanos) {
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lower = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public record Snapshot(long count, long sumNanos, long maxNanos, long p50Nanos, long p99Nanos, long p999Nanos) {
+
+        public double meanNanos() {
+            return count == 0 ? 0.0 : (double) sumNanos / count;
+        }
+    }
+}
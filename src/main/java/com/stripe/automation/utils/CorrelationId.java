@@ -1,17 +1,269 @@
 package com.stripe.automation.utils;
 
-import java.util.UUID;
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public final class CorrelationId {
-    private static final ThreadLocal<String> ID = ThreadLocal.withInitial(() -> UUID.randomUUID().toString());
+    public static final String MDC_KEY = "correlationId";
+    public static final int LENGTH = 26;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final long BASE_MILLIS = System.currentTimeMillis();
+    private static final long BASE_NANOS = System.nanoTime();
+    private static final long LOW_40_BITS = (1L << 40) - 1;
+
+    private static final ThreadLocal<String> ID = new ThreadLocal<>();
+    private static final ThreadLocal<Generator> GENERATOR = ThreadLocal.withInitial(Generator::new);
+    private static final CopyOnWriteArrayList<ThreadLocal<Object>> PROPAGATED = new CopyOnWriteArrayList<>();
 
     private CorrelationId() {}
 
     public static String get() {
-        return ID.get();
+        String id = ID.get();
+        if (id == null) {
+            id = next();
+            bind(id);
+        }
+        return id;
+    }
+
+    public static String refresh() {
+        String id = next();
+        bind(id);
+        return id;
+    }
+
+    public static void set(String id) {
+        if (id == null) {
+            clear();
+        } else {
+            bind(id);
+        }
+    }
+
+    public static void clear() {
+        ID.remove();
+        MDC.remove(MDC_KEY);
+    }
+
+    public static Scope scope(String id) {
+        String previous = ID.get();
+        set(id);
+        return new Scope(previous, null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void propagate(ThreadLocal<?> local) {
+        PROPAGATED.addIfAbsent((ThreadLocal<Object>) local);
+    }
+
+    public static String next() {
+        return GENERATOR.get().next(monotonicMillis());
+    }
+
+    public static long timestampMillis(String id) {
+        if (id == null || id.length() != LENGTH) {
+            throw new IllegalArgumentException("Not a correlation id: " + id);
+        }
+        long millis = 0;
+        for (int i = 0; i < 10; i++) {
+            int value = decode(id.charAt(i));
+            if (value < 0) {
+                throw new IllegalArgumentException("Not a correlation id: " + id);
+            }
+            millis = millis << 5 | value;
+        }
+        return millis;
+    }
+
+    public static Runnable wrap(Runnable task) {
+        Carried carried = capture();
+        return () -> {
+            try (Scope ignored = carried.attach()) {
+                task.run();
+            }
+        };
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Carried carried = capture();
+        return () -> {
+            try (Scope ignored = carried.attach()) {
+                return task.call();
+            }
+        };
+    }
+
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        Carried carried = capture();
+        return () -> {
+            try (Scope ignored = carried.attach()) {
+                return task.get();
+            }
+        };
+    }
+
+    public static Executor executor(Executor delegate) {
+        return delegate instanceof PropagatingExecutorService ? delegate : task -> delegate.execute(wrap(task));
+    }
+
+    public static ExecutorService executorService(ExecutorService delegate) {
+        return delegate instanceof PropagatingExecutorService ? delegate : new PropagatingExecutorService(delegate);
+    }
+
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+        return CompletableFuture.supplyAsync(wrap(task), executor);
     }
 
-    public static void refresh() {
-        ID.set(UUID.randomUUID().toString());
+    public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+        return CompletableFuture.runAsync(wrap(task), executor);
+    }
+
+    private static Carried capture() {
+        List<ThreadLocal<Object>> locals = List.copyOf(PROPAGATED);
+        Object[] values = new Object[locals.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = locals.get(i).get();
+        }
+        return new Carried(get(), locals, values);
+    }
+
+    private static void bind(String id) {
+        ID.set(id);
+        MDC.put(MDC_KEY, id);
+    }
+
+    private static void restore(ThreadLocal<Object> local, Object value) {
+        if (value == null) {
+            local.remove();
+        } else {
+            local.set(value);
+        }
+    }
+
+    private static long monotonicMillis() {
+        return BASE_MILLIS + (System.nanoTime() - BASE_NANOS) / 1_000_000L;
+    }
+
+    private static int decode(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == Character.toUpperCase(c)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final String previous;
+        private final List<ThreadLocal<Object>> locals;
+        private final Object[] previousValues;
+
+        private Scope(String previous, List<ThreadLocal<Object>> locals, Object[] previousValues) {
+            this.previous = previous;
+            this.locals = locals;
+            this.previousValues = previousValues;
+        }
+
+        @Override
+        public void close() {
+            set(previous);
+            if (locals != null) {
+                for (int i = 0; i < previousValues.length; i++) {
+                    restore(locals.get(i), previousValues[i]);
+                }
+            }
+        }
+    }
+
+    private record Carried(String id, List<ThreadLocal<Object>> locals, Object[] values) {
+        Scope attach() {
+            Object[] previousValues = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                ThreadLocal<Object> local = locals.get(i);
+                previousValues[i] = local.get();
+                restore(local, values[i]);
+            }
+            String previous = ID.get();
+            set(id);
+            return new Scope(previous, locals, previousValues);
+        }
+    }
+
+    private static final class Generator {
+        private final char[] buffer = new char[LENGTH];
+        private long lastMillis = -1;
+        private long high;
+        private long low;
+
+        String next(long millis) {
+            if (millis > lastMillis) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                lastMillis = millis;
+                high = random.nextInt() & 0xFFFF;
+                low = random.nextLong();
+            } else if (++low == 0 && (high = high + 1 & 0xFFFF) == 0) {
+                lastMillis++;
+            }
+            encode(lastMillis, 0, 10);
+            encode(high << 24 | low >>> 40, 10, 8);
+            encode(low & LOW_40_BITS, 18, 8);
+            return new String(buffer);
+        }
+
+        private void encode(long value, int offset, int length) {
+            for (int i = offset + length - 1; i >= offset; i--) {
+                buffer[i] = ALPHABET[(int) (value & 31)];
+                value >>>= 5;
+            }
+        }
+    }
+
+    private static final class PropagatingExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+
+        PropagatingExecutorService(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
     }
 }
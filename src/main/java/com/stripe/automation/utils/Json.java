@@ -0,0 +1,41 @@
+package com.stripe.automation.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public final class Json {
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Json() {}
+
+    public static JsonNode readTree(byte[] body) {
+        if (body == null || body.length == 0) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return MAPPER.readTree(body);
+        } catch (IOException e) {
+            String preview = new String(body, 0, Math.min(body.length, 200), StandardCharsets.UTF_8);
+            throw new IllegalArgumentException("Body is not valid JSON: " + preview, e);
+        }
+    }
+
+    public static String text(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isValueNode() && !value.isNull() ? value.asText() : null;
+    }
+
+    public static Long longValue(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isNumber() ? value.asLong() : null;
+    }
+
+    public static Boolean booleanValue(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isBoolean() ? value.asBoolean() : null;
+    }
+}
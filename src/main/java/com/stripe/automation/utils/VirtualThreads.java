@@ -0,0 +1,47 @@
+package com.stripe.automation.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public final class VirtualThreads {
+    private static final MethodHandle NEW_PER_TASK_EXECUTOR = lookupPerTaskExecutor();
+
+    private VirtualThreads() {}
+
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (NEW_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(namePrefix + "-");
+            } catch (Throwable e) {
+                throw new IllegalStateException("Unable to create virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool(DaemonThreads.factory(namePrefix));
+    }
+
+    private static MethodHandle lookupPerTaskExecutor() {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle newBuilder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtual));
+            MethodHandle name = lookup.findVirtual(ofVirtual, "name", MethodType.methodType(ofVirtual, String.class, long.class));
+            MethodHandle factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class))
+                    .asType(MethodType.methodType(ThreadFactory.class, ofVirtual));
+            MethodHandle executor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            MethodHandle named = MethodHandles.filterReturnValue(MethodHandles.filterReturnValue(name, factory), executor);
+            return MethodHandles.insertArguments(MethodHandles.collectArguments(named, 0, newBuilder), 1, 0L);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.stripe.automation.webhook;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class DirectBufferPool {
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final int bufferBytes;
+    private final int maxPooled;
+
+    DirectBufferPool(int bufferBytes, int maxPooled) {
+        this.bufferBytes = bufferBytes;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferBytes);
+        }
+        pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferBytes) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        free.offer(buffer);
+    }
+
+    int bufferBytes() {
+        return bufferBytes;
+    }
+
+    int pooled() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,16 @@
+package com.stripe.automation.webhook;
+
+import java.util.Locale;
+
+public enum JournalSyncPolicy {
+    PER_WRITE,
+    BATCHED,
+    OS;
+
+    public static JournalSyncPolicy from(String value) {
+        if (value == null || value.isBlank()) {
+            return BATCHED;
+        }
+        return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,459 @@
+package com.stripe.automation.webhook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.UnaryOperator;
+
+final class NioWebhookServer {
+    static final int BUFFER_BYTES = 16 * 1024;
+    static final int MAX_BODY_BYTES = 1024 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final long SELECT_TIMEOUT_MILLIS = 1_000L;
+    private static final long ACCEPT_BACKOFF_NANOS = 100_000_000L;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioWebhookServer.class);
+
+    @FunctionalInterface
+    interface Router {
+        WebhookResponse route(String method, String path, String query, UnaryOperator<String> headers, byte[] body);
+    }
+
+    private final InetSocketAddress address;
+    private final ExecutorService executor;
+    private final Router router;
+    private final WebhookMetrics metrics;
+    private final long idleTimeoutNanos;
+    private final DirectBufferPool buffers = new DirectBufferPool(BUFFER_BYTES, MAX_POOLED_BUFFERS);
+    private final ConcurrentLinkedQueue<Connection> completed = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connections = new HashSet<>();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private SelectionKey acceptKey;
+    private long acceptPausedUntilNanos;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    NioWebhookServer(InetSocketAddress address, ExecutorService executor, Router router, WebhookMetrics metrics, Duration idleTimeout) {
+        this.address = address;
+        this.executor = executor;
+        this.router = router;
+        this.metrics = metrics;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::runLoop, "webhook-nio-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(SELECT_TIMEOUT_MILLIS * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    int port() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    int openConnections() {
+        return metrics.openConnections();
+    }
+
+    private void runLoop() {
+        long lastSweep = System.nanoTime();
+        try {
+            while (running) {
+                selector.select(acceptPausedUntilNanos == 0 ? SELECT_TIMEOUT_MILLIS : ACCEPT_BACKOFF_NANOS / 1_000_000L);
+                resumeAcceptIfDue();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(connection);
+                        } else if (key.isWritable()) {
+                            write(connection);
+                        }
+                    }
+                }
+                Connection ready;
+                while ((ready = completed.poll()) != null) {
+                    write(ready);
+                }
+                long now = System.nanoTime();
+                if (now - lastSweep >= SELECT_TIMEOUT_MILLIS * 1_000_000L) {
+                    closeIdle(now);
+                    lastSweep = now;
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LOG.warn("Webhook selector loop terminated", e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void accept() throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!serverChannel.isOpen()) {
+                    throw e;
+                }
+                metrics.acceptFailed();
+                LOG.warn("Webhook accept failed, pausing accepts for {} ms", ACCEPT_BACKOFF_NANOS / 1_000_000L, e);
+                acceptKey.interestOps(0);
+                acceptPausedUntilNanos = System.nanoTime() + ACCEPT_BACKOFF_NANOS;
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+                metrics.connectionOpened();
+            } catch (IOException e) {
+                metrics.acceptFailed();
+                LOG.debug("Dropping webhook connection that failed during setup: {}", e.toString());
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void resumeAcceptIfDue() {
+        if (acceptPausedUntilNanos != 0 && System.nanoTime() - acceptPausedUntilNanos >= 0) {
+            acceptPausedUntilNanos = 0;
+            acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void read(Connection connection) {
+        if (connection.in == null) {
+            connection.in = buffers.acquire();
+        }
+        try {
+            int read = connection.channel.read(connection.in);
+            if (read < 0) {
+                close(connection);
+                return;
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        connection.lastActiveNanos = System.nanoTime();
+        parse(connection);
+    }
+
+    private void parse(Connection connection) {
+        ByteBuffer in = connection.in;
+        in.flip();
+        if (connection.request == null) {
+            int end = indexOf(in, HEADER_END);
+            if (end < 0) {
+                in.compact();
+                if (!in.hasRemaining()) {
+                    reject(connection, 431);
+                } else {
+                    releaseIfEmpty(connection);
+                }
+                return;
+            }
+            byte[] head = new byte[end - in.position()];
+            in.get(head);
+            in.position(end + HEADER_END.length);
+            Request request = Request.parse(new String(head, StandardCharsets.ISO_8859_1));
+            if (request == null) {
+                in.compact();
+                reject(connection, 400);
+                return;
+            }
+            if (request.chunked()) {
+                in.compact();
+                reject(connection, 501);
+                return;
+            }
+            if (request.contentLength() < 0 || request.contentLength() > MAX_BODY_BYTES) {
+                in.compact();
+                reject(connection, 413);
+                return;
+            }
+            connection.request = request;
+            connection.body = new byte[request.contentLength()];
+            connection.bodyFilled = 0;
+        }
+        int wanted = Math.min(in.remaining(), connection.body.length - connection.bodyFilled);
+        in.get(connection.body, connection.bodyFilled, wanted);
+        connection.bodyFilled += wanted;
+        in.compact();
+        if (connection.bodyFilled < connection.body.length) {
+            releaseIfEmpty(connection);
+            return;
+        }
+        dispatch(connection);
+    }
+
+    private void dispatch(Connection connection) {
+        releaseIfEmpty(connection);
+        connection.key.interestOps(0);
+        connection.busy = true;
+        Request request = connection.request;
+        byte[] body = connection.body;
+        connection.body = null;
+        if (executor == null) {
+            respond(connection, route(request, body), !request.keepAlive());
+            write(connection);
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                respond(connection, route(request, body), !request.keepAlive());
+                completed.offer(connection);
+                selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            respond(connection, WebhookResponse.status(503), true);
+            write(connection);
+        }
+    }
+
+    private WebhookResponse route(Request request, byte[] body) {
+        try {
+            return router.route(request.method(), request.path(), request.query(), request::header, body);
+        } catch (RuntimeException e) {
+            LOG.warn("Webhook request routing failed", e);
+            return WebhookResponse.status(500);
+        }
+    }
+
+    private void reject(Connection connection, int status) {
+        connection.key.interestOps(0);
+        connection.busy = true;
+        respond(connection, WebhookResponse.status(status), true);
+        write(connection);
+    }
+
+    private void respond(Connection connection, WebhookResponse response, boolean close) {
+        byte[] head = ("HTTP/1.1 " + response.status() + ' ' + reason(response.status()) + "\r\n"
+                + "Content-Type: " + response.contentType() + "\r\n"
+                + "Content-Length: " + response.body().length + "\r\n"
+                + (close ? "Connection: close\r\n" : "Connection: keep-alive\r\n")
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        int total = head.length + response.body().length;
+        ByteBuffer out = total <= buffers.bufferBytes() ? buffers.acquire() : ByteBuffer.allocate(total);
+        out.put(head).put(response.body()).flip();
+        connection.out = out;
+        connection.closeAfterWrite = close;
+    }
+
+    private void write(Connection connection) {
+        if (!connection.channel.isOpen()) {
+            return;
+        }
+        try {
+            connection.channel.write(connection.out);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (connection.out.hasRemaining()) {
+            connection.key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+        buffers.release(connection.out);
+        connection.out = null;
+        if (connection.closeAfterWrite) {
+            close(connection);
+            return;
+        }
+        connection.request = null;
+        connection.busy = false;
+        connection.lastActiveNanos = System.nanoTime();
+        connection.key.interestOps(SelectionKey.OP_READ);
+        if (connection.in != null && connection.in.position() > 0) {
+            parse(connection);
+        }
+    }
+
+    private void releaseIfEmpty(Connection connection) {
+        if (connection.in.position() == 0) {
+            buffers.release(connection.in);
+            connection.in = null;
+        }
+    }
+
+    private void closeIdle(long now) {
+        List<Connection> idle = new ArrayList<>();
+        for (Connection connection : connections) {
+            if (!connection.busy && now - connection.lastActiveNanos > idleTimeoutNanos) {
+                idle.add(connection);
+            }
+        }
+        idle.forEach(this::close);
+    }
+
+    private void close(Connection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+        buffers.release(connection.in);
+        buffers.release(connection.out);
+        connection.in = null;
+        connection.out = null;
+        metrics.connectionClosed();
+    }
+
+    private void shutdown() {
+        new ArrayList<>(connections).forEach(this::close);
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+        int last = buffer.limit() - pattern.length;
+        outer:
+        for (int i = buffer.position(); i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer.get(i + j) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 200 -> "OK";
+            case 208 -> "Already Reported";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            case 413 -> "Payload Too Large";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 503 -> "Service Unavailable";
+            default -> "Status";
+        };
+    }
+
+    private static final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in;
+        private ByteBuffer out;
+        private Request request;
+        private byte[] body;
+        private int bodyFilled;
+        private boolean closeAfterWrite;
+        private volatile boolean busy;
+        private long lastActiveNanos = System.nanoTime();
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private record Request(String method, String path, String query, Map<String, String> headers, int contentLength,
+                           boolean keepAlive, boolean chunked) {
+        static Request parse(String head) {
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                return null;
+            }
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    return null;
+                }
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+            }
+            int contentLength;
+            try {
+                String length = headers.get("content-length");
+                contentLength = length == null ? 0 : Integer.parseInt(length);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            String connection = headers.getOrDefault("connection", "").toLowerCase(Locale.ROOT);
+            boolean keepAlive = requestLine[2].equals("HTTP/1.1") ? !connection.contains("close") : connection.contains("keep-alive");
+            boolean chunked = headers.getOrDefault("transfer-encoding", "").toLowerCase(Locale.ROOT).contains("chunked");
+            String target = requestLine[1];
+            int question = target.indexOf('?');
+            return new Request(requestLine[0], question < 0 ? target : target.substring(0, question),
+                    question < 0 ? null : target.substring(question + 1), headers, contentLength, keepAlive, chunked);
+        }
+
+        String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+    }
+}
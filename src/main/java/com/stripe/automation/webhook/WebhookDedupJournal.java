@@ -0,0 +1,267 @@
+package com.stripe.automation.webhook;
+
+import com.stripe.automation.utils.DaemonThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class WebhookDedupJournal implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookDedupJournal.class);
+    public static final int RECORD_BYTES = 64;
+    public static final int MAX_ID_BYTES = RECORD_BYTES - Long.BYTES - 1;
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofMillis(50);
+    private static final long RETRACTED = Long.MIN_VALUE;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC = 0x57484A31;
+    private static final int VERSION = 1;
+    private static final long INITIAL_RECORDS = 65_536L;
+
+    private final Path path;
+    private final JournalSyncPolicy syncPolicy;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder compactionFailures = new LongAdder();
+    private final byte[] scratch = new byte[MAX_ID_BYTES];
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private long capacityRecords;
+    private long recordCount;
+    private boolean dirty;
+
+    public WebhookDedupJournal(Path path, JournalSyncPolicy syncPolicy) throws IOException {
+        this(path, syncPolicy, DEFAULT_SYNC_INTERVAL);
+    }
+
+    public WebhookDedupJournal(Path path, JournalSyncPolicy syncPolicy, Duration syncInterval) throws IOException {
+        this.path = path;
+        this.syncPolicy = syncPolicy;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        open();
+        scheduler = Executors.newSingleThreadScheduledExecutor(DaemonThreads.factory("dedup-journal"));
+        if (syncPolicy == JournalSyncPolicy.BATCHED) {
+            long intervalMillis = Math.max(1L, syncInterval.toMillis());
+            scheduler.scheduleWithFixedDelay(this::syncIfDirty, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void scheduleCompaction(Duration interval, LongSupplier minSeenAtMillis) {
+        long intervalMillis = Math.max(1L, interval.toMillis());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                compact(minSeenAtMillis.getAsLong());
+            } catch (IOException | RuntimeException e) {
+                compactionFailures.increment();
+                LOG.warn("Compaction of webhook dedup journal {} failed; keeping the current journal", path, e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized long recover(RecoveryConsumer consumer, long minSeenAtMillis) {
+        long live = 0;
+        MappedByteBuffer view = buffer;
+        for (long i = 0; i < recordCount; i++) {
+            int offset = offset(i);
+            long seenAt = view.getLong(offset);
+            if (seenAt < minSeenAtMillis) {
+                continue;
+            }
+            int length = view.get(offset + Long.BYTES) & 0xff;
+            view.get(offset + Long.BYTES + 1, scratch, 0, length);
+            consumer.accept(new String(scratch, 0, length, StandardCharsets.UTF_8), seenAt);
+            live++;
+        }
+        return live;
+    }
+
+    public synchronized boolean append(String eventId, long seenAtMillis) throws IOException {
+        byte[] id = eventId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES || seenAtMillis <= 0) {
+            skipped.increment();
+            return false;
+        }
+        if (recordCount == capacityRecords) {
+            remap(capacityRecords * 2);
+        }
+        int offset = offset(recordCount);
+        MappedByteBuffer view = buffer;
+        view.put(offset + Long.BYTES, (byte) id.length);
+        view.put(offset + Long.BYTES + 1, id);
+        view.putLong(offset, seenAtMillis);
+        recordCount++;
+        appended.increment();
+        if (syncPolicy == JournalSyncPolicy.PER_WRITE) {
+            view.force(offset, RECORD_BYTES);
+        } else {
+            dirty = true;
+        }
+        return true;
+    }
+
+    public synchronized boolean retract(String eventId) {
+        byte[] id = eventId.getBytes(StandardCharsets.UTF_8);
+        MappedByteBuffer view = buffer;
+        for (long i = recordCount - 1; i >= 0; i--) {
+            int offset = offset(i);
+            int length = view.get(offset + Long.BYTES) & 0xff;
+            if (length == id.length && view.getLong(offset) != RETRACTED
+                    && view.slice(offset + Long.BYTES + 1, length).equals(ByteBuffer.wrap(id))) {
+                view.putLong(offset, RETRACTED);
+                if (syncPolicy == JournalSyncPolicy.PER_WRITE) {
+                    view.force(offset, RECORD_BYTES);
+                } else {
+                    dirty = true;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized long compact(long minSeenAtMillis) throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        long before = recordCount;
+        long live = 0;
+        for (long i = 0; i < recordCount; i++) {
+            if (buffer.getLong(offset(i)) >= minSeenAtMillis) {
+                live++;
+            }
+        }
+        long targetCapacity = Math.max(INITIAL_RECORDS, Long.highestOneBit(Math.max(1L, live)) << 1);
+        FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer out;
+        long kept = 0;
+        try {
+            out = target.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + targetCapacity * RECORD_BYTES);
+            writeHeader(out);
+            for (long i = 0; i < recordCount; i++) {
+                int from = offset(i);
+                if (buffer.getLong(from) >= minSeenAtMillis) {
+                    out.put(offset(kept), buffer, from, RECORD_BYTES);
+                    kept++;
+                }
+            }
+            out.force();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                target.close();
+                Files.deleteIfExists(compacted);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+        FileChannel previous = channel;
+        channel = target;
+        buffer = out;
+        capacityRecords = targetCapacity;
+        recordCount = kept;
+        try {
+            previous.close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close the pre-compaction channel of {}", path, e);
+        }
+        return before - kept;
+    }
+
+    public synchronized long size() {
+        return recordCount;
+    }
+
+    public long appended() {
+        return appended.sum();
+    }
+
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    public long compactionFailures() {
+        return compactionFailures.sum();
+    }
+
+    public JournalSyncPolicy syncPolicy() {
+        return syncPolicy;
+    }
+
+    public synchronized void sync() {
+        buffer.force();
+        dirty = false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        scheduler.shutdownNow();
+        if (channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private synchronized void syncIfDirty() {
+        if (dirty && channel.isOpen()) {
+            sync();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existingBytes = channel.size();
+        long existingRecords = Math.max(0L, (existingBytes - HEADER_BYTES) / RECORD_BYTES);
+        remap(Math.max(INITIAL_RECORDS, existingRecords));
+        if (existingBytes == 0) {
+            writeHeader(buffer);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            channel.close();
+            throw new IllegalStateException("Not a webhook dedup journal: " + path);
+        }
+        recordCount = 0;
+        while (recordCount < capacityRecords && buffer.getLong(offset(recordCount)) != 0L) {
+            recordCount++;
+        }
+    }
+
+    private void remap(long records) throws IOException {
+        long bytes = HEADER_BYTES + records * RECORD_BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Webhook dedup journal is full; compact it before appending more events: " + path);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        capacityRecords = records;
+    }
+
+    private static void writeHeader(MappedByteBuffer target) {
+        target.putInt(0, MAGIC);
+        target.putInt(Integer.BYTES, VERSION);
+        target.putInt(Integer.BYTES * 2, RECORD_BYTES);
+    }
+
+    private static int offset(long record) {
+        return (int) (HEADER_BYTES + record * RECORD_BYTES);
+    }
+
+    @FunctionalInterface
+    public interface RecoveryConsumer {
+        void accept(String eventId, long seenAtMillis);
+    }
+}
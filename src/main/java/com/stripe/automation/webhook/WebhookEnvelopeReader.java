@@ -0,0 +1,105 @@
+package com.stripe.automation.webhook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+public final class WebhookEnvelopeReader {
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int ALL_FIELDS = 0b1111;
+    private static final int ID = 1;
+    private static final int TYPE = 1 << 1;
+    private static final int CREATED = 1 << 2;
+    private static final int OBJECT_ID = 1 << 3;
+
+    private WebhookEnvelopeReader() {}
+
+    public static WebhookEventEnvelope read(byte[] body) throws IOException {
+        return read(body, 0, body.length);
+    }
+
+    public static WebhookEventEnvelope read(byte[] body, int offset, int length) throws IOException {
+        try (JsonParser parser = JSON.createParser(body, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Webhook payload must be a JSON object");
+            }
+
+            String id = null;
+            String type = null;
+            long created = 0L;
+            DataObject object = DataObject.NONE;
+            int found = 0;
+
+            while (found != ALL_FIELDS && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> {
+                        id = textOrNull(parser, value);
+                        found |= ID;
+                    }
+                    case "type" -> {
+                        type = textOrNull(parser, value);
+                        found |= TYPE;
+                    }
+                    case "created" -> {
+                        created = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : 0L;
+                        found |= CREATED;
+                    }
+                    case "data" -> {
+                        object = readDataObject(parser, value);
+                        found |= OBJECT_ID;
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            return new WebhookEventEnvelope(id, type, created, object.id(), object.paymentIntent());
+        }
+    }
+
+    private static DataObject readDataObject(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return DataObject.NONE;
+        }
+        DataObject object = DataObject.NONE;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("object".equals(field) && token == JsonToken.START_OBJECT) {
+                object = readObject(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return object;
+    }
+
+    private static DataObject readObject(JsonParser parser) throws IOException {
+        String objectId = null;
+        String paymentIntent = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (objectId == null && "id".equals(field)) {
+                objectId = textOrNull(parser, token);
+            } else if (paymentIntent == null && "payment_intent".equals(field)) {
+                paymentIntent = token == JsonToken.START_OBJECT ? readObject(parser).id() : textOrNull(parser, token);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new DataObject(objectId, paymentIntent);
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_STRING ? parser.getText() : null;
+    }
+
+    private record DataObject(String id, String paymentIntent) {
+        static final DataObject NONE = new DataObject(null, null);
+    }
+}
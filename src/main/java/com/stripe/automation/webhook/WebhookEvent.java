@@ -0,0 +1,12 @@
+package com.stripe.automation.webhook;
+
+public record WebhookEvent(WebhookEventEnvelope envelope, byte[] payload, long receivedAtNanos) {
+
+    public String id() {
+        return envelope.id();
+    }
+
+    public String type() {
+        return envelope.type();
+    }
+}
@@ -0,0 +1,256 @@
+package com.stripe.automation.webhook;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WebhookEventDeduplicator {
+    public static final Duration STRIPE_RETRY_WINDOW = Duration.ofDays(3);
+    public static final long DEFAULT_MAX_ENTRIES = 1_000_000L;
+    private static final int DEFAULT_SEGMENTS = 72;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final long segmentMillis;
+    private final int segmentCount;
+    private final long maxEntries;
+    private final AtomicReferenceArray<Segment> slots;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicLong size = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public WebhookEventDeduplicator() {
+        this(STRIPE_RETRY_WINDOW, DEFAULT_MAX_ENTRIES);
+    }
+
+    public WebhookEventDeduplicator(Duration ttl, long maxEntries) {
+        this(ttl, maxEntries, DEFAULT_SEGMENTS, Clock.systemUTC());
+    }
+
+    public WebhookEventDeduplicator(Duration ttl, long maxEntries, int segmentCount, Clock clock) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Dedup TTL must be positive");
+        }
+        if (maxEntries < 1 || segmentCount < 1) {
+            throw new IllegalArgumentException("Dedup maxEntries and segmentCount must be positive");
+        }
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.segmentCount = segmentCount;
+        this.segmentMillis = Math.max(1L, ttl.toMillis() / segmentCount);
+        this.maxEntries = maxEntries;
+        this.slots = new AtomicReferenceArray<>(segmentCount + 1);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public boolean markIfNew(String eventId) {
+        long bucket = clock.millis() / segmentMillis;
+        Segment current = currentSegment(bucket);
+        synchronized (lockFor(eventId)) {
+            if (containsLive(eventId, bucket)) {
+                hits.increment();
+                return false;
+            }
+            misses.increment();
+            store(current, eventId);
+            return true;
+        }
+    }
+
+    public boolean restore(String eventId, long seenAtMillis) {
+        long now = clock.millis();
+        if (now - seenAtMillis > ttlMillis) {
+            return false;
+        }
+        long bucket = Math.min(seenAtMillis, now) / segmentMillis;
+        long nowBucket = now / segmentMillis;
+        if (nowBucket - bucket > segmentCount) {
+            return false;
+        }
+        Segment segment = segmentFor(bucket);
+        if (segment == null) {
+            return false;
+        }
+        synchronized (lockFor(eventId)) {
+            if (containsLive(eventId, nowBucket)) {
+                return false;
+            }
+            return store(segment, eventId);
+        }
+    }
+
+    public boolean forget(String eventId) {
+        boolean removed = false;
+        synchronized (lockFor(eventId)) {
+            for (int i = 0; i < slots.length(); i++) {
+                Segment segment = slots.get(i);
+                if (segment != null && segment.ids.remove(eventId)) {
+                    size.decrementAndGet();
+                    removed = true;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public boolean contains(String eventId) {
+        return containsLive(eventId, clock.millis() / segmentMillis);
+    }
+
+    private boolean containsLive(String eventId, long bucket) {
+        for (int i = 0; i < slots.length(); i++) {
+            Segment segment = slots.get(i);
+            if (segment != null && isLive(segment, bucket) && segment.ids.contains(eventId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long oldestRetainedMillis() {
+        return clock.millis() - ttlMillis;
+    }
+
+    public long nowMillis() {
+        return clock.millis();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), shed.sum(), size.get());
+    }
+
+    private boolean store(Segment segment, String eventId) {
+        if (size.get() >= maxEntries && !evictOlderSegments(segment)) {
+            shed.increment();
+            return false;
+        }
+        if (segment.ids.add(eventId)) {
+            size.incrementAndGet();
+        }
+        return true;
+    }
+
+    private Object lockFor(String eventId) {
+        int hash = eventId.hashCode();
+        return locks[(hash ^ hash >>> 16) & (LOCK_STRIPES - 1)];
+    }
+
+    private Segment currentSegment(long bucket) {
+        int index = (int) (bucket % slots.length());
+        while (true) {
+            Segment existing = slots.get(index);
+            if (existing != null && existing.bucket >= bucket) {
+                return existing;
+            }
+            Segment fresh = new Segment(bucket);
+            if (slots.compareAndSet(index, existing, fresh)) {
+                if (existing != null) {
+                    evictions.add(existing.ids.size());
+                }
+                dropExpired(bucket);
+                recountSize();
+                return fresh;
+            }
+        }
+    }
+
+    private Segment segmentFor(long bucket) {
+        int index = (int) (bucket % slots.length());
+        while (true) {
+            Segment existing = slots.get(index);
+            if (existing != null && existing.bucket == bucket) {
+                return existing;
+            }
+            if (existing != null && existing.bucket > bucket) {
+                return null;
+            }
+            Segment fresh = new Segment(bucket);
+            if (slots.compareAndSet(index, existing, fresh)) {
+                if (existing != null) {
+                    evictions.add(existing.ids.size());
+                    recountSize();
+                }
+                return fresh;
+            }
+        }
+    }
+
+    private void dropExpired(long bucket) {
+        for (int i = 0; i < slots.length(); i++) {
+            Segment segment = slots.get(i);
+            if (segment != null && !isLive(segment, bucket) && slots.compareAndSet(i, segment, null)) {
+                evictions.add(segment.ids.size());
+            }
+        }
+    }
+
+    private boolean evictOlderSegments(Segment current) {
+        while (size.get() >= maxEntries) {
+            if (!evictOldest(current)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean evictOldest(Segment current) {
+        int oldestIndex = -1;
+        Segment oldest = null;
+        for (int i = 0; i < slots.length(); i++) {
+            Segment segment = slots.get(i);
+            if (segment != null && segment != current && (oldest == null || segment.bucket < oldest.bucket)) {
+                oldest = segment;
+                oldestIndex = i;
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        if (slots.compareAndSet(oldestIndex, oldest, null)) {
+            evictions.add(oldest.ids.size());
+        }
+        recountSize();
+        return true;
+    }
+
+    private void recountSize() {
+        long total = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            Segment segment = slots.get(i);
+            if (segment != null) {
+                total += segment.ids.size();
+            }
+        }
+        size.set(total);
+    }
+
+    private boolean isLive(Segment segment, long bucket) {
+        return bucket - segment.bucket <= segmentCount;
+    }
+
+    public record Stats(long hits, long misses, long evictions, long shed, long size) {
+    }
+
+    private static final class Segment {
+        private final long bucket;
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        private Segment(long bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
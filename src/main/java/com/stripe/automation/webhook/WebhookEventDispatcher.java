@@ -0,0 +1,274 @@
+package com.stripe.automation.webhook;
+
+import com.stripe.automation.utils.DaemonThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WebhookEventDispatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookEventDispatcher.class);
+    public static final String ANY_EVENT_TYPE = "*";
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    private static final long POLL_MILLIS = 100L;
+
+    private final Stripe[] stripes;
+    private final int batchSize;
+    private final Map<String, List<Registration>> handlers = new ConcurrentHashMap<>();
+    private final Map<String, HandlerMetrics> handlerMetrics = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public WebhookEventDispatcher() {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_WORKERS, DEFAULT_BATCH_SIZE);
+    }
+
+    public WebhookEventDispatcher(int queueCapacity, int workerCount, int batchSize) {
+        if (queueCapacity < 1 || workerCount < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Dispatcher capacity, workers and batch size must be positive");
+        }
+        int stripeCapacity = Math.max(1, (queueCapacity + workerCount - 1) / workerCount);
+        this.stripes = new Stripe[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public synchronized String registerHandler(String eventType, WebhookEventHandler handler) {
+        List<Registration> registered = handlers.computeIfAbsent(eventType, type -> new CopyOnWriteArrayList<>());
+        String name = eventType + "#" + (registered.size() + 1);
+        HandlerMetrics metrics = new HandlerMetrics(eventType);
+        handlerMetrics.put(name, metrics);
+        registered.add(new Registration(name, handler, metrics));
+        return name;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        ThreadFactory factory = DaemonThreads.factory("webhook-dispatch");
+        for (Stripe stripe : stripes) {
+            Thread worker = factory.newThread(() -> runWorker(stripe));
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public synchronized void stop(Duration drainTimeout) {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<WebhookEvent> undelivered = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.queue.drainTo(undelivered);
+        }
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        if (!undelivered.isEmpty()) {
+            dropped.add(undelivered.size());
+            LOG.warn("Webhook dispatcher stopped after {} ms with {} acknowledged events undelivered", drainTimeout.toMillis(),
+                    undelivered.size());
+            LOG.debug("Undelivered webhook events: {}", undelivered.stream().map(WebhookEvent::id).toList());
+        }
+    }
+
+    public boolean publish(WebhookEvent event) {
+        Stripe stripe = stripes[stripeOf(orderingKey(event.envelope(), event.id()))];
+        if (!running || !stripe.queue.offer(event)) {
+            rejected.increment();
+            return false;
+        }
+        stripe.published.increment();
+        published.increment();
+        return true;
+    }
+
+    public int stripeOf(String orderingKey) {
+        int hash = orderingKey == null ? 0 : orderingKey.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (Stripe stripe : stripes) {
+            depth += stripe.queue.size();
+        }
+        return depth;
+    }
+
+    public int queueCapacity() {
+        int capacity = 0;
+        for (Stripe stripe : stripes) {
+            capacity += stripe.queue.size() + stripe.queue.remainingCapacity();
+        }
+        return capacity;
+    }
+
+    public Stats stats() {
+        Map<String, HandlerStats> perHandler = new LinkedHashMap<>();
+        handlerMetrics.forEach((name, metrics) -> perHandler.put(name, metrics.snapshot()));
+        List<StripeStats> perStripe = new ArrayList<>(stripes.length);
+        for (Stripe stripe : stripes) {
+            perStripe.add(new StripeStats(stripe.queue.size(), stripe.published.sum(), stripe.processed.sum()));
+        }
+        return new Stats(queueDepth(), published.sum(), rejected.sum(), dropped.sum(), processed.sum(), perHandler, perStripe);
+    }
+
+    private static String orderingKey(WebhookEventEnvelope envelope, String eventId) {
+        String paymentIntent = envelope.paymentIntent();
+        if (paymentIntent != null && !paymentIntent.isEmpty()) {
+            return paymentIntent;
+        }
+        String objectId = envelope.objectId();
+        return objectId == null || objectId.isEmpty() ? eventId : objectId;
+    }
+
+    private void runWorker(Stripe stripe) {
+        List<WebhookEvent> batch = new ArrayList<>(batchSize);
+        while (running || !stripe.queue.isEmpty()) {
+            try {
+                WebhookEvent first = stripe.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                stripe.queue.drainTo(batch, batchSize - 1);
+                dispatch(batch);
+                stripe.processed.add(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<WebhookEvent> batch) {
+        int runStart = 0;
+        for (int i = 1; i <= batch.size(); i++) {
+            if (i == batch.size() || !typeOf(batch.get(i)).equals(typeOf(batch.get(runStart)))) {
+                String type = typeOf(batch.get(runStart));
+                List<WebhookEvent> run = batch.subList(runStart, i);
+                invoke(handlers.get(type), run);
+                invoke(handlers.get(ANY_EVENT_TYPE), run);
+                runStart = i;
+            }
+        }
+        processed.add(batch.size());
+    }
+
+    private static String typeOf(WebhookEvent event) {
+        return event.type() == null ? "" : event.type();
+    }
+
+    private static void invoke(List<Registration> registered, List<WebhookEvent> events) {
+        if (registered == null) {
+            return;
+        }
+        for (Registration registration : registered) {
+            long startNanos = System.nanoTime();
+            try {
+                registration.handler().handle(events);
+            } catch (Exception e) {
+                registration.metrics().failures.increment();
+                LOG.warn("Webhook handler {} failed for events {}", registration.name(),
+                        events.stream().map(WebhookEvent::id).toList(), e);
+            } finally {
+                registration.metrics().record(System.nanoTime() - startNanos, events.size());
+            }
+        }
+    }
+
+    public record Stats(int queueDepth, long published, long rejected, long dropped, long processed, Map<String, HandlerStats> handlers,
+                        List<StripeStats> stripes) {
+
+        public double stripeSkew() {
+            long max = 0;
+            long total = 0;
+            for (StripeStats stripe : stripes) {
+                max = Math.max(max, stripe.published());
+                total += stripe.published();
+            }
+            return total == 0 ? 0.0 : max * (double) stripes.size() / total;
+        }
+    }
+
+    public record StripeStats(int depth, long published, long processed) {
+    }
+
+    public record HandlerStats(String eventType, long batches, long events, long failures, long totalNanos, long maxNanos) {
+
+        public double averageBatchMillis() {
+            return batches == 0 ? 0.0 : totalNanos / 1_000_000.0 / batches;
+        }
+    }
+
+    private static final class Stripe {
+        private final BlockingQueue<WebhookEvent> queue;
+        private final LongAdder published = new LongAdder();
+        private final LongAdder processed = new LongAdder();
+
+        private Stripe(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private record Registration(String name, WebhookEventHandler handler, HandlerMetrics metrics) {
+    }
+
+    private static final class HandlerMetrics {
+        private final String eventType;
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder events = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private HandlerMetrics(String eventType) {
+            this.eventType = eventType;
+        }
+
+        private void record(long nanos, int eventCount) {
+            batches.increment();
+            events.add(eventCount);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private HandlerStats snapshot() {
+            return new HandlerStats(eventType, batches.sum(), events.sum(), failures.sum(), totalNanos.sum(), maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.stripe.automation.webhook;
+
+public record WebhookEventEnvelope(String id, String type, long created, String objectId, String paymentIntent) {
+}
@@ -0,0 +1,8 @@
+package com.stripe.automation.webhook;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface WebhookEventHandler {
+    void handle(List<WebhookEvent> batch) throws Exception;
+}
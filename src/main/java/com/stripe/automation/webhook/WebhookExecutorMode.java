@@ -0,0 +1,30 @@
+package com.stripe.automation.webhook;
+
+import com.stripe.automation.utils.DaemonThreads;
+import com.stripe.automation.utils.VirtualThreads;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public enum WebhookExecutorMode {
+    SINGLE,
+    PLATFORM,
+    VIRTUAL;
+
+    public static WebhookExecutorMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return VIRTUAL;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    ExecutorService newExecutor(int threads) {
+        return switch (this) {
+            case SINGLE -> null;
+            case PLATFORM -> Executors.newFixedThreadPool(Math.max(1, threads),
+                    DaemonThreads.factory("webhook-worker"));
+            case VIRTUAL -> VirtualThreads.newPerTaskExecutor("webhook-worker");
+        };
+    }
+}
@@ -0,0 +1,199 @@
+package com.stripe.automation.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.automation.metrics.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WebhookMetrics {
+    public enum Stage {
+        VERIFY,
+        PARSE,
+        DEDUP,
+        TOTAL
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_STATUS = 600;
+
+    private final LongAdder[] statusCounts = new LongAdder[MAX_STATUS];
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder acceptErrors = new LongAdder();
+
+    public WebhookMetrics() {
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    public void recordStatus(int status) {
+        if (status >= 0 && status < MAX_STATUS) {
+            statusCounts[status].increment();
+        }
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].recordNanos(nanos);
+    }
+
+    public void recordError(Throwable error) {
+        errors.computeIfAbsent(error.getClass().getSimpleName(), key -> new LongAdder()).increment();
+    }
+
+    public void connectionOpened() {
+        acceptedConnections.increment();
+        openConnections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    public void acceptFailed() {
+        acceptErrors.increment();
+    }
+
+    public long acceptErrors() {
+        return acceptErrors.sum();
+    }
+
+    public int openConnections() {
+        return openConnections.get();
+    }
+
+    public long acceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public long statusCount(int status) {
+        return status >= 0 && status < MAX_STATUS ? statusCounts[status].sum() : 0L;
+    }
+
+    public LatencyHistogram.Snapshot stage(Stage stage) {
+        return stages[stage.ordinal()].snapshot();
+    }
+
+    public String prometheus(WebhookEventDeduplicator.Stats dedup, WebhookEventDispatcher.Stats dispatch) {
+        StringBuilder out = new StringBuilder(2048);
+        out.append("# TYPE webhook_requests_total counter\n");
+        for (int status = 0; status < MAX_STATUS; status++) {
+            long value = statusCounts[status].sum();
+            if (value > 0) {
+                out.append("webhook_requests_total{status=\"").append(status).append("\"} ").append(value).append('\n');
+            }
+        }
+
+        out.append("# TYPE webhook_latency_seconds summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = stages[stage.ordinal()].snapshot();
+            String label = stage.name().toLowerCase(Locale.ROOT);
+            quantile(out, label, "0.5", snapshot.p50Nanos());
+            quantile(out, label, "0.99", snapshot.p99Nanos());
+            quantile(out, label, "0.999", snapshot.p999Nanos());
+            out.append("webhook_latency_seconds_sum{stage=\"").append(label).append("\"} ").append(seconds(snapshot.sumNanos())).append('\n');
+            out.append("webhook_latency_seconds_count{stage=\"").append(label).append("\"} ").append(snapshot.count()).append('\n');
+        }
+
+        out.append("# TYPE webhook_errors_total counter\n");
+        errors.forEach((type, count) ->
+                out.append("webhook_errors_total{exception=\"").append(type).append("\"} ").append(count.sum()).append('\n'));
+
+        out.append("# TYPE webhook_connections_open gauge\nwebhook_connections_open ").append(openConnections.get()).append('\n');
+        out.append("# TYPE webhook_connections_accepted_total counter\nwebhook_connections_accepted_total ").append(acceptedConnections.sum()).append('\n');
+        out.append("# TYPE webhook_accept_errors_total counter\nwebhook_accept_errors_total ").append(acceptErrors.sum()).append('\n');
+
+        out.append("# TYPE webhook_dedup_hits_total counter\nwebhook_dedup_hits_total ").append(dedup.hits()).append('\n');
+        out.append("# TYPE webhook_dedup_misses_total counter\nwebhook_dedup_misses_total ").append(dedup.misses()).append('\n');
+        out.append("# TYPE webhook_dedup_evictions_total counter\nwebhook_dedup_evictions_total ").append(dedup.evictions()).append('\n');
+        out.append("# TYPE webhook_dedup_shed_total counter\nwebhook_dedup_shed_total ").append(dedup.shed()).append('\n');
+        out.append("# TYPE webhook_dedup_entries gauge\nwebhook_dedup_entries ").append(dedup.size()).append('\n');
+
+        out.append("# TYPE webhook_dispatch_queue_depth gauge\nwebhook_dispatch_queue_depth ").append(dispatch.queueDepth()).append('\n');
+        out.append("# TYPE webhook_dispatch_published_total counter\nwebhook_dispatch_published_total ").append(dispatch.published()).append('\n');
+        out.append("# TYPE webhook_dispatch_rejected_total counter\nwebhook_dispatch_rejected_total ").append(dispatch.rejected()).append('\n');
+        out.append("# TYPE webhook_dispatch_dropped_total counter\nwebhook_dispatch_dropped_total ").append(dispatch.dropped()).append('\n');
+        out.append("# TYPE webhook_dispatch_processed_total counter\nwebhook_dispatch_processed_total ").append(dispatch.processed()).append('\n');
+        out.append("# TYPE webhook_dispatch_stripe_skew gauge\nwebhook_dispatch_stripe_skew ").append(dispatch.stripeSkew()).append('\n');
+        out.append("# TYPE webhook_dispatch_stripe_depth gauge\n");
+        for (int i = 0; i < dispatch.stripes().size(); i++) {
+            out.append("webhook_dispatch_stripe_depth{stripe=\"").append(i).append("\"} ").append(dispatch.stripes().get(i).depth()).append('\n');
+        }
+        out.append("# TYPE webhook_dispatch_stripe_published_total counter\n");
+        for (int i = 0; i < dispatch.stripes().size(); i++) {
+            out.append("webhook_dispatch_stripe_published_total{stripe=\"").append(i).append("\"} ").append(dispatch.stripes().get(i).published()).append('\n');
+        }
+        out.append("# TYPE webhook_handler_seconds summary\n");
+        dispatch.handlers().forEach((handler, stats) -> {
+            out.append("webhook_handler_seconds_sum").append(handlerLabels(handler, stats)).append(seconds(stats.totalNanos())).append('\n');
+            out.append("webhook_handler_seconds_count").append(handlerLabels(handler, stats)).append(stats.batches()).append('\n');
+        });
+        out.append("# TYPE webhook_handler_failures_total counter\n");
+        dispatch.handlers().forEach((handler, stats) ->
+                out.append("webhook_handler_failures_total").append(handlerLabels(handler, stats)).append(stats.failures()).append('\n'));
+        return out.toString();
+    }
+
+    public String json(WebhookEventDeduplicator.Stats dedup, WebhookEventDispatcher.Stats dispatch) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        for (int status = 0; status < MAX_STATUS; status++) {
+            long value = statusCounts[status].sum();
+            if (value > 0) {
+                statuses.put(String.valueOf(status), value);
+            }
+        }
+        root.put("requests", statuses);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = stages[stage.ordinal()].snapshot();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", snapshot.count());
+            values.put("meanMicros", snapshot.meanNanos() / 1_000.0);
+            values.put("p50Micros", snapshot.p50Nanos() / 1_000.0);
+            values.put("p99Micros", snapshot.p99Nanos() / 1_000.0);
+            values.put("p999Micros", snapshot.p999Nanos() / 1_000.0);
+            values.put("maxMicros", snapshot.maxNanos() / 1_000.0);
+            latency.put(stage.name().toLowerCase(Locale.ROOT), values);
+        }
+        root.put("latency", latency);
+
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+        root.put("errors", errorCounts);
+        root.put("connections", Map.of("open", openConnections.get(), "accepted", acceptedConnections.sum(), "acceptErrors", acceptErrors.sum()));
+        root.put("dedup", dedup);
+        root.put("dispatch", dispatch);
+        root.put("stripeSkew", dispatch.stripeSkew());
+        try {
+            return MAPPER.writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to render webhook metrics", e);
+        }
+    }
+
+    private static void quantile(StringBuilder out, String stage, String quantile, long nanos) {
+        out.append("webhook_latency_seconds{stage=\"").append(stage).append("\",quantile=\"").append(quantile).append("\"} ")
+                .append(seconds(nanos)).append('\n');
+    }
+
+    private static String handlerLabels(String handler, WebhookEventDispatcher.HandlerStats stats) {
+        return "{type=\"" + stats.eventType() + "\",handler=\"" + handler + "\"} ";
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+}
@@ -1,88 +1,288 @@
 package com.stripe.automation.webhook;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.stripe.automation.config.ConfigChangeListener;
 import com.stripe.automation.config.ConfigManager;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.function.UnaryOperator;
 
 public class WebhookReceiverServer {
-    private final Set<String> eventIds = ConcurrentHashMap.newKeySet();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookReceiverServer.class);
+    private static final int DEFAULT_PLATFORM_THREADS = Runtime.getRuntime().availableProcessors() * 4;
+    private static final String WEBHOOK_PATH = "/stripe/webhook";
+    private static final String METRICS_PATH = "/metrics";
+    private static final Duration DISPATCH_DRAIN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final WebhookMetrics metrics = new WebhookMetrics();
+    private final WebhookEventDeduplicator deduplicator;
+    private final WebhookEventDispatcher dispatcher;
+    private final WebhookServerEngine engine;
+    private final WebhookExecutorMode executorMode;
+    private final int executorThreads;
+    private volatile WebhookSignatureVerifier verifier;
+    private final ConfigChangeListener verifierReset = (changedKeys, current) -> {
+        if (changedKeys.contains("stripe.webhook.secret") || changedKeys.contains("stripe.webhook.toleranceSeconds")) {
+            verifier = null;
+        }
+    };
+    private WebhookDedupJournal journal;
     private HttpServer server;
+    private NioWebhookServer nioServer;
+    private ExecutorService executor;
+
+    public WebhookReceiverServer() {
+        this(WebhookExecutorMode.from(ConfigManager.get("webhook.executor.mode")), configuredThreads());
+    }
+
+    public WebhookReceiverServer(WebhookExecutorMode executorMode, int executorThreads) {
+        this(WebhookServerEngine.from(ConfigManager.get("webhook.server.engine")), executorMode, executorThreads);
+    }
+
+    public WebhookReceiverServer(WebhookServerEngine engine, WebhookExecutorMode executorMode, int executorThreads) {
+        this.engine = engine;
+        this.executorMode = executorMode;
+        this.executorThreads = executorThreads;
+        this.deduplicator = new WebhookEventDeduplicator(configuredDedupTtl(), configuredDedupMaxEntries());
+        this.dispatcher = new WebhookEventDispatcher(
+                ConfigManager.getInt("webhook.dispatch.queueCapacity", WebhookEventDispatcher.DEFAULT_QUEUE_CAPACITY),
+                ConfigManager.getInt("webhook.dispatch.workers", WebhookEventDispatcher.DEFAULT_WORKERS),
+                ConfigManager.getInt("webhook.dispatch.batchSize", WebhookEventDispatcher.DEFAULT_BATCH_SIZE));
+    }
 
     public void start(int port) throws IOException {
+        verifier = configuredVerifier();
+        ConfigManager.addListener(verifierReset);
+        journal = openJournal();
+        executor = executorMode.newExecutor(executorThreads);
+        dispatcher.start();
+        if (engine == WebhookServerEngine.NIO) {
+            nioServer = new NioWebhookServer(new InetSocketAddress(port), executor, this::route, metrics,
+                    Duration.ofSeconds(ConfigManager.getInt("webhook.nio.idleTimeoutSeconds", 60)));
+            nioServer.start();
+            return;
+        }
         server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/stripe/webhook", this::handleWebhook);
+        server.createContext("/", this::handleExchange);
+        server.setExecutor(executor);
         server.start();
     }
 
     public void stop() {
+        ConfigManager.removeListener(verifierReset);
         if (server != null) {
             server.stop(0);
+            server = null;
+        }
+        if (nioServer != null) {
+            nioServer.stop();
+            nioServer = null;
+        }
+        dispatcher.stop(DISPATCH_DRAIN_TIMEOUT);
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close the webhook dedup journal", e);
+            }
+            journal = null;
+        }
+    }
+
+    public WebhookServerEngine engine() {
+        return engine;
+    }
+
+    public WebhookExecutorMode executorMode() {
+        return executorMode;
+    }
+
+    public WebhookEventDeduplicator deduplicator() {
+        return deduplicator;
+    }
+
+    public WebhookEventDispatcher dispatcher() {
+        return dispatcher;
+    }
+
+    public String registerHandler(String eventType, WebhookEventHandler handler) {
+        return dispatcher.registerHandler(eventType, handler);
+    }
+
+    public WebhookMetrics metrics() {
+        return metrics;
+    }
+
+    public WebhookDedupJournal journal() {
+        return journal;
+    }
+
+    public int port() {
+        if (nioServer != null) {
+            return nioServer.port();
         }
+        return server == null ? -1 : server.getAddress().getPort();
     }
 
-    private void handleWebhook(HttpExchange exchange) throws IOException {
-        int status = 500;
+    public int openConnections() {
+        return nioServer == null ? -1 : nioServer.openConnections();
+    }
+
+    private void handleExchange(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            WebhookResponse response = route(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                    exchange.getRequestURI().getRawQuery(), exchange.getRequestHeaders()::getFirst, body);
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            exchange.sendResponseHeaders(response.status(), response.body().length);
+            exchange.getResponseBody().write(response.body());
+        }
+    }
+
+    WebhookResponse route(String method, String path, String query, UnaryOperator<String> headers, byte[] body) {
+        if (path.startsWith(WEBHOOK_PATH)) {
+            return WebhookResponse.status(handleWebhook(headers.apply("Stripe-Signature"), body));
+        }
+        if (path.startsWith(METRICS_PATH)) {
+            return renderMetrics(query, headers.apply("Accept"));
+        }
+        return WebhookResponse.status(404);
+    }
+
+    private int handleWebhook(String signature, byte[] payload) {
+        long receivedAtNanos = System.nanoTime();
+        int status;
         try {
-            String payload = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-            String signature = exchange.getRequestHeaders().getFirst("Stripe-Signature");
-            status = verifySignature(payload, signature) ? 200 : 400;
-
-            if (status == 200) {
-                JsonNode node = objectMapper.readTree(payload);
-                String eventId = node.path("id").asText();
-                if (!eventIds.add(eventId)) {
-                    status = 208;
-                }
-            }
-        } catch (Exception ignored) {
+            status = process(payload, signature, receivedAtNanos);
+        } catch (JsonProcessingException e) {
+            metrics.recordError(e);
+            LOG.debug("Rejected malformed webhook payload: {}", e.getOriginalMessage());
+            status = 400;
+        } catch (Exception e) {
+            metrics.recordError(e);
+            LOG.warn("Webhook processing failed", e);
             status = 500;
         }
+        metrics.recordStatus(status);
+        metrics.recordStage(WebhookMetrics.Stage.TOTAL, System.nanoTime() - receivedAtNanos);
+        return status;
+    }
 
-        exchange.sendResponseHeaders(status, 0);
-        exchange.getResponseBody().write(("status=" + status).getBytes(StandardCharsets.UTF_8));
-        exchange.close();
+    private int process(byte[] payload, String signature, long receivedAtNanos) throws IOException {
+        long stageStart = System.nanoTime();
+        boolean verified = verifySignature(payload, signature);
+        long verifiedAt = System.nanoTime();
+        metrics.recordStage(WebhookMetrics.Stage.VERIFY, verifiedAt - stageStart);
+        if (!verified) {
+            return 400;
+        }
+
+        WebhookEventEnvelope envelope = WebhookEnvelopeReader.read(payload);
+        long parsedAt = System.nanoTime();
+        metrics.recordStage(WebhookMetrics.Stage.PARSE, parsedAt - verifiedAt);
+
+        String eventId = envelope.id() == null ? "" : envelope.id();
+        boolean firstDelivery = deduplicator.markIfNew(eventId);
+        metrics.recordStage(WebhookMetrics.Stage.DEDUP, System.nanoTime() - parsedAt);
+        if (!firstDelivery) {
+            return 208;
+        }
+        if (journal != null) {
+            try {
+                journal.append(eventId, deduplicator.nowMillis());
+            } catch (IOException | RuntimeException e) {
+                deduplicator.forget(eventId);
+                metrics.recordError(e);
+                LOG.warn("Unable to journal webhook event {}; asking Stripe to retry", eventId, e);
+                return 503;
+            }
+        }
+        if (!dispatcher.publish(new WebhookEvent(envelope, payload, receivedAtNanos))) {
+            deduplicator.forget(eventId);
+            if (journal != null) {
+                journal.retract(eventId);
+            }
+            return 503;
+        }
+        return 200;
+    }
+
+    private WebhookResponse renderMetrics(String query, String accept) {
+        boolean json = (query != null && query.contains("format=json")) || (accept != null && accept.contains("application/json"));
+        String body = json
+                ? metrics.json(deduplicator.stats(), dispatcher.stats())
+                : metrics.prometheus(deduplicator.stats(), dispatcher.stats());
+        return new WebhookResponse(200, json ? "application/json" : "text/plain; version=0.0.4; charset=utf-8",
+                body.getBytes(StandardCharsets.UTF_8));
     }
 
     public boolean verifySignature(String payload, String stripeSigHeader) {
-        if (stripeSigHeader == null || !stripeSigHeader.contains("v1=")) {
-            return false;
+        return payload != null && verifySignature(payload.getBytes(StandardCharsets.UTF_8), stripeSigHeader);
+    }
+
+    public boolean verifySignature(byte[] payload, String stripeSigHeader) {
+        WebhookSignatureVerifier current = verifier();
+        return current != null && current.verify(payload, stripeSigHeader);
+    }
+
+    private WebhookSignatureVerifier verifier() {
+        WebhookSignatureVerifier current = verifier;
+        if (current == null) {
+            current = verifier = configuredVerifier();
+        }
+        return current;
+    }
+
+    private WebhookDedupJournal openJournal() throws IOException {
+        String location = ConfigManager.get("webhook.dedup.journal.path");
+        if (location == null || location.isBlank()) {
+            return null;
         }
+        WebhookDedupJournal opened = new WebhookDedupJournal(Path.of(location.trim()),
+                JournalSyncPolicy.from(ConfigManager.get("webhook.dedup.journal.sync")),
+                Duration.ofMillis(ConfigManager.getInt("webhook.dedup.journal.syncIntervalMillis",
+                        (int) WebhookDedupJournal.DEFAULT_SYNC_INTERVAL.toMillis())));
+        opened.recover(deduplicator::restore, deduplicator.oldestRetainedMillis());
+        opened.scheduleCompaction(Duration.ofMinutes(ConfigManager.getInt("webhook.dedup.journal.compactIntervalMinutes", 60)),
+                deduplicator::oldestRetainedMillis);
+        return opened;
+    }
 
+    private static WebhookSignatureVerifier configuredVerifier() {
         String secret = ConfigManager.get("stripe.webhook.secret");
         if (secret == null || secret.isBlank()) {
-            return false;
+            return null;
         }
+        Duration window = ConfigManager.getDuration("stripe.webhook.toleranceSeconds", ChronoUnit.SECONDS,
+                WebhookSignatureVerifier.DEFAULT_TOLERANCE);
+        return new WebhookSignatureVerifier(secret, window, Clock.systemUTC());
+    }
 
-        String actual = stripeSigHeader.substring(stripeSigHeader.indexOf("v1=") + 3);
-        String expected = hmacSha256(secret, payload);
-        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    private static int configuredThreads() {
+        return ConfigManager.getInt("webhook.executor.threads", DEFAULT_PLATFORM_THREADS);
     }
 
-    private String hmacSha256(String secret, String payload) {
-        try {
-            Mac sha256 = Mac.getInstance("HmacSHA256");
-            sha256.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-            byte[] hash = sha256.doFinal(payload.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    private static Duration configuredDedupTtl() {
+        return ConfigManager.getDuration("webhook.dedup.ttlHours", ChronoUnit.HOURS, WebhookEventDeduplicator.STRIPE_RETRY_WINDOW);
+    }
+
+    private static long configuredDedupMaxEntries() {
+        return ConfigManager.getLong("webhook.dedup.maxEntries", WebhookEventDeduplicator.DEFAULT_MAX_ENTRIES);
     }
 
     public static void main(String[] args) throws IOException {
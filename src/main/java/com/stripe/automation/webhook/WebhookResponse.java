@@ -0,0 +1,11 @@
+package com.stripe.automation.webhook;
+
+import java.nio.charset.StandardCharsets;
+
+record WebhookResponse(int status, String contentType, byte[] body) {
+    static final String TEXT = "text/plain; charset=utf-8";
+
+    static WebhookResponse status(int status) {
+        return new WebhookResponse(status, TEXT, ("status=" + status).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,15 @@
+package com.stripe.automation.webhook;
+
+import java.util.Locale;
+
+public enum WebhookServerEngine {
+    JDK,
+    NIO;
+
+    public static WebhookServerEngine from(String value) {
+        if (value == null || value.isBlank()) {
+            return JDK;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,202 @@
+package com.stripe.automation.webhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+
+public final class WebhookSignatureVerifier {
+    public static final Duration DEFAULT_TOLERANCE = Duration.ofMinutes(5);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 32;
+    private static final int MAX_TIMESTAMP_DIGITS = 18;
+
+    private final SecretKeySpec key;
+    private final Mac prototype;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(this::newState);
+    private final long toleranceSeconds;
+    private final Clock clock;
+
+    public WebhookSignatureVerifier(String secret) {
+        this(secret, DEFAULT_TOLERANCE, Clock.systemUTC());
+    }
+
+    public WebhookSignatureVerifier(String secret, Duration tolerance, Clock clock) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("Webhook secret must not be blank");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.prototype = newMac();
+        this.toleranceSeconds = tolerance.getSeconds();
+        this.clock = clock;
+    }
+
+    public boolean verify(String payload, CharSequence header) {
+        return payload != null && verify(payload.getBytes(StandardCharsets.UTF_8), header);
+    }
+
+    public boolean verify(byte[] payload, CharSequence header) {
+        return payload != null && verify(payload, 0, payload.length, header);
+    }
+
+    public boolean verify(byte[] payload, int offset, int length, CharSequence header) {
+        if (payload == null || header == null) {
+            return false;
+        }
+
+        int timestampStart = -1;
+        int timestampEnd = -1;
+        boolean hasSignature = false;
+        int headerLength = header.length();
+        for (int start = 0; start < headerLength; ) {
+            int end = indexOf(header, ',', start);
+            int from = skipSpaces(header, start, end);
+            if (startsWith(header, from, end, 't')) {
+                timestampStart = from + 2;
+                timestampEnd = end;
+            } else if (isV1(header, from, end)) {
+                hasSignature = true;
+            }
+            start = end + 1;
+        }
+        if (!hasSignature) {
+            return false;
+        }
+
+        State local = state.get();
+        Mac mac = local.mac;
+        if (timestampStart >= 0) {
+            long timestamp = parseTimestamp(header, timestampStart, timestampEnd);
+            if (timestamp < 0 || !withinTolerance(timestamp)) {
+                return false;
+            }
+            int prefixLength = 0;
+            for (int i = timestampStart; i < timestampEnd; i++) {
+                local.signedPrefix[prefixLength++] = (byte) header.charAt(i);
+            }
+            local.signedPrefix[prefixLength++] = (byte) '.';
+            mac.update(local.signedPrefix, 0, prefixLength);
+        }
+        mac.update(payload, offset, length);
+        try {
+            mac.doFinal(local.expected, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to compute webhook signature", e);
+        }
+
+        boolean matched = false;
+        for (int start = 0; start < headerLength; ) {
+            int end = indexOf(header, ',', start);
+            int from = skipSpaces(header, start, end);
+            if (isV1(header, from, end)) {
+                matched |= matches(header, from + 3, end, local.expected);
+            }
+            start = end + 1;
+        }
+        return matched;
+    }
+
+    private boolean withinTolerance(long timestamp) {
+        if (toleranceSeconds <= 0) {
+            return true;
+        }
+        long now = clock.millis() / 1000;
+        return Math.abs(now - timestamp) <= toleranceSeconds;
+    }
+
+    private static boolean matches(CharSequence header, int from, int end, byte[] expected) {
+        if (end - from != SIGNATURE_BYTES * 2) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < SIGNATURE_BYTES; i++) {
+            int high = hexValue(header.charAt(from + 2 * i));
+            int low = hexValue(header.charAt(from + 2 * i + 1));
+            diff |= (high | low) >>> 31;
+            diff |= ((high << 4) | low) ^ (expected[i] & 0xff);
+        }
+        return diff == 0;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static long parseTimestamp(CharSequence header, int from, int end) {
+        if (from >= end || end - from > MAX_TIMESTAMP_DIGITS) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < end; i++) {
+            char c = header.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isV1(CharSequence header, int from, int end) {
+        return end - from >= 3 && header.charAt(from) == 'v' && header.charAt(from + 1) == '1' && header.charAt(from + 2) == '=';
+    }
+
+    private static boolean startsWith(CharSequence header, int from, int end, char name) {
+        return end - from >= 2 && header.charAt(from) == name && header.charAt(from + 1) == '=';
+    }
+
+    private static int indexOf(CharSequence header, char c, int from) {
+        for (int i = from; i < header.length(); i++) {
+            if (header.charAt(i) == c) {
+                return i;
+            }
+        }
+        return header.length();
+    }
+
+    private static int skipSpaces(CharSequence header, int from, int end) {
+        while (from < end && header.charAt(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private State newState() {
+        try {
+            return new State((Mac) prototype.clone());
+        } catch (CloneNotSupportedException e) {
+            return new State(newMac());
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialise " + ALGORITHM, e);
+        }
+    }
+
+    private static final class State {
+        private final Mac mac;
+        private final byte[] expected = new byte[SIGNATURE_BYTES];
+        private final byte[] signedPrefix = new byte[MAX_TIMESTAMP_DIGITS + 1];
+
+        private State(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package com.stripe.automation.api.stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.utils.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class StripeStandInServer {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String PREFIX = "/v1";
+
+    private final Set<String> acceptedKeys;
+    private final int rateLimitPerSecond;
+    private final Map<String, PaymentIntent> paymentIntents = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> refunds = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> disputes = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Listed> listed = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> sequences = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, IdempotentResult> idempotentResults = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private long windowSecond;
+    private int windowCount;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StripeStandInServer(Set<String> acceptedKeys, int rateLimitPerSecond) {
+        this.acceptedKeys = Set.copyOf(acceptedKeys);
+        this.rateLimitPerSecond = rateLimitPerSecond;
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(PREFIX + "/", this::handle);
+        executor = VirtualThreads.newPerTaskExecutor("stripe-standin");
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int port() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port() + PREFIX;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long rateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    public void reset() {
+        paymentIntents.clear();
+        refunds.clear();
+        disputes.clear();
+        listed.clear();
+        sequences.clear();
+        idempotentResults.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            StubResponse response;
+            try {
+                response = respond(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                        exchange.getRequestURI().getRawQuery(), exchange.getRequestHeaders().getFirst("Authorization"),
+                        exchange.getRequestHeaders().getFirst("Idempotency-Key"), body);
+            } catch (RuntimeException e) {
+                response = error(500, "api_error", null, "An unknown error occurred: " + e.getMessage(), null);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Request-Id", "req_" + UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+            response.headers().forEach(exchange.getResponseHeaders()::set);
+            byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private StubResponse respond(String method, String path, String query, String authorization, String idempotencyKey, String body) {
+        String apiKey = apiKey(authorization);
+        if (apiKey == null || !acceptedKeys.contains(apiKey)) {
+            return error(401, "invalid_request_error", null, "Invalid API Key provided", null);
+        }
+        if (!withinRateLimit()) {
+            rateLimited.incrementAndGet();
+            return new StubResponse(429, json(errorBody("rate_limit_error", "rate_limit",
+                    "Too many requests hit the API too quickly.", null)), Map.of("Retry-After", "1", "Stripe-Should-Retry", "true"));
+        }
+        if ("GET".equals(method)) {
+            return list(path, parseForm(query));
+        }
+        if (!"POST".equals(method)) {
+            return error(405, "invalid_request_error", null, "Unrecognized request URL (" + method + ": " + path + ")", null);
+        }
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return route(path, parseForm(body)).response();
+        }
+
+        String scopedKey = apiKey + ':' + idempotencyKey;
+        String fingerprint = path + '?' + body;
+        IdempotentResult created = new IdempotentResult(fingerprint, new CompletableFuture<>());
+        IdempotentResult existing = idempotentResults.putIfAbsent(scopedKey, created);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(fingerprint)) {
+                return error(400, "idempotency_error", null, "Keys for idempotent requests can only be used with the same parameters they were first used with.", null);
+            }
+            if (!existing.response().isDone()) {
+                return error(409, "invalid_request_error", "idempotency_key_in_use",
+                        "There is currently another in-progress request using this Idempotent Key.", null);
+            }
+            StubResponse replay = existing.response().join();
+            Map<String, String> headers = new LinkedHashMap<>(replay.headers());
+            headers.put("Idempotent-Replayed", "true");
+            return new StubResponse(replay.status(), replay.body(), headers);
+        }
+        Outcome outcome = null;
+        try {
+            outcome = route(path, parseForm(body));
+            return outcome.response();
+        } finally {
+            if (outcome != null && outcome.cacheable()) {
+                created.response().complete(outcome.response());
+            } else {
+                idempotentResults.remove(scopedKey, created);
+            }
+        }
+    }
+
+    private Outcome route(String path, Map<String, String> form) {
+        String resource = path.substring(PREFIX.length());
+        if (resource.equals("/payment_intents")) {
+            return createPaymentIntent(form);
+        }
+        if (resource.startsWith("/payment_intents/") && resource.endsWith("/confirm")) {
+            return confirmPaymentIntent(resource.substring("/payment_intents/".length(), resource.length() - "/confirm".length()));
+        }
+        if (resource.equals("/refunds")) {
+            return createRefund(form);
+        }
+        return rejected(error(404, "invalid_request_error", null, "Unrecognized request URL (POST: " + path + ")", null));
+    }
+
+    private Outcome createPaymentIntent(Map<String, String> form) {
+        Long amount = parseAmount(form.get("amount"));
+        if (amount == null || amount < 1) {
+            return rejected(error(400, "invalid_request_error", "parameter_missing", "Missing required param: amount.", "amount"));
+        }
+        String currency = form.get("currency");
+        if (currency == null || currency.isBlank()) {
+            return rejected(error(400, "invalid_request_error", "parameter_missing", "Missing required param: currency.", "currency"));
+        }
+        PaymentIntent intent = new PaymentIntent("pi_" + randomId(), amount, currency.toLowerCase(), form.get("payment_method"));
+        paymentIntents.put(intent.id, intent);
+        index(intent.id, "payment_intent", intent.created, () -> {
+            synchronized (intent) {
+                return intent.toMap();
+            }
+        });
+        if (!Boolean.parseBoolean(form.get("confirm"))) {
+            return executed(new StubResponse(200, json(intent.toMap()), Map.of()));
+        }
+        return executed(confirm(intent));
+    }
+
+    private Outcome confirmPaymentIntent(String id) {
+        PaymentIntent intent = paymentIntents.get(id);
+        if (intent == null) {
+            return rejected(error(404, "invalid_request_error", "resource_missing", "No such payment_intent: '" + id + "'", "intent"));
+        }
+        return executed(confirm(intent));
+    }
+
+    private StubResponse confirm(PaymentIntent intent) {
+        synchronized (intent) {
+            if (intent.status.equals("succeeded")) {
+                return error(400, "invalid_request_error", "payment_intent_unexpected_state",
+                        "You cannot confirm this PaymentIntent because it has already succeeded after being previously confirmed.", null);
+            }
+            if (intent.paymentMethod == null || intent.paymentMethod.isBlank()) {
+                return error(400, "invalid_request_error", "parameter_missing",
+                        "You cannot confirm this PaymentIntent because it's missing a payment method.", "payment_method");
+            }
+            if (intent.paymentMethod.contains("Declined") || intent.paymentMethod.contains("declined")) {
+                intent.status = "requires_payment_method";
+                return error(402, "card_error", "card_declined", "Your card was declined.", null);
+            }
+            intent.status = "succeeded";
+            intent.amountReceived = intent.amount;
+            if (intent.paymentMethod.contains("createDispute")) {
+                openDispute(intent);
+            }
+            return new StubResponse(200, json(intent.toMap()), Map.of());
+        }
+    }
+
+    private Outcome createRefund(Map<String, String> form) {
+        String paymentIntentId = form.get("payment_intent");
+        PaymentIntent intent = paymentIntentId == null ? null : paymentIntents.get(paymentIntentId);
+        if (intent == null) {
+            return rejected(error(400, "invalid_request_error", "resource_missing", "No such payment_intent: '" + paymentIntentId + "'", "payment_intent"));
+        }
+        Long requested = form.containsKey("amount") ? parseAmount(form.get("amount")) : null;
+        if (form.containsKey("amount") && (requested == null || requested < 1)) {
+            return rejected(error(400, "invalid_request_error", "parameter_invalid_integer", "Invalid positive integer", "amount"));
+        }
+        synchronized (intent) {
+            if (!intent.status.equals("succeeded")) {
+                return rejected(error(400, "invalid_request_error", "charge_not_refundable",
+                        "This PaymentIntent does not have a successful charge to refund.", "payment_intent"));
+            }
+            long remaining = intent.amountReceived - intent.amountRefunded;
+            long amount = requested == null ? remaining : requested;
+            if (remaining == 0) {
+                return rejected(error(400, "invalid_request_error", "charge_already_refunded",
+                        "Charge for PaymentIntent " + intent.id + " has already been refunded.", null));
+            }
+            if (amount > remaining) {
+                return rejected(error(400, "invalid_request_error", "amount_too_large",
+                        "Refund amount (" + amount + ") is greater than unrefunded amount on charge (" + remaining + ")", "amount"));
+            }
+            intent.amountRefunded += amount;
+            Map<String, Object> refund = new LinkedHashMap<>();
+            refund.put("id", "re_" + randomId());
+            refund.put("object", "refund");
+            refund.put("amount", amount);
+            refund.put("currency", intent.currency);
+            refund.put("payment_intent", intent.id);
+            refund.put("status", "succeeded");
+            refund.put("created", System.currentTimeMillis() / 1000);
+            refunds.put((String) refund.get("id"), refund);
+            index((String) refund.get("id"), "refund", (Long) refund.get("created"), () -> refund);
+            return executed(new StubResponse(200, json(refund), Map.of()));
+        }
+    }
+
+    private void openDispute(PaymentIntent intent) {
+        Map<String, Object> dispute = new LinkedHashMap<>();
+        dispute.put("id", "dp_" + randomId());
+        dispute.put("object", "dispute");
+        dispute.put("amount", intent.amount);
+        dispute.put("currency", intent.currency);
+        dispute.put("charge", "ch_" + randomId());
+        dispute.put("payment_intent", intent.id);
+        dispute.put("reason", "fraudulent");
+        dispute.put("status", "needs_response");
+        dispute.put("created", System.currentTimeMillis() / 1000);
+        disputes.put((String) dispute.get("id"), dispute);
+        index((String) dispute.get("id"), "dispute", (Long) dispute.get("created"), () -> dispute);
+    }
+
+    private void index(String id, String object, long created, Supplier<Map<String, Object>> view) {
+        long position = sequence.incrementAndGet();
+        sequences.put(id, position);
+        listed.put(position, new Listed(object, created, view));
+    }
+
+    private StubResponse list(String path, Map<String, String> query) {
+        String resource = path.substring(PREFIX.length());
+        String object = switch (resource) {
+            case "/payment_intents" -> "payment_intent";
+            case "/refunds" -> "refund";
+            case "/disputes" -> "dispute";
+            default -> null;
+        };
+        if (object == null) {
+            return error(404, "invalid_request_error", null, "Unrecognized request URL (GET: " + path + ")", null);
+        }
+        Long limit = query.containsKey("limit") ? parseAmount(query.get("limit")) : Long.valueOf(10L);
+        if (limit == null || limit < 1 || limit > 100) {
+            return error(400, "invalid_request_error", "parameter_invalid_integer", "Invalid integer: limit must be between 1 and 100", "limit");
+        }
+        NavigableMap<Long, Listed> newestFirst = listed.descendingMap();
+        String startingAfter = query.get("starting_after");
+        if (startingAfter != null) {
+            Long position = sequences.get(startingAfter);
+            if (position == null) {
+                return error(400, "invalid_request_error", "resource_missing", "No such " + object + ": '" + startingAfter + "'", "starting_after");
+            }
+            newestFirst = listed.headMap(position, false).descendingMap();
+        }
+        List<Map<String, Object>> data = new ArrayList<>();
+        boolean hasMore = false;
+        for (Listed candidate : newestFirst.values()) {
+            if (!candidate.object().equals(object) || !inCreatedRange(candidate.created(), query)) {
+                continue;
+            }
+            Map<String, Object> view = candidate.view().get();
+            if (query.containsKey("payment_intent") && !query.get("payment_intent").equals(view.get("payment_intent"))) {
+                continue;
+            }
+            if (data.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            data.add(view);
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("object", "list");
+        page.put("url", PREFIX + resource);
+        page.put("has_more", hasMore);
+        page.put("data", data);
+        return new StubResponse(200, json(page), Map.of());
+    }
+
+    private static boolean inCreatedRange(long created, Map<String, String> query) {
+        Long gte = parseAmount(query.get("created[gte]"));
+        Long gt = parseAmount(query.get("created[gt]"));
+        Long lte = parseAmount(query.get("created[lte]"));
+        Long lt = parseAmount(query.get("created[lt]"));
+        return (gte == null || created >= gte) && (gt == null || created > gt)
+                && (lte == null || created <= lte) && (lt == null || created < lt);
+    }
+
+    private synchronized boolean withinRateLimit() {
+        if (rateLimitPerSecond <= 0) {
+            return true;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        return ++windowCount <= rateLimitPerSecond;
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new LinkedHashMap<>();
+        if (body == null || body.isEmpty()) {
+            return form;
+        }
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            form.put(name, value);
+        }
+        return form;
+    }
+
+    private static Long parseAmount(String value) {
+        try {
+            return value == null ? null : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String randomId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+    }
+
+    private static Outcome executed(StubResponse response) {
+        return new Outcome(response, true);
+    }
+
+    private static Outcome rejected(StubResponse response) {
+        return new Outcome(response, false);
+    }
+
+    private static StubResponse error(int status, String type, String code, String message, String param) {
+        return new StubResponse(status, json(errorBody(type, code, message, param)), Map.of());
+    }
+
+    private static Map<String, Object> errorBody(String type, String code, String message, String param) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("type", type);
+        if (code != null) {
+            error.put("code", code);
+        }
+        error.put("message", message);
+        if (param != null) {
+            error.put("param", param);
+        }
+        return Map.of("error", error);
+    }
+
+    private static String json(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to render stand-in response", e);
+        }
+    }
+
+    private static String apiKey(String authorization) {
+        if (authorization == null) {
+            return null;
+        }
+        if (authorization.startsWith("Bearer ")) {
+            return authorization.substring(7).trim();
+        }
+        if (authorization.startsWith("Basic ")) {
+            try {
+                String credentials = new String(Base64.getDecoder().decode(authorization.substring(6).trim()), StandardCharsets.UTF_8);
+                int colon = credentials.indexOf(':');
+                return colon < 0 ? credentials : credentials.substring(0, colon);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String secretKey = ConfigManager.get("stripe.secretKey");
+        String port = ConfigManager.get("stripe.standin.port");
+        String rateLimit = ConfigManager.get("stripe.standin.rateLimitPerSecond");
+        StripeStandInServer standIn = new StripeStandInServer(
+                Set.of(secretKey == null || secretKey.isBlank() ? "sk_test_standin" : secretKey),
+                rateLimit == null || rateLimit.isBlank() ? 0 : Integer.parseInt(rateLimit.trim()));
+        standIn.start(port == null || port.isBlank() ? 12111 : Integer.parseInt(port.trim()));
+        System.out.println("Stripe stand-in listening on " + standIn.baseUrl());
+    }
+
+    private record StubResponse(int status, String body, Map<String, String> headers) {
+    }
+
+    private record Outcome(StubResponse response, boolean cacheable) {
+    }
+
+    private record Listed(String object, long created, Supplier<Map<String, Object>> view) {
+    }
+
+    private record IdempotentResult(String fingerprint, CompletableFuture<StubResponse> response) {
+    }
+
+    private static final class PaymentIntent {
+        private final String id;
+        private final long amount;
+        private final String currency;
+        private final String paymentMethod;
+        private final long created = System.currentTimeMillis() / 1000;
+        private String status = "requires_confirmation";
+        private long amountReceived;
+        private long amountRefunded;
+
+        private PaymentIntent(String id, long amount, String currency, String paymentMethod) {
+            this.id = id;
+            this.amount = amount;
+            this.currency = currency;
+            this.paymentMethod = paymentMethod;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("object", "payment_intent");
+            map.put("amount", amount);
+            map.put("amount_received", amountReceived);
+            map.put("currency", currency);
+            map.put("payment_method", paymentMethod);
+            map.put("status", status);
+            map.put("created", created);
+            map.put("livemode", false);
+            return map;
+        }
+    }
+}
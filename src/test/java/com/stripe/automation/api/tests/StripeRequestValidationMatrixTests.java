@@ -2,6 +2,7 @@ package com.stripe.automation.api.tests;
 
 import com.stripe.automation.api.models.PaymentIntentRequest;
 import com.stripe.automation.api.validation.StripeRequestValidator;
+import com.stripe.automation.api.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -52,4 +53,19 @@ public class StripeRequestValidationMatrixTests {
             Assert.assertTrue(expected.getMessage() != null && !expected.getMessage().isBlank());
         }
     }
+
+    @Test(dataProvider = "paymentIntentValidationCases", groups = {"api", "unit", "regression"})
+    public void tcApiValidationMatrix_shouldReportEveryViolatedField(PaymentIntentRequest request, boolean expectedValid) {
+        ValidationResult result = StripeRequestValidator.checkPaymentIntent(request);
+
+        Assert.assertEquals(result.isValid(), expectedValid, result.toString());
+        boolean validAmount = request.amount() >= 50 && request.amount() <= 99_999_999;
+        Assert.assertEquals(result.hasViolation("amount", request.amount() < 50 ? "amount_too_small" : "amount_too_large"), !validAmount);
+        Assert.assertEquals(result.hasViolation("currency", "parameter_missing"), request.currency().isBlank());
+        Assert.assertEquals(result.hasViolation("payment_method", "parameter_missing"), request.payment_method().isBlank());
+        int invalidFields = (validAmount ? 0 : 1)
+                + (List.of("usd", "eur", "gbp", "aud", "cad").contains(request.currency().toLowerCase()) ? 0 : 1)
+                + (request.payment_method().isBlank() ? 1 : 0);
+        Assert.assertEquals(result.size(), invalidFields, result.toString());
+    }
 }
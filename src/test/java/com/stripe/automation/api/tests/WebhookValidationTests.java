@@ -1,5 +1,6 @@
 package com.stripe.automation.api.tests;
 
+import com.stripe.automation.config.ConfigManager;
 import com.stripe.automation.webhook.WebhookReceiverServer;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -20,7 +21,7 @@ public class WebhookValidationTests {
 
     @BeforeClass
     public void startServer() throws IOException {
-        System.setProperty("stripe.webhook.secret", "whsec_unit_test_secret");
+        ConfigManager.override("stripe.webhook.secret", "whsec_unit_test_secret");
         port = findFreePort();
         server.start(port);
     }
@@ -28,7 +29,7 @@ public class WebhookValidationTests {
     @AfterClass
     public void stopServer() {
         server.stop();
-        System.clearProperty("stripe.webhook.secret");
+        ConfigManager.clearOverride("stripe.webhook.secret");
     }
 
     @Test(groups = {"webhook", "smoke"})
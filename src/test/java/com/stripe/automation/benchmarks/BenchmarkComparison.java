@@ -0,0 +1,89 @@
+package com.stripe.automation.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.stripe.automation.utils.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class BenchmarkComparison {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final String THROUGHPUT = "thrpt";
+
+    public record Score(double score, double allocation, boolean higherIsBetter) {
+    }
+
+    public record Comparison(String benchmark, Score baseline, Score current, double delta, boolean regressed) {
+        public boolean isNew() {
+            return baseline == null;
+        }
+    }
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        List<Comparison> comparisons = compare(scores(Path.of(args[0])), scores(Path.of(args[1])), threshold);
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s %12s %12s%n", "Benchmark", "baseline", "current", "delta", "B/op before", "B/op after");
+        for (Comparison comparison : comparisons) {
+            Score after = comparison.current();
+            if (comparison.isNew()) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", comparison.benchmark(), "-", after.score(), "new");
+                continue;
+            }
+            Score before = comparison.baseline();
+            regressions += comparison.regressed() ? 1 : 0;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %12.0f %12.0f%s%n", comparison.benchmark(), before.score(), after.score(),
+                    comparison.delta(), before.allocation(), after.allocation(), comparison.regressed() ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions + " regression(s) above " + threshold + "%");
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    public static List<Comparison> compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        List<Comparison> comparisons = new ArrayList<>(current.size());
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                comparisons.add(new Comparison(entry.getKey(), null, after, 0, false));
+                continue;
+            }
+            double delta = before.score() == 0 ? 0 : (after.score() - before.score()) / before.score() * 100;
+            double slowdown = after.higherIsBetter() ? -delta : delta;
+            boolean allocationGrew = after.allocation() > before.allocation() + Math.max(16, before.allocation() * threshold / 100);
+            comparisons.add(new Comparison(entry.getKey(), before, after, delta, slowdown > threshold || allocationGrew));
+        }
+        return comparisons;
+    }
+
+    public static Map<String, Score> scores(Path file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (JsonNode run : Json.readTree(Files.readAllBytes(file))) {
+            Map<String, String> params = new LinkedHashMap<>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String unit = run.path("primaryMetric").path("scoreUnit").asText();
+            String key = run.path("benchmark").asText() + (params.isEmpty() ? "" : params.toString()) + " [" + unit + "]";
+            JsonNode allocation = run.path("secondaryMetrics").path(ALLOCATION).path("score");
+            boolean higherIsBetter = THROUGHPUT.equals(run.path("mode").asText()) || unit.startsWith("ops/");
+            scores.put(key, new Score(run.path("primaryMetric").path("score").asDouble(),
+                    allocation.isMissingNode() ? Double.NaN : allocation.asDouble(), higherIsBetter));
+        }
+        return scores;
+    }
+}
@@ -1,19 +1,51 @@
 package com.stripe.automation.listeners;
 
+import com.stripe.automation.api.client.AdaptiveRateLimiter;
+import com.stripe.automation.api.spec.RingBufferLoggingFilter;
+import com.stripe.automation.config.ConfigManager;
 import com.stripe.automation.drivers.WebDriverFactory;
+import com.stripe.automation.metrics.ApiCallMetrics;
 import com.stripe.automation.utils.ScreenshotUtils;
 import io.qameta.allure.Allure;
 import org.openqa.selenium.WebDriver;
-import org.testng.ITestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+public class TestListener implements ITestListener, ISuiteListener {
+    private static final Logger LOG = LoggerFactory.getLogger(TestListener.class);
+    private static final String SUITE_START = "suiteStart";
+    private static final String DEFAULT_METRICS_PATH = "target/api-metrics.json";
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        RingBufferLoggingFilter.clearCurrentThread();
+        ApiCallMetrics.startTestScope();
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        RingBufferLoggingFilter.clearCurrentThread();
+        attachApiMetrics();
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        attachApiMetrics();
+    }
 
-public class TestListener implements ITestListener {
     @Override
     public void onTestFailure(ITestResult result) {
+        attachApiMetrics();
+        attachApiExchanges();
         WebDriver driver = WebDriverFactory.getExistingDriver();
         if (driver == null) {
             return;
@@ -31,7 +63,44 @@ public class TestListener implements ITestListener {
     }
 
     @Override
-    public void onStart(ITestContext context) {
-        context.setAttribute("suiteStart", System.currentTimeMillis());
+    public void onStart(ISuite suite) {
+        suite.setAttribute(SUITE_START, System.currentTimeMillis());
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        ApiCallMetrics metrics = ApiCallMetrics.global();
+        if (metrics.isEmpty()) {
+            return;
+        }
+        Object suiteStart = suite.getAttribute(SUITE_START);
+        Long suiteMillis = suiteStart instanceof Long start ? System.currentTimeMillis() - start : null;
+        String path = ConfigManager.get("api.metrics.path");
+        Path output = Path.of(path == null || path.isBlank() ? DEFAULT_METRICS_PATH : path.trim());
+        try {
+            Map<String, Object> rateLimits = AdaptiveRateLimiter.shared().summary();
+            metrics.writeSummary(output, suiteMillis, rateLimits.isEmpty() ? Map.of() : Map.of("rateLimiter", rateLimits));
+            LOG.info("API metrics written to {}", output.toAbsolutePath());
+        } catch (IOException e) {
+            LOG.warn("Unable to write API metrics to {}", output, e);
+        }
+    }
+
+    private static void attachApiMetrics() {
+        ApiCallMetrics metrics = ApiCallMetrics.endTestScope();
+        if (metrics == null || metrics.isEmpty() || Allure.getLifecycle().getCurrentTestCase().isEmpty()) {
+            return;
+        }
+        Allure.addAttachment("api-metrics", "application/json", metrics.toJson(null), ".json");
+    }
+
+    private static void attachApiExchanges() {
+        String exchanges = RingBufferLoggingFilter.drainCurrentThread();
+        if (exchanges.isEmpty()) {
+            return;
+        }
+        if (Allure.getLifecycle().getCurrentTestCase().isPresent()) {
+            Allure.addAttachment("api-exchanges", "text/plain", exchanges, ".txt");
+        }
     }
 }
@@ -0,0 +1,24 @@
+package com.stripe.automation.load;
+
+import com.stripe.automation.metrics.LatencyHistogram;
+
+import java.util.Map;
+
+public record LoadReport(WebhookLoadGenerator.Mode mode, long sent, long failed, Map<Integer, Long> statuses,
+                         long elapsedNanos, LatencyHistogram.Snapshot latency) {
+
+    public double throughputPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : (sent - failed) / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    public long status(int code) {
+        return statuses.getOrDefault(code, 0L);
+    }
+
+    public String summary() {
+        return String.format("%s: sent=%d failed=%d statuses=%s throughput=%.1f req/s latency p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                mode, sent, failed, statuses, throughputPerSecond(),
+                latency.p50Nanos() / 1_000_000.0, latency.p99Nanos() / 1_000_000.0,
+                latency.p999Nanos() / 1_000_000.0, latency.maxNanos() / 1_000_000.0);
+    }
+}
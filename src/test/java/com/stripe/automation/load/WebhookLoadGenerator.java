@@ -0,0 +1,216 @@
+package com.stripe.automation.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.metrics.LatencyHistogram;
+import com.stripe.automation.utils.VirtualThreads;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public final class WebhookLoadGenerator {
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    public enum Mode {
+        FIXED_RATE,
+        FIXED_CONCURRENCY
+    }
+
+    public record Options(URI endpoint, Mode mode, int ratePerSecond, int concurrency, Duration duration, Duration requestTimeout) {
+    }
+
+    private final HttpClient client;
+    private final WebhookPayloadFactory payloads;
+
+    public WebhookLoadGenerator(WebhookPayloadFactory payloads) {
+        this.payloads = payloads;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public LoadReport run(Options options) throws InterruptedException {
+        Recorder recorder = new Recorder();
+        long startNanos = System.nanoTime();
+        if (options.mode() == Mode.FIXED_RATE) {
+            runFixedRate(options, recorder, startNanos);
+        } else {
+            runFixedConcurrency(options, recorder, startNanos);
+        }
+        return recorder.report(options.mode(), System.nanoTime() - startNanos);
+    }
+
+    private void runFixedRate(Options options, Recorder recorder, long startNanos) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.ratePerSecond());
+        long endNanos = startNanos + options.duration().toNanos();
+        SplittableRandom random = new SplittableRandom();
+        for (long i = 0; ; i++) {
+            long intendedNanos = startNanos + i * intervalNanos;
+            if (intendedNanos >= endNanos) {
+                break;
+            }
+            long waitNanos = intendedNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            recorder.pending.increment();
+            recorder.sent.increment();
+            client.sendAsync(request(options, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        recorder.record(response, error, System.nanoTime() - intendedNanos);
+                        recorder.pending.decrement();
+                    });
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (recorder.pending.sum() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void runFixedConcurrency(Options options, Recorder recorder, long startNanos) throws InterruptedException {
+        long endNanos = startNanos + options.duration().toNanos();
+        ExecutorService workers = VirtualThreads.newPerTaskExecutor("webhook-load");
+        for (int worker = 0; worker < Math.max(1, options.concurrency()); worker++) {
+            workers.execute(() -> {
+                SplittableRandom random = new SplittableRandom();
+                while (System.nanoTime() < endNanos) {
+                    long sentAt = System.nanoTime();
+                    recorder.sent.increment();
+                    try {
+                        HttpResponse<Void> response = client.send(request(options, random), HttpResponse.BodyHandlers.discarding());
+                        recorder.record(response, null, System.nanoTime() - sentAt);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        recorder.record(null, e, System.nanoTime() - sentAt);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(options.duration().toMillis() + DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private HttpRequest request(Options options, SplittableRandom random) {
+        WebhookPayloadFactory.SignedPayload payload = payloads.next(random);
+        return HttpRequest.newBuilder(options.endpoint())
+                .timeout(options.requestTimeout())
+                .header("Content-Type", "application/json")
+                .header("Stripe-Signature", payload.signature())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload.body()))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        String target = config("LOAD_TARGET_URL");
+        boolean startLocal = Boolean.parseBoolean(configOrDefault("LOAD_START_LOCAL_SERVER", String.valueOf(target == null)));
+        String secret = configOrDefault("LOAD_WEBHOOK_SECRET", ConfigManager.get("stripe.webhook.secret"));
+        if (secret == null || secret.isBlank()) {
+            secret = "whsec_load_" + UUID.randomUUID();
+        }
+
+        WebhookReceiverServer localServer = null;
+        if (startLocal) {
+            ConfigManager.override("stripe.webhook.secret", secret);
+            localServer = new WebhookReceiverServer();
+            localServer.start(0);
+            target = "http://localhost:" + localServer.port() + "/stripe/webhook";
+        }
+
+        try {
+            String replayPath = config("LOAD_REPLAY_PATH");
+            List<byte[]> replay = replayPath == null ? List.of() : WebhookPayloadFactory.loadCapturedEvents(Path.of(replayPath));
+            WebhookPayloadFactory payloads = new WebhookPayloadFactory(secret,
+                    Integer.parseInt(configOrDefault("LOAD_PAYLOAD_BYTES", "2048")),
+                    Double.parseDouble(configOrDefault("LOAD_DUPLICATE_RATIO", "0.05")),
+                    WebhookPayloadFactory.parseTypeMix(config("LOAD_TYPE_MIX")),
+                    replay);
+            Options options = new Options(URI.create(target),
+                    Mode.valueOf(configOrDefault("LOAD_MODE", "fixed_rate").toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(configOrDefault("LOAD_RATE", "500")),
+                    Integer.parseInt(configOrDefault("LOAD_CONCURRENCY", "32")),
+                    Duration.ofSeconds(Long.parseLong(configOrDefault("LOAD_DURATION_SECONDS", "30"))),
+                    Duration.ofSeconds(Long.parseLong(configOrDefault("LOAD_TIMEOUT_SECONDS", "10"))));
+
+            LoadReport report = new WebhookLoadGenerator(payloads).run(options);
+            Path output = Path.of(configOrDefault("LOAD_REPORT_PATH", "target/webhook-load-report.json"));
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("target", target);
+            json.put("throughputPerSecond", report.throughputPerSecond());
+            json.put("report", report);
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), json);
+            System.out.println(report.summary());
+            System.out.println("Webhook load report written: " + output);
+        } finally {
+            if (localServer != null) {
+                localServer.stop();
+            }
+        }
+    }
+
+    private static String configOrDefault(String key, String fallback) {
+        String value = config(key);
+        return (value == null || value.isBlank()) ? fallback : value;
+    }
+
+    private static String config(String key) {
+        String sysProp = System.getProperty(key);
+        if (sysProp != null && !sysProp.isBlank()) {
+            return sysProp;
+        }
+        String env = System.getenv(key);
+        if (env != null && !env.isBlank()) {
+            return env;
+        }
+        return null;
+    }
+
+    private static final class Recorder {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder pending = new LongAdder();
+
+        private void record(HttpResponse<?> response, Throwable error, long latencyNanos) {
+            latency.recordNanos(latencyNanos);
+            if (error != null || response == null) {
+                failed.increment();
+                return;
+            }
+            statuses.computeIfAbsent(response.statusCode(), code -> new LongAdder()).increment();
+        }
+
+        private LoadReport report(Mode mode, long elapsedNanos) {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((code, count) -> counts.put(code, count.sum()));
+            return new LoadReport(mode, sent.sum(), failed.sum(), counts, elapsedNanos, latency.snapshot());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.stripe.automation.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public final class WebhookPayloadFactory {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<String, Integer> DEFAULT_TYPE_MIX = Map.of(
+            "payment_intent.succeeded", 60,
+            "payment_intent.created", 25,
+            "charge.refunded", 15);
+
+    private final Mac prototype;
+    private final ThreadLocal<Mac> mac;
+    private final int payloadBytes;
+    private final double duplicateRatio;
+    private final String[] types;
+    private final int[] cumulativeWeights;
+    private final List<byte[]> replayEvents;
+    private final AtomicLong sequence = new AtomicLong();
+    private final long runId;
+
+    public WebhookPayloadFactory(String secret, int payloadBytes, double duplicateRatio, Map<String, Integer> typeMix, List<byte[]> replayEvents) {
+        try {
+            prototype = Mac.getInstance("HmacSHA256");
+            prototype.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialise HmacSHA256", e);
+        }
+        this.mac = ThreadLocal.withInitial(this::cloneMac);
+        this.payloadBytes = payloadBytes;
+        this.duplicateRatio = duplicateRatio;
+        Map<String, Integer> mix = typeMix == null || typeMix.isEmpty() ? DEFAULT_TYPE_MIX : typeMix;
+        this.types = mix.keySet().toArray(new String[0]);
+        this.cumulativeWeights = new int[types.length];
+        int total = 0;
+        for (int i = 0; i < types.length; i++) {
+            total += Math.max(0, mix.get(types[i]));
+            cumulativeWeights[i] = total;
+        }
+        this.replayEvents = replayEvents == null ? List.of() : List.copyOf(replayEvents);
+        this.runId = System.currentTimeMillis();
+    }
+
+    public SignedPayload next(SplittableRandom random) {
+        long n = sequence.getAndIncrement();
+        byte[] body = replayEvents.isEmpty()
+                ? generate(n, random)
+                : replayEvents.get((int) (n % replayEvents.size()));
+        return sign(body);
+    }
+
+    public SignedPayload sign(byte[] body) {
+        String timestamp = Long.toString(System.currentTimeMillis() / 1000);
+        Mac local = mac.get();
+        local.update(timestamp.getBytes(StandardCharsets.US_ASCII));
+        local.update((byte) '.');
+        byte[] digest = local.doFinal(body);
+        return new SignedPayload(body, "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(digest));
+    }
+
+    private byte[] generate(long n, SplittableRandom random) {
+        long eventNumber = n > 0 && random.nextDouble() < duplicateRatio ? random.nextLong(n) : n;
+        String type = pickType(random);
+        StringBuilder body = new StringBuilder(Math.max(256, payloadBytes))
+                .append("{\"id\":\"evt_load_").append(runId).append('_').append(eventNumber)
+                .append("\",\"object\":\"event\",\"type\":\"").append(type)
+                .append("\",\"created\":").append(System.currentTimeMillis() / 1000)
+                .append(",\"data\":{\"object\":{\"id\":\"").append(objectPrefix(type)).append(eventNumber % 1_000)
+                .append("\",\"amount\":").append(50 + eventNumber % 10_000)
+                .append(",\"currency\":\"usd\",\"metadata\":{\"padding\":\"");
+        int closing = "\"}}}}".length();
+        while (body.length() + closing < payloadBytes) {
+            body.append('x');
+        }
+        return body.append("\"}}}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String pickType(SplittableRandom random) {
+        int total = cumulativeWeights[cumulativeWeights.length - 1];
+        if (total <= 0) {
+            return types[0];
+        }
+        int roll = random.nextInt(total);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    private static String objectPrefix(String type) {
+        return type.startsWith("charge.") ? "ch_load_" : "pi_load_";
+    }
+
+    private Mac cloneMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static Map<String, Integer> parseTypeMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        if (value == null || value.isBlank()) {
+            return mix;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            mix.put(parts[0].trim(), parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+        }
+        return mix;
+    }
+
+    public static List<byte[]> loadCapturedEvents(Path source) throws IOException {
+        List<byte[]> events = new ArrayList<>();
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.list(source)) {
+                for (Path file : files.filter(p -> p.toString().endsWith(".json")).sorted().toList()) {
+                    events.addAll(loadCapturedEvents(file));
+                }
+            }
+            return events;
+        }
+
+        String content = Files.readString(source, StandardCharsets.UTF_8).trim();
+        if (content.startsWith("[")) {
+            for (JsonNode event : MAPPER.readTree(content)) {
+                events.add(MAPPER.writeValueAsBytes(event));
+            }
+        } else if (source.toString().endsWith(".jsonl")) {
+            for (String line : content.split("\\R")) {
+                if (!line.isBlank()) {
+                    events.add(line.trim().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } else if (!content.isEmpty()) {
+            events.add(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return events;
+    }
+
+    public record SignedPayload(byte[] body, String signature) {
+    }
+}
@@ -58,7 +58,7 @@ public final class PortableReportGenerator {
         return null;
     }
 
-    private static List<Row> loadRows(Path resultsDir) throws IOException {
+    public static List<Row> loadRows(Path resultsDir) throws IOException {
         if (!Files.exists(resultsDir)) {
             return List.of();
         }
@@ -269,7 +269,7 @@ public final class PortableReportGenerator {
         long unknown;
     }
 
-    private static final class Row {
+    public static final class Row {
         private final String name;
         private final String status;
         private final String suite;
@@ -1,14 +1,61 @@
 package com.stripe.automation.support;
 
+import com.stripe.automation.api.spec.ApiSpecifications;
+import com.stripe.automation.api.stub.StripeStandInServer;
 import com.stripe.automation.config.ConfigManager;
 import org.testng.SkipException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 public final class TestPrerequisites {
+    private static final String STAND_IN_SECRET_KEY = "sk_test_standin";
+    private static final String BASE_URL = "stripe.api.baseUrl";
+    private static final String SECRET_KEY = "stripe.secretKey";
+    private static final Map<StripeStandInServer, String[]> PREVIOUS_OVERRIDES = new ConcurrentHashMap<>();
+
     private TestPrerequisites() {}
 
+    public static StripeStandInServer startStripeStandInIfNeeded() {
+        String mode = ConfigManager.get("stripe.api.standIn");
+        String secretKey = ConfigManager.get("stripe.secretKey");
+        boolean missingKey = secretKey == null || secretKey.isBlank();
+        if ("false".equalsIgnoreCase(mode) || (!"true".equalsIgnoreCase(mode) && (!missingKey || ApiSpecifications.replayingCassette()))) {
+            return null;
+        }
+        String rateLimit = ConfigManager.get("stripe.standin.rateLimitPerSecond");
+        String acceptedKey = missingKey ? STAND_IN_SECRET_KEY : secretKey;
+        StripeStandInServer standIn = new StripeStandInServer(Set.of(acceptedKey),
+                rateLimit == null || rateLimit.isBlank() ? 0 : Integer.parseInt(rateLimit.trim()));
+        try {
+            standIn.start(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to start Stripe stand-in server", e);
+        }
+        PREVIOUS_OVERRIDES.put(standIn, new String[]{
+                ConfigManager.override(BASE_URL, standIn.baseUrl()),
+                ConfigManager.override(SECRET_KEY, acceptedKey)});
+        return standIn;
+    }
+
+    public static void stopStripeStandIn(StripeStandInServer standIn) {
+        if (standIn == null) {
+            return;
+        }
+        standIn.stop();
+        String[] previous = PREVIOUS_OVERRIDES.remove(standIn);
+        if (previous != null) {
+            ConfigManager.override(BASE_URL, previous[0]);
+            ConfigManager.override(SECRET_KEY, previous[1]);
+        }
+    }
+
     public static void requireStripeApiCredentials() {
         String secretKey = ConfigManager.get("stripe.secretKey");
-        if (secretKey == null || secretKey.isBlank()) {
+        if ((secretKey == null || secretKey.isBlank()) && !ApiSpecifications.replayingCassette()) {
             throw new SkipException("Skipping Stripe API tests: stripe.secretKey / STRIPE_SECRET_KEY is not configured");
         }
     }
@@ -0,0 +1,21 @@
+package com.stripe.automation.support;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+public final class WebhookSignatures {
+    private WebhookSignatures() {}
+
+    public static String hmac(String secret, String signedPayload) {
+        try {
+            Mac sha256 = Mac.getInstance("HmacSHA256");
+            sha256.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(sha256.doFinal(signedPayload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign webhook payload", e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.stripe.automation.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.stripe.automation.api.client.AdaptiveRateLimiter;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.metrics.ApiCallMetrics;
+import com.stripe.automation.utils.Json;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AdaptiveRateLimiterTests {
+    private static final String KEY = "sk_test_...abcd";
+    private static final String ENDPOINT = "POST /payment_intents";
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+
+    @Test
+    public void shouldServeBurstThenPaceAtTheRefillRate() throws Exception {
+        AdaptiveRateLimiter limiter = limiter(10, 2);
+
+        Assert.assertEquals(limiter.acquire(KEY, ENDPOINT), 0L);
+        Assert.assertEquals(limiter.acquire(KEY, ENDPOINT), 0L);
+        long waited = limiter.acquire(KEY, ENDPOINT);
+        Assert.assertEquals(waited, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    @Test
+    public void shouldHonourRetryAfterAndHalveTheRateOn429() throws Exception {
+        AdaptiveRateLimiter limiter = limiter(10, 1);
+        limiter.acquire(KEY, ENDPOINT);
+
+        limiter.onResponse(KEY, ENDPOINT, 429, name -> name.equals("Retry-After") ? "2" : null);
+
+        AdaptiveRateLimiter.Stats stats = limiter.stats().get(KEY + " " + ENDPOINT);
+        Assert.assertEquals(stats.ratePerSecond(), 5.0, 0.0001);
+        Assert.assertEquals(stats.throttled(), 1);
+        Assert.assertTrue(limiter.acquire(KEY, ENDPOINT) >= TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void shouldStaggerWaitersQueuedBehindAThrottle() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(settings(10, 1), clock::get, nanos -> { });
+        limiter.acquire(KEY, ENDPOINT);
+        limiter.onResponse(KEY, ENDPOINT, 429, name -> "1");
+
+        long first = limiter.acquire(KEY, ENDPOINT);
+        long second = limiter.acquire(KEY, ENDPOINT);
+        Assert.assertEquals(first, TimeUnit.SECONDS.toNanos(1), TimeUnit.MICROSECONDS.toNanos(1));
+        Assert.assertEquals(second - first, TimeUnit.MILLISECONDS.toNanos(200), TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    @Test
+    public void shouldIncreaseRateAdditivelyOnSuccessUpToTheCeiling() throws Exception {
+        AdaptiveRateLimiter limiter = limiter(10, 10);
+        for (int i = 0; i < 1_000; i++) {
+            limiter.acquire(KEY, ENDPOINT);
+            limiter.onResponse(KEY, ENDPOINT, 200, name -> null);
+        }
+
+        Map<String, AdaptiveRateLimiter.Stats> stats = limiter.stats();
+        Assert.assertEquals(stats.get(KEY + " " + ENDPOINT).ratePerSecond(), 20.0, 0.0001);
+        Assert.assertEquals(stats.get(KEY + " " + ENDPOINT).acquired(), 1_000);
+        Assert.assertTrue(stats.get(KEY + " " + ENDPOINT).waits().count() == 1_000);
+    }
+
+    @Test
+    public void shouldKeepSeparateBucketsPerCredentialAndEndpoint() throws Exception {
+        AdaptiveRateLimiter limiter = limiter(1, 1);
+        limiter.acquire(KEY, ENDPOINT);
+        limiter.onResponse(KEY, ENDPOINT, 429, name -> "5");
+
+        Assert.assertEquals(limiter.acquire(KEY, "POST /refunds"), 0L);
+        Assert.assertEquals(limiter.acquire("sk_live_...wxyz", ENDPOINT), 0L);
+    }
+
+    @Test
+    public void shouldRenderBucketStateInTheApiMetricsSummary() throws Exception {
+        AdaptiveRateLimiter limiter = limiter(10, 2);
+        limiter.acquire(KEY, ENDPOINT);
+        limiter.acquire(KEY, ENDPOINT);
+        limiter.acquire(KEY, ENDPOINT);
+        limiter.onResponse(KEY, ENDPOINT, 429, name -> "1");
+
+        String json = new ApiCallMetrics().toJson(null, Map.of("rateLimiter", limiter.summary()));
+
+        JsonNode bucket = Json.readTree(json.getBytes(StandardCharsets.UTF_8)).path("rateLimiter").path(KEY + " " + ENDPOINT);
+        Assert.assertEquals(bucket.path("ratePerSecond").asDouble(), 5.0, 0.0001);
+        Assert.assertEquals(bucket.path("acquired").asLong(), 3);
+        Assert.assertEquals(bucket.path("throttled").asLong(), 1);
+        Assert.assertTrue(bucket.path("blockedForMillis").asLong() >= 1_000, bucket.toString());
+        double maxWait = bucket.path("waitMillis").path("max").asDouble();
+        Assert.assertTrue(maxWait >= 90 && maxWait <= 110, bucket.toString());
+    }
+
+    @Test
+    public void shouldApplyRateLimitOverridesToTheSharedLimiter() {
+        AdaptiveRateLimiter shared = AdaptiveRateLimiter.shared();
+        try {
+            ConfigManager.override("stripe.api.rateLimit.enabled", "yes");
+            ConfigManager.override("stripe.api.rateLimit.maxPerSecond", "7");
+            Assert.assertTrue(shared.settings().enabled());
+            Assert.assertEquals(shared.settings().maxPerSecond(), 7.0, 0.0001);
+
+            ConfigManager.override("stripe.api.rateLimit.enabled", "off");
+            Assert.assertFalse(shared.settings().enabled());
+            Assert.assertSame(AdaptiveRateLimiter.shared(), shared);
+        } finally {
+            ConfigManager.clearOverride("stripe.api.rateLimit.enabled");
+            ConfigManager.clearOverride("stripe.api.rateLimit.maxPerSecond");
+        }
+        Assert.assertEquals(shared.settings(), AdaptiveRateLimiter.Settings.configured());
+    }
+
+    @Test
+    public void shouldBypassWhenDisabled() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(new AdaptiveRateLimiter.Settings(false, 1, 1, 1, 1, 0.5, 1,
+                Duration.ofSeconds(1)), clock::get, nanos -> Assert.fail("should not sleep"));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(limiter.acquire(KEY, ENDPOINT), 0L);
+        }
+        Assert.assertTrue(limiter.stats().isEmpty());
+    }
+
+    private AdaptiveRateLimiter limiter(double ratePerSecond, double burst) {
+        return new AdaptiveRateLimiter(settings(ratePerSecond, burst), clock::get, clock::addAndGet);
+    }
+
+    private static AdaptiveRateLimiter.Settings settings(double ratePerSecond, double burst) {
+        return new AdaptiveRateLimiter.Settings(true, ratePerSecond, 1, 20, burst, 0.5, 1, Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,165 @@
+package com.stripe.automation.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.stripe.automation.api.spec.ApiMetricsFilter;
+import com.stripe.automation.api.spec.ApiSpecifications;
+import com.stripe.automation.metrics.ApiCallMetrics;
+import com.stripe.automation.utils.CorrelationId;
+import com.stripe.automation.utils.Json;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.ContentType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.restassured.RestAssured.given;
+
+public class ApiCallMetricsTests {
+    private static final Filter STRIPE = (request, response, ctx) -> {
+        boolean declined = request.getFormParams().containsKey("decline");
+        return new ResponseBuilder()
+                .setStatusCode(declined ? 402 : 200)
+                .setContentType(ContentType.JSON)
+                .setBody(declined ? "{\"error\":{\"code\":\"card_declined\"}}" : "{\"id\":\"pi_123\"}")
+                .build();
+    };
+
+    @Test
+    public void shouldCarryTestScopeIntoPropagatingExecutorTasks() throws Exception {
+        ExecutorService executor = CorrelationId.executorService(Executors.newFixedThreadPool(2));
+        try {
+            ApiCallMetrics.startTestScope();
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                calls.add(executor.submit(() -> ApiCallMetrics.record("POST /refunds", 200, 1_000, 10, 20, "cid-bulk")));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+            ApiCallMetrics scope = ApiCallMetrics.endTestScope();
+            Assert.assertEquals(scope.snapshot().get("POST /refunds").calls(), 4);
+
+            executor.submit(() -> ApiCallMetrics.record("POST /refunds", 200, 1_000, 10, 20, "cid-after")).get();
+            Assert.assertNull(executor.submit(ApiCallMetrics::endTestScope).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldGroupCallsByTemplatedEndpointWithinATestScope() {
+        ApiCallMetrics.startTestScope();
+        try {
+            call("/payment_intents/{id}/confirm", "cid-1", Map.of(), "pi_3Q0abcDEF123");
+            call("/payment_intents/pi_3Q0xyzXYZ789/confirm", "cid-2", Map.of(), null);
+            call("/payment_intents", "cid-3", Map.of("amount", "2000", "currency", "usd"), null);
+            call("/payment_intents", "cid-4", Map.of("decline", "true"), null);
+        } finally {
+            ApiCallMetrics scope = ApiCallMetrics.endTestScope();
+            Map<String, ApiCallMetrics.EndpointSnapshot> endpoints = scope.snapshot();
+
+            Assert.assertEquals(endpoints.keySet(), Set.of("POST /payment_intents/{id}/confirm", "POST /payment_intents"));
+            ApiCallMetrics.EndpointSnapshot confirm = endpoints.get("POST /payment_intents/{id}/confirm");
+            Assert.assertEquals(confirm.calls(), 2);
+            Assert.assertEquals(confirm.errors(), 0);
+            Assert.assertEquals(confirm.bytesReceived(), 2 * "{\"id\":\"pi_123\"}".length());
+
+            ApiCallMetrics.EndpointSnapshot create = endpoints.get("POST /payment_intents");
+            Assert.assertEquals(create.statusCounts(), Map.of(200, 1L, 402, 1L));
+            Assert.assertEquals(create.errors(), 1);
+            Assert.assertEquals(create.recentFailureCorrelationIds(), List.of("cid-4"));
+            Assert.assertEquals(create.bytesSent(), "amount=2000&currency=usd".length() + "decline=true".length());
+            Assert.assertTrue(create.latency().maxNanos() > 0);
+        }
+        Assert.assertNull(ApiCallMetrics.endTestScope());
+    }
+
+    @Test
+    public void shouldCountFailedCallsWithoutAResponse() {
+        ApiCallMetrics.startTestScope();
+        Filter broken = (request, response, ctx) -> {
+            throw new IllegalStateException("connection reset");
+        };
+        Assert.assertThrows(IllegalStateException.class, () -> given().filter(new ApiMetricsFilter()).filter(broken)
+                .header(ApiSpecifications.CORRELATION_HEADER, "cid-reset").get("/v1/refunds"));
+
+        ApiCallMetrics.EndpointSnapshot refunds = ApiCallMetrics.endTestScope().snapshot().get("GET /v1/refunds");
+        Assert.assertEquals(refunds.statusCounts(), Map.of(ApiCallMetrics.NO_RESPONSE, 1L));
+        Assert.assertEquals(refunds.recentFailureCorrelationIds(), List.of("cid-reset"));
+    }
+
+    @Test
+    public void shouldAggregateConcurrentRecordsAndKeepTheSlowestCorrelationId() throws Exception {
+        ApiCallMetrics metrics = new ApiCallMetrics();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 25_000; i++) {
+                        metrics.add("POST /refunds", i % 100 == 0 ? 429 : 200, 1_000L + i, 10, 100, "cid-" + thread + "-" + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        metrics.add("POST /refunds", 200, 5_000_000L, 10, 100, "cid-slowest");
+
+        ApiCallMetrics.EndpointSnapshot refunds = metrics.snapshot().get("POST /refunds");
+        Assert.assertEquals(refunds.calls(), 100_001);
+        Assert.assertEquals(refunds.errors(), 1_000);
+        Assert.assertEquals(refunds.bytesReceived(), 10_000_100L);
+        Assert.assertEquals(refunds.slowestCorrelationId(), "cid-slowest");
+        Assert.assertEquals(refunds.recentFailureCorrelationIds().size(), 10);
+    }
+
+    @Test
+    public void shouldWriteAJsonSummaryWithSuiteShare() throws Exception {
+        ApiCallMetrics metrics = new ApiCallMetrics();
+        metrics.add("GET /payment_intents", 200, 40_000_000L, 0, 2_048, "cid-a");
+        metrics.add("GET /payment_intents", 200, 60_000_000L, 0, 2_048, "cid-b");
+        Path output = Files.createTempDirectory("api-metrics").resolve("nested/api-metrics.json");
+
+        metrics.writeSummary(output, 400L);
+
+        JsonNode summary = Json.readTree(Files.readAllBytes(output));
+        Assert.assertEquals(summary.path("suiteMillis").asLong(), 400L);
+        Assert.assertEquals(summary.path("apiMillis").asDouble(), 100.0, 0.001);
+        Assert.assertEquals(summary.path("apiShareOfSuite").asDouble(), 0.25, 0.001);
+        JsonNode list = summary.path("endpoints").path("GET /payment_intents");
+        Assert.assertEquals(list.path("calls").asLong(), 2);
+        Assert.assertEquals(list.path("status").path("200").asLong(), 2);
+        Assert.assertEquals(list.path("slowestCorrelationId").asText(), "cid-b");
+        Assert.assertTrue(new String(Files.readAllBytes(output), StandardCharsets.UTF_8).contains("latencyMillis"));
+    }
+
+    private static void call(String path, String correlationId, Map<String, String> form, String pathParam) {
+        var request = given().filter(new ApiMetricsFilter()).filter(STRIPE)
+                .header(ApiSpecifications.CORRELATION_HEADER, correlationId).contentType(ContentType.URLENC);
+        if (!form.isEmpty()) {
+            request.formParams(new TreeMap<>(form));
+        }
+        if (pathParam == null) {
+            request.post(path);
+        } else {
+            request.post(path, pathParam);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.spec.ApiSpecifications;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.utils.CorrelationId;
+import io.restassured.specification.QueryableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.SpecificationQuerier;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ApiSpecificationsTests {
+
+    @BeforeMethod
+    public void configure() {
+        ConfigManager.override("stripe.secretKey", "sk_test_spec");
+        ConfigManager.override("stripe.api.baseUrl", "http://localhost:12111/v1");
+    }
+
+    @AfterMethod
+    public void clearOverrides() {
+        ConfigManager.clearOverride("stripe.secretKey");
+        ConfigManager.clearOverride("stripe.api.baseUrl");
+    }
+
+    @Test
+    public void shouldReuseTemplateUntilInvalidatedOrReconfigured() {
+        RequestSpecification first = ApiSpecifications.template();
+        Assert.assertSame(ApiSpecifications.template(), first);
+
+        ConfigManager.override("unrelated.setting", "1");
+        ConfigManager.clearOverride("unrelated.setting");
+        Assert.assertSame(ApiSpecifications.template(), first);
+        ApiSpecifications.invalidate();
+        RequestSpecification second = ApiSpecifications.template();
+        Assert.assertNotSame(second, first);
+
+        ConfigManager.override("stripe.secretKey", "sk_test_rotated");
+        Assert.assertNotSame(ApiSpecifications.template(), second);
+        QueryableRequestSpecification rebuilt = SpecificationQuerier.query(ApiSpecifications.template());
+        Assert.assertEquals(rebuilt.getHeaders().getValue("Authorization"), "Bearer sk_test_rotated");
+    }
+
+    @Test
+    public void shouldLayerCorrelationAndIdempotencyHeadersPerRequest() {
+        QueryableRequestSpecification request = SpecificationQuerier.query(ApiSpecifications.stripeRequest("idem-1"));
+
+        Assert.assertEquals(request.getBaseUri(), "http://localhost:12111/v1");
+        Assert.assertEquals(request.getHeaders().getValue("Authorization"), "Bearer sk_test_spec");
+        Assert.assertEquals(request.getHeaders().getValue(ApiSpecifications.CORRELATION_HEADER), CorrelationId.get());
+        Assert.assertEquals(request.getHeaders().getValue(ApiSpecifications.IDEMPOTENCY_HEADER), "idem-1");
+        Assert.assertFalse(SpecificationQuerier.query(ApiSpecifications.template()).getHeaders().hasHeaderWithName(ApiSpecifications.IDEMPOTENCY_HEADER));
+    }
+
+    @Test
+    public void shouldFailFastWithoutSecretKey() {
+        ConfigManager.override("stripe.secretKey", " ");
+        Assert.assertThrows(IllegalStateException.class, ApiSpecifications::stripeRequest);
+    }
+}
@@ -0,0 +1,110 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.client.AsyncStripeApiClient;
+import com.stripe.automation.api.client.StripeHttpResponse;
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.RefundRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+public class AsyncStripeApiClientTests {
+    private final Map<String, String> lastForms = new ConcurrentHashMap<>();
+    private final Map<String, String> lastHeaders = new ConcurrentHashMap<>();
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+    private AsyncStripeApiClient client;
+
+    @BeforeClass
+    public void startStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        client = new AsyncStripeApiClient("http://localhost:" + server.getAddress().getPort() + "/v1/", "sk_test_async",
+                Duration.ofSeconds(5), http);
+    }
+
+    @AfterClass
+    public void stopStandIn() {
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldPostFormEncodedPaymentIntentWithHeaders() {
+        StripeHttpResponse response = client.createPaymentIntent(
+                new PaymentIntentRequest(2000L, "usd", "pm_card_visa", true), "idem-async-1").join();
+
+        Assert.assertEquals(response.statusCode(), 200);
+        Assert.assertTrue(response.isSuccessful());
+        Assert.assertTrue(response.body().contains("\"object\":\"payment_intent\""), response.body());
+        Assert.assertEquals(lastForms.get("/v1/payment_intents"), "amount=2000&currency=usd&payment_method=pm_card_visa&confirm=true");
+        Assert.assertEquals(lastHeaders.get("Authorization"), "Bearer sk_test_async");
+        Assert.assertEquals(lastHeaders.get("Idempotency-key"), "idem-async-1");
+        Assert.assertNotNull(lastHeaders.get("X-correlation-id"));
+    }
+
+    @Test
+    public void shouldConfirmAndRefundAsynchronously() {
+        CompletableFuture<StripeHttpResponse> confirm = client.confirmPaymentIntent("pi_123");
+        CompletableFuture<StripeHttpResponse> refund = client.createRefund(new RefundRequest("pi_123", null));
+
+        Assert.assertEquals(confirm.join().statusCode(), 200);
+        Assert.assertEquals(refund.join().statusCode(), 200);
+        Assert.assertTrue(lastForms.containsKey("/v1/payment_intents/pi_123/confirm"));
+        Assert.assertEquals(lastForms.get("/v1/refunds"), "payment_intent=pi_123");
+    }
+
+    @Test
+    public void shouldRejectInvalidRequestsBeforeSending() {
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> client.createPaymentIntent(new PaymentIntentRequest(10L, "usd", "pm_card_visa", false), "idem"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> client.createRefund(new RefundRequest(" ", 100L)));
+    }
+
+    @Test
+    public void shouldReuseKeepAliveConnectionsForConcurrentCalls() {
+        remotePorts.clear();
+        for (int round = 0; round < 5; round++) {
+            List<CompletableFuture<StripeHttpResponse>> inFlight = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                inFlight.add(client.createRefund(new RefundRequest("pi_pool_" + i, 100L), "idem-pool-" + round + "-" + i));
+            }
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+            inFlight.forEach(future -> Assert.assertEquals(future.join().statusCode(), 200));
+        }
+
+        Assert.assertTrue(remotePorts.size() <= 10, "connections opened: " + remotePorts.size());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            lastForms.put(path, new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.getRequestHeaders().forEach((name, values) -> lastHeaders.put(name, values.get(0)));
+            remotePorts.add(exchange.getRemoteAddress().getPort());
+            String object = path.startsWith("/v1/refunds") ? "refund" : "payment_intent";
+            byte[] body = ("{\"id\":\"" + object + "_stub\",\"object\":\"" + object + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.RefundRequest;
+import com.stripe.automation.api.validation.BatchValidationResult;
+import com.stripe.automation.api.validation.StripeRequestValidator;
+import com.stripe.automation.api.validation.ValidationResult;
+import com.stripe.automation.api.validation.Violation;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class BatchValidationTests {
+    private static final long[] AMOUNTS = {0L, 49L, 50L, 2_000L, 99_999_999L, 100_000_000L};
+    private static final String[] CURRENCIES = {"usd", "EUR", "gBp", "inr", "", "us", "usdx", "üsd"};
+    private static final String[] METHODS = {"pm_card_visa", " ", "pm_card_mastercard"};
+
+    @Test
+    public void shouldMatchSingleItemValidationAcrossCores() {
+        List<PaymentIntentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 100_003; i++) {
+            requests.add(new PaymentIntentRequest(AMOUNTS[i % AMOUNTS.length], CURRENCIES[i / 7 % CURRENCIES.length],
+                    METHODS[i / 11 % METHODS.length], true));
+        }
+        requests.set(64_000, null);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool singleThreaded = new ForkJoinPool(1);
+        try {
+            BatchValidationResult batch = StripeRequestValidator.validatePaymentIntents(requests, pool);
+            BatchValidationResult single = StripeRequestValidator.validatePaymentIntents(requests, singleThreaded);
+
+            Assert.assertEquals(batch.size(), requests.size());
+            Assert.assertEquals(batch.validItems(), single.validItems());
+            ValidationResult expected = StripeRequestValidator.newPaymentIntentResult();
+            int invalid = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                StripeRequestValidator.checkPaymentIntent(requests.get(i), expected);
+                Assert.assertEquals(batch.isValid(i), expected.isValid(), "item " + i);
+                Assert.assertEquals(batch.violations(i), expected.violations(), "item " + i);
+                invalid += expected.isValid() ? 0 : 1;
+            }
+            Assert.assertEquals(batch.invalidCount(), invalid);
+            Assert.assertEquals(batch.validCount() + batch.invalidCount(), requests.size());
+            Assert.assertEquals(batch.violations(64_000), List.of(new Violation("request", "parameter_missing", "PaymentIntentRequest must not be null")));
+        } finally {
+            pool.shutdown();
+            singleThreaded.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldLookUpCurrenciesWithoutCaseFoldingStrings() {
+        Assert.assertTrue(StripeRequestValidator.checkPaymentIntent(new PaymentIntentRequest(100L, "CaD", "pm_card_visa", true)).isValid());
+        for (String currency : new String[]{"inr", "us", "usdx", "üsd", "u$d", "[sd", "USD@"}) {
+            Assert.assertTrue(StripeRequestValidator.checkPaymentIntent(new PaymentIntentRequest(100L, currency, "pm_card_visa", true))
+                    .hasViolation("currency", "invalid_currency"), currency);
+        }
+    }
+
+    @Test
+    public void shouldValidateRefundStreamsAndEmptyBatches() {
+        BatchValidationResult refunds = StripeRequestValidator.validateRefunds(IntStream.range(0, 10_000)
+                .mapToObj(i -> new RefundRequest(i % 1_000 == 0 ? "" : "pi_" + i, i % 2_500 == 1 ? 0L : null)));
+
+        Assert.assertEquals(refunds.invalidCount(), 14);
+        Assert.assertEquals(refunds.invalidIndexes()[1], 1);
+        Assert.assertEquals(refunds.violations(1).get(0).code(), "amount_too_small");
+        Assert.assertTrue(refunds.violations(2).isEmpty());
+
+        BatchValidationResult empty = StripeRequestValidator.validatePaymentIntents(List.of());
+        Assert.assertTrue(empty.allValid());
+        Assert.assertEquals(empty.size(), 0);
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> empty.isValid(0));
+    }
+}
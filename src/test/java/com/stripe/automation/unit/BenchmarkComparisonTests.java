@@ -0,0 +1,45 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.benchmarks.BenchmarkComparison;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public class BenchmarkComparisonTests {
+
+    @Test
+    public void shouldTreatHigherThroughputAsImprovementAndHigherAverageTimeAsRegression() throws Exception {
+        List<BenchmarkComparison.Comparison> comparisons = BenchmarkComparison.compare(
+                BenchmarkComparison.scores(resource("benchmarks/baseline-result.json")),
+                BenchmarkComparison.scores(resource("benchmarks/current-result.json")), 10.0);
+
+        Map<String, Boolean> regressed = comparisons.stream().collect(Collectors.toMap(
+                comparison -> comparison.benchmark().replace("com.stripe.automation.benchmarks.", ""),
+                BenchmarkComparison.Comparison::regressed, (a, b) -> a, TreeMap::new));
+
+        Assert.assertEquals(regressed, new TreeMap<>(Map.of(
+                "BatchValidationBenchmark.validatePaymentIntents{cores=4} [ms/op]", true,
+                "CorrelationIdBenchmark.correlationIdNext [ops/us]", false,
+                "CorrelationIdBenchmark.correlationIdWrap [ops/us]", false,
+                "CorrelationIdBenchmark.uuidRandom [ops/us]", true,
+                "FrameworkHotPathsBenchmark.configGetInt [ns/op]", false,
+                "FrameworkHotPathsBenchmark.serverVerifySignature [ns/op]", true)));
+
+        BenchmarkComparison.Comparison faster = comparisons.stream()
+                .filter(comparison -> comparison.benchmark().endsWith("correlationIdNext [ops/us]")).findFirst().orElseThrow();
+        Assert.assertTrue(faster.current().higherIsBetter());
+        Assert.assertEquals(faster.delta(), 50.0, 0.001);
+        Assert.assertTrue(comparisons.stream().filter(BenchmarkComparison.Comparison::isNew)
+                .allMatch(comparison -> comparison.benchmark().endsWith("correlationIdWrap [ops/us]")));
+    }
+
+    private static Path resource(String name) throws URISyntaxException {
+        return Path.of(BenchmarkComparisonTests.class.getClassLoader().getResource(name).toURI());
+    }
+}
@@ -0,0 +1,182 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.cassette.Cassette;
+import com.stripe.automation.api.cassette.CassetteFilter;
+import com.stripe.automation.api.cassette.CassetteMode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+public class CassetteTests {
+    private final AtomicInteger served = new AtomicInteger();
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/", this::handle);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldReplayRecordedExchangesInOrderWithoutTheNetwork() throws IOException {
+        Path file = Files.createTempDirectory("cassette").resolve("stripe.cassette");
+        Response recordedFirst;
+        Response recordedSecond;
+        try (Cassette cassette = Cassette.open(file, CassetteMode.RECORD)) {
+            recordedFirst = create(cassette, "2000", "usd");
+            recordedSecond = create(cassette, "2000", "usd");
+            Assert.assertNotEquals(recordedSecond.jsonPath().getString("id"), recordedFirst.jsonPath().getString("id"));
+            Assert.assertEquals(create(cassette, "500", "eur").statusCode(), 402);
+            Assert.assertEquals(cassette.recorded(), 3);
+        }
+        int servedBeforeReplay = served.get();
+
+        try (Cassette cassette = Cassette.open(file, CassetteMode.REPLAY)) {
+            Response first = create(cassette, "2000", "usd");
+            first.then().statusCode(200).contentType(ContentType.JSON).body("object", equalTo("payment_intent"));
+            Assert.assertEquals(first.jsonPath().getString("id"), recordedFirst.jsonPath().getString("id"));
+            Assert.assertEquals(first.getHeader("Request-Id"), recordedFirst.getHeader("Request-Id"));
+            Assert.assertEquals(create(cassette, "2000", "usd").jsonPath().getString("id"), recordedSecond.jsonPath().getString("id"));
+            Assert.assertEquals(create(cassette, "2000", "usd").jsonPath().getString("id"), recordedSecond.jsonPath().getString("id"));
+            Response declined = create(cassette, "500", "eur");
+            Assert.assertEquals(declined.statusCode(), 402);
+            Assert.assertEquals(declined.jsonPath().getString("error.code"), "card_declined");
+            Assert.assertEquals(cassette.replayed(), 4);
+        }
+        Assert.assertEquals(served.get(), servedBeforeReplay);
+    }
+
+    @Test
+    public void shouldMatchFormBodiesRegardlessOfParameterOrder() throws IOException {
+        Path file = Files.createTempDirectory("cassette").resolve("stripe.cassette");
+        try (Cassette cassette = Cassette.open(file, CassetteMode.RECORD)) {
+            request(cassette).formParam("currency", "usd").formParam("amount", "700").post("/v1/payment_intents");
+        }
+        try (Cassette cassette = Cassette.open(file, CassetteMode.REPLAY)) {
+            Response replayed = request(cassette).formParam("amount", "700").formParam("currency", "usd").post("/v1/payment_intents");
+            Assert.assertEquals(replayed.statusCode(), 200);
+            Assert.assertThrows(IllegalStateException.class, () -> create(cassette, "701", "usd"));
+        }
+    }
+
+    @Test
+    public void shouldOnlyHitTheNetworkForMissesInReplayOrRecordMode() throws IOException {
+        Path file = Files.createTempDirectory("cassette").resolve("stripe.cassette");
+        try (Cassette cassette = Cassette.open(file, CassetteMode.REPLAY_OR_RECORD)) {
+            create(cassette, "1000", "usd");
+        }
+        int servedBefore = served.get();
+        try (Cassette cassette = Cassette.open(file, CassetteMode.REPLAY_OR_RECORD)) {
+            create(cassette, "1000", "usd");
+            Assert.assertEquals(served.get(), servedBefore);
+            create(cassette, "1000", "usd");
+            create(cassette, "1100", "usd");
+            Assert.assertEquals(served.get(), servedBefore + 2);
+            Assert.assertEquals(cassette.size(), 3);
+        }
+    }
+
+    @Test
+    public void shouldKeepLookupsWorkingAcrossIndexGrowthAndReopen() throws IOException {
+        Path file = Files.createTempDirectory("cassette").resolve("bulk.cassette");
+        int interactions = 5_000;
+        try (Cassette cassette = Cassette.open(file, CassetteMode.RECORD)) {
+            for (int i = 0; i < interactions; i++) {
+                String key = cassette.nextKey("POST", "/v1/refunds", "amount=" + i + "&payment_intent=pi_" + (i % 50));
+                cassette.record(key, new Cassette.Interaction(200, "HTTP/1.1 200 OK", List.of(Map.entry("Request-Id", "req_" + i)),
+                        ("{\"id\":\"re_" + i + "\"}").getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+
+        long start = System.nanoTime();
+        try (Cassette cassette = Cassette.open(file, CassetteMode.REPLAY)) {
+            long openMillis = (System.nanoTime() - start) / 1_000_000;
+            Assert.assertTrue(openMillis < 2_000, "opened " + interactions + " interactions in " + openMillis + " ms");
+            Assert.assertEquals(cassette.size(), interactions);
+            for (int i = interactions - 1; i >= 0; i--) {
+                Cassette.Interaction found = cassette.find(cassette.nextKey("POST", "/v1/refunds", "amount=" + i + "&payment_intent=pi_" + (i % 50)));
+                Assert.assertNotNull(found, "interaction " + i);
+                Assert.assertEquals(new String(found.body(), StandardCharsets.UTF_8), "{\"id\":\"re_" + i + "\"}");
+            }
+            Assert.assertNull(cassette.find(cassette.nextKey("GET", "/v1/refunds", "")));
+        }
+    }
+
+    @Test
+    public void shouldKeepServingAfterAnInterruptedThreadTouchesIt() throws IOException {
+        Path file = Files.createTempDirectory("cassette").resolve("interrupt.cassette");
+        try (Cassette cassette = Cassette.open(file, CassetteMode.RECORD)) {
+            for (int i = 0; i < 3; i++) {
+                cassette.record(cassette.nextKey("GET", "/v1/refunds", "page=" + i), new Cassette.Interaction(200, "HTTP/1.1 200 OK",
+                        List.of(), ("{\"page\":" + i + "}").getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+
+        try (Cassette cassette = Cassette.open(file, CassetteMode.REPLAY)) {
+            Thread.currentThread().interrupt();
+            try {
+                Assert.assertNotNull(cassette.find(cassette.nextKey("GET", "/v1/refunds", "page=0")));
+            } finally {
+                Assert.assertTrue(Thread.interrupted(), "interrupt status must be preserved");
+            }
+            Cassette.Interaction next = cassette.find(cassette.nextKey("GET", "/v1/refunds", "page=1"));
+            Assert.assertEquals(new String(next.body(), StandardCharsets.UTF_8), "{\"page\":1}");
+        }
+    }
+
+    @Test
+    public void shouldRefuseToReplayAMissingCassette() throws IOException {
+        Path file = Files.createTempDirectory("cassette").resolve("missing.cassette");
+        Assert.assertThrows(IOException.class, () -> Cassette.open(file, CassetteMode.REPLAY));
+    }
+
+    private Response create(Cassette cassette, String amount, String currency) {
+        return request(cassette).formParam("amount", amount).formParam("currency", currency).post("/v1/payment_intents");
+    }
+
+    private RequestSpecification request(Cassette cassette) {
+        return given().filter(new CassetteFilter(cassette)).baseUri(baseUrl).contentType(ContentType.URLENC);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int n = served.incrementAndGet();
+            String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            boolean declined = form.contains("currency=eur");
+            String body = declined
+                    ? "{\"error\":{\"type\":\"card_error\",\"code\":\"card_declined\"}}"
+                    : "{\"id\":\"pi_" + n + "\",\"object\":\"payment_intent\"}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Request-Id", "req_" + n);
+            exchange.sendResponseHeaders(declined ? 402 : 200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+}
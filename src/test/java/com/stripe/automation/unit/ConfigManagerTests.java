@@ -1,16 +1,32 @@
 package com.stripe.automation.unit;
 
+import com.stripe.automation.config.ConfigChangeListener;
+import com.stripe.automation.config.ConfigFileWatcher;
 import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.config.ConfigSnapshot;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 public class ConfigManagerTests {
 
     @AfterMethod
     public void clearOverrides() {
-        System.clearProperty("stripe.api.baseUrl");
-        System.clearProperty("missing.key");
+        ConfigManager.clearOverride("stripe.api.baseUrl");
+        ConfigManager.clearOverride("missing.key");
+        ConfigManager.clearOverride("config.test.port");
+        ConfigManager.clearOverride("config.test.host");
     }
 
     @Test
@@ -19,8 +35,26 @@ public class ConfigManagerTests {
     }
 
     @Test
-    public void shouldPrioritizeSystemPropertyOverConfig() {
-        System.setProperty("stripe.api.baseUrl", "https://example.test");
+    public void shouldPrioritizeSystemPropertyOverConfigFromTheLastReload() {
+        try {
+            System.setProperty("config.test.port", "8080");
+            Assert.assertNull(ConfigManager.get("config.test.port"));
+            ConfigManager.reload();
+            Assert.assertEquals(ConfigManager.get("config.test.port"), "8080");
+
+            ConfigManager.override("config.test.port", "8443");
+            Assert.assertEquals(ConfigManager.get("config.test.port"), "8443");
+            ConfigManager.clearOverride("config.test.port");
+            Assert.assertEquals(ConfigManager.get("config.test.port"), "8080");
+        } finally {
+            System.clearProperty("config.test.port");
+            ConfigManager.reload();
+        }
+    }
+
+    @Test
+    public void shouldPrioritizeOverrideOverConfig() {
+        ConfigManager.override("stripe.api.baseUrl", "https://example.test");
         Assert.assertEquals(ConfigManager.get("stripe.api.baseUrl"), "https://example.test");
     }
 
@@ -28,4 +62,124 @@ public class ConfigManagerTests {
     public void shouldReturnNullForUnknownKey() {
         Assert.assertNull(ConfigManager.get("missing.key"));
     }
+
+    @Test
+    public void shouldInterpolatePlaceholdersWithDefaults() {
+        ConfigSnapshot snapshot = ConfigSnapshot.resolve(Map.of(
+                        "host", "api.stripe.test",
+                        "url", "https://${host}:${PORT:443}/${VERSION}",
+                        "secret", "${STRIPE_KEY}",
+                        "missing", "${NOT_SET}",
+                        "optional", "${NOT_SET:}",
+                        "literal", "cost ${ not closed"),
+                Map.of("host", "override.test"), Map.of("VERSION", "v1", "STRIPE_KEY", "sk_test_env"), 1L);
+
+        Assert.assertEquals(snapshot.get("url"), "https://override.test:443/v1");
+        Assert.assertEquals(snapshot.get("secret"), "sk_test_env");
+        Assert.assertNull(snapshot.get("missing"));
+        Assert.assertEquals(snapshot.get("optional"), "");
+        Assert.assertEquals(snapshot.get("literal"), "cost ${ not closed");
+        Assert.assertThrows(IllegalStateException.class,
+                () -> ConfigSnapshot.resolve(Map.of("a", "${b}", "b", "${a}"), Map.of(), Map.of(), 1L));
+    }
+
+    @Test
+    public void shouldParseTypedValuesOnce() {
+        ConfigSnapshot snapshot = ConfigSnapshot.resolve(Map.of(
+                "threads", " 16 ", "enabled", "on", "timeout", "30", "backoff", "250ms", "ttl", "PT2H", "broken", "sixteen"),
+                Map.of(), Map.of(), 1L);
+
+        Assert.assertEquals(snapshot.getInt("threads", 1), 16);
+        Assert.assertEquals(snapshot.getLong("threads", 1L), 16L);
+        Assert.assertTrue(snapshot.getBoolean("enabled", false));
+        Assert.assertEquals(snapshot.getDuration("timeout", ChronoUnit.SECONDS, Duration.ZERO), Duration.ofSeconds(30));
+        Assert.assertEquals(snapshot.getDuration("backoff", ChronoUnit.SECONDS, Duration.ZERO), Duration.ofMillis(250));
+        Assert.assertEquals(snapshot.getDuration("ttl", ChronoUnit.HOURS, Duration.ZERO), Duration.ofHours(2));
+        Assert.assertEquals(snapshot.getInt("absent", 7), 7);
+        Assert.assertEquals(snapshot.getDouble("absent", 0.5), 0.5);
+        Assert.assertThrows(IllegalStateException.class, () -> snapshot.getInt("broken", 1));
+        Assert.assertThrows(IllegalStateException.class, () -> snapshot.getBoolean("broken", true));
+    }
+
+    @Test
+    public void shouldSwapSnapshotAndNotifyListenersWhenOverridesChange() {
+        List<Set<String>> notifications = new ArrayList<>();
+        ConfigChangeListener listener = (changedKeys, current) -> notifications.add(changedKeys);
+        ConfigManager.addListener(listener);
+        try {
+            ConfigSnapshot before = ConfigManager.snapshot();
+            ConfigManager.override("config.test.port", "8443");
+
+            ConfigSnapshot after = ConfigManager.snapshot();
+            Assert.assertNotSame(after, before);
+            Assert.assertTrue(after.version() > before.version());
+            Assert.assertNull(before.get("config.test.port"));
+            Assert.assertEquals(ConfigManager.getInt("config.test.port", 0), 8443);
+            Assert.assertEquals(notifications, List.of(Set.of("config.test.port")));
+
+            ConfigManager.override("config.test.port", "8443");
+            Assert.assertSame(ConfigManager.snapshot(), after);
+            ConfigManager.clearOverride("config.test.port");
+            Assert.assertEquals(ConfigManager.getInt("config.test.port", 0), 0);
+            Assert.assertEquals(notifications.size(), 2);
+        } finally {
+            ConfigManager.removeListener(listener);
+        }
+    }
+
+    @Test
+    public void shouldNotifyListenersOutsideTheConfigLock() throws Exception {
+        CountDownLatch otherThreadDone = new CountDownLatch(1);
+        List<Set<String>> notifications = new ArrayList<>();
+        ConfigChangeListener listener = (changedKeys, current) -> {
+            notifications.add(changedKeys);
+            if (changedKeys.contains("config.test.port")) {
+                Thread other = new Thread(() -> {
+                    ConfigManager.override("config.test.host", "standin.local");
+                    otherThreadDone.countDown();
+                });
+                other.start();
+                try {
+                    Assert.assertTrue(otherThreadDone.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ConfigManager.addListener(listener);
+        try {
+            ConfigManager.override("config.test.port", "8443");
+
+            Assert.assertEquals(otherThreadDone.getCount(), 0);
+            Assert.assertEquals(ConfigManager.get("config.test.host"), "standin.local");
+            Assert.assertEquals(notifications, List.of(Set.of("config.test.port"), Set.of("config.test.host")));
+        } finally {
+            ConfigManager.removeListener(listener);
+        }
+    }
+
+    @Test
+    public void shouldTrimValuesForEveryGetter() {
+        ConfigManager.override("config.test.host", "  standin.local \t");
+        ConfigManager.override("config.test.port", " 8443 ");
+
+        Assert.assertEquals(ConfigManager.get("config.test.host"), "standin.local");
+        Assert.assertEquals(ConfigManager.get("config.test.host", "fallback"), "standin.local");
+        Assert.assertEquals(ConfigManager.getInt("config.test.port", 0), 8443);
+        ConfigManager.override("config.test.host", "   ");
+        Assert.assertEquals(ConfigManager.get("config.test.host"), "");
+        Assert.assertEquals(ConfigManager.get("config.test.host", "fallback"), "fallback");
+    }
+
+    @Test
+    public void shouldReportChangesToAWatchedFile() throws Exception {
+        Path file = Files.createTempDirectory("config-watch").resolve("test.properties");
+        Files.writeString(file, "webhook.port=9090\n");
+        CountDownLatch changed = new CountDownLatch(1);
+        try (ConfigFileWatcher ignored = ConfigFileWatcher.start(file, changed::countDown)) {
+            Files.writeString(file.resolveSibling("other.properties"), "unrelated=true\n");
+            Files.writeString(file, "webhook.port=9091\n");
+            Assert.assertTrue(changed.await(10, TimeUnit.SECONDS), "no change event for " + file);
+        }
+    }
 }
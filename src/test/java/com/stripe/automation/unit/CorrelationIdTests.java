@@ -1,11 +1,28 @@
 package com.stripe.automation.unit;
 
 import com.stripe.automation.utils.CorrelationId;
+import org.slf4j.MDC;
 import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 public class CorrelationIdTests {
 
+    @AfterMethod(alwaysRun = true)
+    public void clearCorrelationId() {
+        CorrelationId.clear();
+    }
+
     @Test
     public void shouldReturnStableIdWithinSameThreadUntilRefresh() {
         String first = CorrelationId.get();
@@ -20,4 +37,90 @@ public class CorrelationIdTests {
         String refreshed = CorrelationId.get();
         Assert.assertNotEquals(initial, refreshed);
     }
+
+    @Test
+    public void shouldGenerateTimeOrderedCrockfordIds() {
+        long before = System.currentTimeMillis();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(CorrelationId.next());
+        }
+
+        List<String> sorted = new ArrayList<>(ids);
+        sorted.sort(null);
+        Assert.assertEquals(sorted, ids);
+        Assert.assertEquals(Set.copyOf(ids).size(), ids.size());
+        for (String id : ids) {
+            Assert.assertTrue(id.matches("[0-9A-HJKMNP-TV-Z]{26}"), id);
+        }
+        long timestamp = CorrelationId.timestampMillis(ids.get(0));
+        Assert.assertTrue(Math.abs(timestamp - before) < 1_000, "timestamp " + timestamp + " vs " + before);
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsAcrossThreads() throws Exception {
+        int threads = 16;
+        int perThread = 5_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                done.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(CorrelationId.next());
+                    }
+                }, executor));
+            }
+            start.countDown();
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(ids.size(), threads * perThread);
+    }
+
+    @Test
+    public void shouldPropagateIdIntoExecutorAndCompletableFutureTasks() throws Exception {
+        ExecutorService executor = CorrelationId.executorService(Executors.newSingleThreadExecutor());
+        try {
+            String caller = CorrelationId.get();
+            Assert.assertEquals(executor.submit(CorrelationId::get).get(), caller);
+
+            try (CorrelationId.Scope ignored = CorrelationId.scope("cid-parent")) {
+                Assert.assertEquals(executor.submit(CorrelationId::get).get(), "cid-parent");
+                Assert.assertEquals(executor.submit(() -> MDC.get(CorrelationId.MDC_KEY)).get(), "cid-parent");
+                Assert.assertEquals(CompletableFuture.supplyAsync(CorrelationId::get, executor).get(), "cid-parent");
+                Assert.assertEquals(CorrelationId.supplyAsync(CorrelationId::get, Runnable::run)
+                        .thenApplyAsync(id -> id + ":" + CorrelationId.get(), executor).get(), "cid-parent:cid-parent");
+            }
+
+            Assert.assertEquals(executor.submit(CorrelationId::get).get(), caller);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldRestorePreviousIdAndMdcWhenScopeCloses() {
+        String outer = CorrelationId.get();
+        Assert.assertEquals(MDC.get(CorrelationId.MDC_KEY), outer);
+
+        try (CorrelationId.Scope ignored = CorrelationId.scope("cid-inner")) {
+            Assert.assertEquals(CorrelationId.get(), "cid-inner");
+            Assert.assertEquals(MDC.get(CorrelationId.MDC_KEY), "cid-inner");
+        }
+        Assert.assertEquals(CorrelationId.get(), outer);
+        Assert.assertEquals(MDC.get(CorrelationId.MDC_KEY), outer);
+
+        CorrelationId.clear();
+        Assert.assertNull(MDC.get(CorrelationId.MDC_KEY));
+    }
 }
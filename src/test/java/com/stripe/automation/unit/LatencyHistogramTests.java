@@ -0,0 +1,40 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.metrics.LatencyHistogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void shouldReportPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.recordNanos(micros * 1_000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(snapshot.count(), 1_000);
+        Assert.assertEquals(snapshot.maxNanos(), 1_000_000);
+        Assert.assertEquals(snapshot.p50Nanos(), 500_000, 500_000 * 0.07);
+        Assert.assertEquals(snapshot.p99Nanos(), 990_000, 990_000 * 0.07);
+        Assert.assertTrue(snapshot.p999Nanos() <= snapshot.maxNanos());
+        Assert.assertEquals(snapshot.meanNanos(), 500_500.0, 0.5);
+    }
+
+    @Test
+    public void shouldMergeAndResetHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.recordNanos(10);
+        second.recordNanos(5_000);
+
+        first.add(second);
+        Assert.assertEquals(first.count(), 2);
+        Assert.assertEquals(first.snapshot().maxNanos(), 5_000);
+
+        first.reset();
+        Assert.assertEquals(first.snapshot().count(), 0);
+        Assert.assertEquals(first.snapshot().p99Nanos(), 0);
+    }
+}
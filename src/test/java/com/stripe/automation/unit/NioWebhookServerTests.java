@@ -0,0 +1,167 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.load.LoadReport;
+import com.stripe.automation.load.WebhookLoadGenerator;
+import com.stripe.automation.load.WebhookPayloadFactory;
+import com.stripe.automation.support.WebhookSignatures;
+import com.stripe.automation.webhook.WebhookExecutorMode;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+import com.stripe.automation.webhook.WebhookServerEngine;
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class NioWebhookServerTests {
+    private static final String SECRET = "whsec_nio_test";
+    private static final int IDLE_CONNECTIONS = 500;
+    private WebhookReceiverServer server;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        ConfigManager.override("stripe.webhook.secret", SECRET);
+        server = new WebhookReceiverServer(WebhookServerEngine.NIO, WebhookExecutorMode.PLATFORM, 4);
+        server.start(0);
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop();
+        ConfigManager.clearOverride("stripe.webhook.secret");
+    }
+
+    @Test
+    public void shouldServePipelinedRequestsOnOneKeepAliveConnection() throws Exception {
+        String first = "{\"id\":\"evt_nio_1\",\"type\":\"payment_intent.succeeded\"}";
+        String second = "{\"id\":\"evt_nio_2\",\"type\":\"charge.refunded\"}";
+        try (Socket socket = new Socket("localhost", server.port())) {
+            OutputStream out = socket.getOutputStream();
+            out.write((request(first, "v1=" + WebhookSignatures.hmac(SECRET, first)) + request(first, "v1=" + WebhookSignatures.hmac(SECRET, first))
+                    + request(second, "v1=bad")).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            String responses = readResponses(socket.getInputStream(), 3);
+            Assert.assertTrue(responses.startsWith("HTTP/1.1 200 OK"), responses);
+            Assert.assertTrue(responses.contains("HTTP/1.1 208 Already Reported"), responses);
+            Assert.assertTrue(responses.contains("HTTP/1.1 400 Bad Request"), responses);
+            Assert.assertTrue(responses.contains("Connection: keep-alive"), responses);
+        }
+    }
+
+    @Test
+    public void shouldKeepServingAfterPeersResetRightAfterConnecting() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            Socket socket = new Socket("localhost", server.port());
+            socket.setSoLinger(true, 0);
+            socket.close();
+        }
+
+        String body = "{\"id\":\"evt_nio_after_reset\",\"type\":\"payment_intent.succeeded\"}";
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            out.write((request(body, "v1=" + WebhookSignatures.hmac(SECRET, body))
+                    + "GET /metrics HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            String responses = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            Assert.assertTrue(responses.startsWith("HTTP/1.1 200 OK"), responses);
+            Assert.assertTrue(responses.contains("webhook_accept_errors_total "), responses);
+        }
+    }
+
+    @Test
+    public void shouldRejectChunkedAndOversizedBodies() throws Exception {
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.getOutputStream().write(("POST /stripe/webhook HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n0\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            Assert.assertTrue(readResponses(socket.getInputStream(), 1).startsWith("HTTP/1.1 501"));
+        }
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.getOutputStream().write(("POST /stripe/webhook HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: 104857600\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            Assert.assertTrue(readResponses(socket.getInputStream(), 1).startsWith("HTTP/1.1 413"));
+        }
+    }
+
+    @Test
+    public void shouldServeMetricsAndUnknownPaths() throws Exception {
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.getOutputStream().write(("GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /nope HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            String responses = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            Assert.assertTrue(responses.contains("webhook_connections_open"), responses);
+            Assert.assertTrue(responses.contains("HTTP/1.1 404 Not Found"), responses);
+        }
+    }
+
+    @Test
+    public void shouldHoldIdleConnectionsWhileServingLoadOnBothEngines() throws Exception {
+        for (WebhookServerEngine engine : WebhookServerEngine.values()) {
+            WebhookReceiverServer candidate = new WebhookReceiverServer(engine, WebhookExecutorMode.PLATFORM, 8);
+            candidate.start(0);
+            List<SocketChannel> idle = new ArrayList<>();
+            try {
+                for (int i = 0; i < IDLE_CONNECTIONS; i++) {
+                    idle.add(SocketChannel.open(new InetSocketAddress("localhost", candidate.port())));
+                }
+                WebhookPayloadFactory payloads = new WebhookPayloadFactory(SECRET, 1024, 0.0, Map.of(), List.of());
+                LoadReport report = new WebhookLoadGenerator(payloads).run(new WebhookLoadGenerator.Options(
+                        URI.create("http://localhost:" + candidate.port() + "/stripe/webhook"),
+                        WebhookLoadGenerator.Mode.FIXED_CONCURRENCY, 0, 16, Duration.ofMillis(750), Duration.ofSeconds(5)));
+
+                Reporter.log(engine + " with " + IDLE_CONNECTIONS + " idle connections: " + report.summary(), true);
+                Assert.assertTrue(report.sent() > 0);
+                Assert.assertEquals(report.failed(), 0);
+                Assert.assertEquals(report.status(200), report.sent());
+                if (engine == WebhookServerEngine.NIO) {
+                    Assert.assertTrue(candidate.openConnections() >= IDLE_CONNECTIONS, "open=" + candidate.openConnections());
+                    Assert.assertTrue(candidate.metrics().acceptedConnections() >= IDLE_CONNECTIONS);
+                }
+            } finally {
+                for (SocketChannel channel : idle) {
+                    channel.close();
+                }
+                candidate.stop();
+            }
+        }
+    }
+
+    private static String request(String body, String signature) {
+        return "POST /stripe/webhook HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Stripe-Signature: " + signature + "\r\nContent-Length: " + body.getBytes(StandardCharsets.UTF_8).length
+                + "\r\n\r\n" + body;
+    }
+
+    private static String readResponses(InputStream in, int expected) throws Exception {
+        StringBuilder out = new StringBuilder();
+        byte[] chunk = new byte[4096];
+        while (out.toString().split("HTTP/1.1 ", -1).length - 1 < expected || !out.toString().endsWith("status=" + lastStatus(out))) {
+            int read = in.read(chunk);
+            if (read < 0) {
+                break;
+            }
+            out.append(new String(chunk, 0, read, StandardCharsets.UTF_8));
+        }
+        return out.toString();
+    }
+
+    private static String lastStatus(StringBuilder out) {
+        int at = out.lastIndexOf("HTTP/1.1 ");
+        return at < 0 || out.length() < at + 12 ? "?" : out.substring(at + 9, at + 12);
+    }
+}
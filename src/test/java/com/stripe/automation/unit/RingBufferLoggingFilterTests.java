@@ -0,0 +1,108 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.client.BulkOptions;
+import com.stripe.automation.api.client.BulkOutcome;
+import com.stripe.automation.api.client.StripeApiClient;
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.spec.RingBufferLoggingFilter;
+import com.stripe.automation.api.stub.StripeStandInServer;
+import com.stripe.automation.config.ConfigManager;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.log.LogDetail;
+import io.restassured.http.ContentType;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+
+public class RingBufferLoggingFilterTests {
+
+    @AfterMethod
+    public void clearBuffer() {
+        RingBufferLoggingFilter.clearCurrentThread();
+    }
+
+    @Test
+    public void shouldKeepOnlyTheLastExchangesPerThread() {
+        RingBufferLoggingFilter filter = new RingBufferLoggingFilter(3, LogDetail.ALL, 0.0);
+        for (int i = 0; i < 5; i++) {
+            send(filter, 200, "/payment_intents/pi_" + i);
+        }
+
+        String drained = RingBufferLoggingFilter.drainCurrentThread();
+        Assert.assertFalse(drained.contains("pi_0"), drained);
+        Assert.assertFalse(drained.contains("pi_1"), drained);
+        Assert.assertTrue(drained.contains("pi_2") && drained.contains("pi_3") && drained.contains("pi_4"), drained);
+        Assert.assertEquals(RingBufferLoggingFilter.drainCurrentThread(), "");
+    }
+
+    @Test
+    public void shouldMaskAuthorizationAndHonourDetailLevel() {
+        RingBufferLoggingFilter headersOnly = new RingBufferLoggingFilter(5, LogDetail.HEADERS, 0.0);
+        send(headersOnly, 402, "/refunds");
+
+        String drained = RingBufferLoggingFilter.drainCurrentThread();
+        Assert.assertTrue(drained.contains("-> 402"), drained);
+        Assert.assertTrue(drained.contains("Authorization: ****cret"), drained);
+        Assert.assertFalse(drained.contains("sk_test_secret"), drained);
+        Assert.assertFalse(drained.contains("response body"), drained);
+    }
+
+    @Test
+    public void shouldIsolateBuffersBetweenThreads() throws Exception {
+        RingBufferLoggingFilter filter = new RingBufferLoggingFilter(5, LogDetail.ALL, 0.0);
+        send(filter, 200, "/payment_intents/pi_main");
+        Thread other = new Thread(() -> send(filter, 200, "/payment_intents/pi_other"));
+        other.start();
+        other.join();
+
+        String drained = RingBufferLoggingFilter.drainCurrentThread();
+        Assert.assertTrue(drained.contains("pi_main"), drained);
+        Assert.assertFalse(drained.contains("pi_other"), drained);
+    }
+
+    @Test
+    public void shouldCollectExchangesFromBulkTasksIntoTheTestsBuffer() throws Exception {
+        StripeStandInServer standIn = new StripeStandInServer(Set.of("sk_test_ring_bulk"), 0);
+        standIn.start(0);
+        ConfigManager.override("stripe.secretKey", "sk_test_ring_bulk");
+        ConfigManager.override("stripe.api.baseUrl", standIn.baseUrl());
+        try {
+            RingBufferLoggingFilter.clearCurrentThread();
+            List<BulkOutcome<PaymentIntentRequest>> outcomes = new StripeApiClient().createPaymentIntents(List.of(
+                    new PaymentIntentRequest(1_000L, "usd", "pm_card_visa", true),
+                    new PaymentIntentRequest(1_100L, "usd", "pm_card_chargeDeclined", true),
+                    new PaymentIntentRequest(1_200L, "usd", "pm_card_visa", true)), new BulkOptions(3, 1, Duration.ofMillis(10)));
+            Assert.assertEquals(outcomes.get(1).statusCode(), 402);
+
+            String drained = RingBufferLoggingFilter.drainCurrentThread();
+            Assert.assertEquals(drained.split("POST .*/v1/payment_intents -> ", -1).length - 1, 3, drained);
+            Assert.assertTrue(drained.contains("-> 402"), drained);
+            Assert.assertTrue(drained.contains("card_declined"), drained);
+        } finally {
+            standIn.stop();
+            ConfigManager.clearOverride("stripe.secretKey");
+            ConfigManager.clearOverride("stripe.api.baseUrl");
+        }
+    }
+
+    private static void send(RingBufferLoggingFilter filter, int status, String path) {
+        Filter canned = (request, response, ctx) -> new ResponseBuilder()
+                .setStatusCode(status)
+                .setContentType(ContentType.JSON)
+                .setBody("{\"path\":\"" + path + "\"}")
+                .build();
+        given().baseUri("http://localhost:1/v1")
+                .header("Authorization", "Bearer sk_test_secret")
+                .filter(filter)
+                .filter(canned)
+                .formParam("amount", 100)
+                .post(path);
+    }
+}
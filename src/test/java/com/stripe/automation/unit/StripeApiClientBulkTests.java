@@ -0,0 +1,114 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.client.BulkOptions;
+import com.stripe.automation.api.client.BulkOutcome;
+import com.stripe.automation.api.client.StripeApiClient;
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.RefundRequest;
+import com.stripe.automation.config.ConfigManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StripeApiClientBulkTests {
+    private static final long LATENCY_MILLIS = 100;
+
+    private final Map<String, AtomicInteger> attemptsByKey = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final StripeApiClient client = new StripeApiClient();
+    private HttpServer server;
+
+    @BeforeClass
+    public void startStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        ConfigManager.override("stripe.secretKey", "sk_test_bulk");
+        ConfigManager.override("stripe.api.baseUrl", "http://localhost:" + server.getAddress().getPort() + "/v1");
+    }
+
+    @AfterClass
+    public void stopStandIn() {
+        server.stop(0);
+        ConfigManager.clearOverride("stripe.secretKey");
+        ConfigManager.clearOverride("stripe.api.baseUrl");
+    }
+
+    @Test
+    public void shouldCreatePaymentIntentsConcurrentlyWithinTheInFlightLimit() {
+        List<PaymentIntentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(new PaymentIntentRequest(1_000L + i, "usd", "pm_card_visa", false));
+        }
+        maxInFlight.set(0);
+
+        long start = System.nanoTime();
+        List<BulkOutcome<PaymentIntentRequest>> outcomes = client.createPaymentIntents(requests,
+                new BulkOptions(5, 3, Duration.ofMillis(10)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertEquals(outcomes.size(), requests.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            BulkOutcome<PaymentIntentRequest> outcome = outcomes.get(i);
+            Assert.assertEquals(outcome.index(), i);
+            Assert.assertSame(outcome.request(), requests.get(i));
+            Assert.assertTrue(outcome.isSuccess(), "item " + i + " status " + outcome.statusCode());
+            Assert.assertEquals(outcome.attempts(), (1_000 + i) % 2 == 1 ? 2 : 1);
+            Assert.assertEquals(attemptsByKey.get(outcome.idempotencyKey()).get(), outcome.attempts());
+        }
+        Assert.assertTrue(maxInFlight.get() <= 5, "max in flight " + maxInFlight.get());
+        Assert.assertTrue(maxInFlight.get() > 1, "max in flight " + maxInFlight.get());
+        Assert.assertTrue(elapsedMillis < 30 * LATENCY_MILLIS, "bulk took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void shouldReportValidationFailuresPerItemWithoutRetrying() {
+        List<RefundRequest> requests = List.of(new RefundRequest("pi_1", 100L), new RefundRequest(" ", 100L),
+                new RefundRequest("pi_3", null));
+
+        List<BulkOutcome<RefundRequest>> outcomes = client.createRefunds(requests, new BulkOptions(2, 3, Duration.ofMillis(10)));
+
+        Assert.assertTrue(outcomes.get(0).isSuccess());
+        Assert.assertFalse(outcomes.get(1).isSuccess());
+        Assert.assertTrue(outcomes.get(1).error() instanceof IllegalArgumentException);
+        Assert.assertEquals(outcomes.get(1).attempts(), 1);
+        Assert.assertTrue(outcomes.get(2).isSuccess());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            int attempt = attemptsByKey.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            Thread.sleep(LATENCY_MILLIS);
+            boolean oddAmount = form.matches(".*amount=\\d*[13579](&.*)?$") && exchange.getRequestURI().getPath().endsWith("payment_intents");
+            int status = oddAmount && attempt == 1 ? 500 : 200;
+            byte[] body = ("{\"id\":\"obj_" + key + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.stripe.automation.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.stripe.automation.api.client.AdaptiveRateLimiter;
+import com.stripe.automation.api.client.ListParams;
+import com.stripe.automation.api.client.StripeApiClient;
+import com.stripe.automation.api.client.StripeListIterator;
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.RefundRequest;
+import com.stripe.automation.api.stub.StripeStandInServer;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.utils.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class StripeListIteratorTests {
+    private static final String SECRET_KEY = "sk_test_list_unit";
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final StripeStandInServer standIn = new StripeStandInServer(Set.of(SECRET_KEY), 0);
+    private final StripeApiClient client = new StripeApiClient(new AdaptiveRateLimiter(
+            new AdaptiveRateLimiter.Settings(false, 1, 1, 1, 1, 0.5, 1, Duration.ofSeconds(1))));
+
+    @BeforeClass
+    public void startStandIn() throws Exception {
+        standIn.start(0);
+        ConfigManager.override("stripe.secretKey", SECRET_KEY);
+        ConfigManager.override("stripe.api.baseUrl", standIn.baseUrl());
+    }
+
+    @AfterClass
+    public void stopStandIn() {
+        standIn.stop();
+        executor.shutdownNow();
+        ConfigManager.clearOverride("stripe.secretKey");
+        ConfigManager.clearOverride("stripe.api.baseUrl");
+    }
+
+    @Test
+    public void shouldPrefetchTheNextPageWhileTheCurrentOneIsConsumed() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        try (StripeListIterator iterator = new StripeListIterator(pages(5, 3, fetches), 1, executor)) {
+            Assert.assertEquals(iterator.next().path("id").asText(), "obj_0_0");
+            awaitFetches(fetches, 2);
+            Thread.sleep(50);
+            Assert.assertEquals(fetches.get(), 2, "only one page may be fetched ahead");
+
+            List<String> ids = new ArrayList<>();
+            iterator.forEachRemaining(node -> ids.add(node.path("id").asText()));
+            Assert.assertEquals(ids.size(), 14);
+            Assert.assertEquals(ids.get(13), "obj_4_2");
+            Assert.assertEquals(iterator.pagesFetched(), 5);
+            Assert.assertEquals(iterator.maxBufferedPages(), 1);
+        }
+    }
+
+    @Test
+    public void shouldStopFetchingWhenTheStreamIsClosedEarly() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        StripeListIterator iterator = new StripeListIterator(pages(1_000, 100, fetches), 2, executor);
+        List<JsonNode> firstItems;
+        try (Stream<JsonNode> stream = stream(iterator)) {
+            firstItems = stream.limit(150).collect(Collectors.toList());
+        }
+        Thread.sleep(100);
+
+        Assert.assertEquals(firstItems.size(), 150);
+        Assert.assertTrue(fetches.get() <= 4, "fetched " + fetches.get() + " pages for 150 items");
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test(timeOut = 5_000)
+    public void shouldDrainEveryPageOnACallerRunsExecutor() {
+        AtomicInteger fetches = new AtomicInteger();
+        List<String> ids = new ArrayList<>();
+        try (StripeListIterator iterator = new StripeListIterator(pages(4, 3, fetches), 2, Runnable::run)) {
+            iterator.forEachRemaining(node -> ids.add(node.path("id").asText()));
+        }
+        Assert.assertEquals(ids.size(), 12);
+        Assert.assertEquals(ids.get(11), "obj_3_2");
+        Assert.assertEquals(fetches.get(), 4);
+    }
+
+    @Test
+    public void shouldNotInterruptAPageFetchWhenClosedEarly() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Function<String, JsonNode> firstPage = pages(3, 2, new AtomicInteger());
+        StripeListIterator iterator = new StripeListIterator(cursor -> {
+            if (cursor == null) {
+                return firstPage.apply(null);
+            }
+            fetching.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return firstPage.apply(cursor);
+        }, 1, executor);
+        iterator.next();
+        Assert.assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+        iterator.close();
+        Thread.sleep(50);
+        release.countDown();
+        Thread.sleep(50);
+
+        Assert.assertFalse(interrupted.get());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void shouldSurfacePageFailuresToTheConsumer() {
+        AtomicInteger fetches = new AtomicInteger();
+        Function<String, JsonNode> failing = cursor -> {
+            if (cursor != null) {
+                throw new IllegalStateException("Listing /refunds failed with status 500");
+            }
+            return pages(2, 2, fetches).apply(null);
+        };
+        try (StripeListIterator iterator = new StripeListIterator(failing, 1, executor)) {
+            iterator.next();
+            iterator.next();
+            Assert.assertThrows(IllegalStateException.class, iterator::hasNext);
+        }
+    }
+
+    @Test
+    public void shouldListEveryObjectAcrossPagesFromTheStandIn() {
+        standIn.reset();
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 230; i++) {
+            String paymentMethod = i == 7 ? "pm_card_createDispute" : "pm_card_visa";
+            created.add(client.createPaymentIntentTyped(new PaymentIntentRequest(1_000L + i, "usd", paymentMethod, true), null).id());
+        }
+        String refunded = created.get(3);
+        client.createRefund(new RefundRequest(refunded, 100L));
+        client.createRefund(new RefundRequest(refunded, 200L));
+        client.createRefund(new RefundRequest(created.get(4), null));
+
+        List<String> listed;
+        try (Stream<JsonNode> intents = client.listPaymentIntents(ListParams.configured())) {
+            listed = intents.map(node -> node.path("id").asText()).collect(Collectors.toList());
+        }
+        Assert.assertEquals(listed.size(), created.size());
+        Assert.assertEquals(new HashSet<>(listed).size(), created.size());
+        Assert.assertEquals(listed.get(0), created.get(created.size() - 1));
+
+        try (Stream<JsonNode> refunds = client.listRefunds(ListParams.configured().withPageSize(1).with("payment_intent", refunded))) {
+            Assert.assertEquals(refunds.map(node -> node.path("amount").asLong()).collect(Collectors.toList()), List.of(200L, 100L));
+        }
+        try (Stream<JsonNode> disputes = client.listDisputes(ListParams.configured())) {
+            List<JsonNode> all = disputes.collect(Collectors.toList());
+            Assert.assertEquals(all.size(), 1);
+            Assert.assertEquals(all.get(0).path("payment_intent").asText(), created.get(7));
+        }
+        Instant future = Instant.now().plusSeconds(3_600);
+        try (Stream<JsonNode> none = client.listPaymentIntents(ListParams.configured().createdBetween(future, future.plusSeconds(60)))) {
+            Assert.assertEquals(none.count(), 0L);
+        }
+    }
+
+    private static Stream<JsonNode> stream(StripeListIterator iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false).onClose(iterator::close);
+    }
+
+    private static Function<String, JsonNode> pages(int pageCount, int pageSize, AtomicInteger fetches) {
+        return cursor -> {
+            int page = cursor == null ? 0 : Integer.parseInt(cursor.split("_")[1]) + 1;
+            fetches.incrementAndGet();
+            ObjectNode body = Json.MAPPER.createObjectNode();
+            ArrayNode data = body.putArray("data");
+            for (int i = 0; i < pageSize; i++) {
+                data.addObject().put("id", "obj_" + page + "_" + i);
+            }
+            body.put("has_more", page + 1 < pageCount);
+            return body;
+        };
+    }
+
+    private static void awaitFetches(AtomicInteger fetches, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (fetches.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
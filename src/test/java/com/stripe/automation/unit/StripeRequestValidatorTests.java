@@ -0,0 +1,100 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.RefundRequest;
+import com.stripe.automation.api.validation.CompiledRules;
+import com.stripe.automation.api.validation.StripeRequestValidator;
+import com.stripe.automation.api.validation.ValidationResult;
+import com.stripe.automation.api.validation.Violation;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static com.stripe.automation.api.validation.ValidationRule.guard;
+import static com.stripe.automation.api.validation.ValidationRule.rule;
+
+public class StripeRequestValidatorTests {
+
+    @Test
+    public void shouldListEveryViolationWithFieldAndCode() {
+        ValidationResult result = StripeRequestValidator.checkPaymentIntent(new PaymentIntentRequest(10L, "inr", " ", true));
+
+        Assert.assertEquals(result.violations(), List.of(
+                new Violation("amount", "amount_too_small", "Amount must be between 50 and 99,999,999"),
+                new Violation("currency", "invalid_currency", "Unsupported currency"),
+                new Violation("payment_method", "parameter_missing", "payment_method must not be blank")));
+        IllegalArgumentException thrown = Assert.expectThrows(IllegalArgumentException.class,
+                () -> StripeRequestValidator.validatePaymentIntent(new PaymentIntentRequest(10L, "inr", " ", true)));
+        Assert.assertEquals(thrown.getMessage(), "Amount must be between 50 and 99,999,999; Unsupported currency; payment_method must not be blank");
+    }
+
+    @Test
+    public void shouldKeepEachCheckResultIndependentOfLaterChecks() {
+        ValidationResult first = StripeRequestValidator.checkPaymentIntent(new PaymentIntentRequest(10L, "usd", "pm_card_visa", true));
+        ValidationResult second = StripeRequestValidator.checkPaymentIntent(new PaymentIntentRequest(1000L, "inr", "pm_card_visa", true));
+        ValidationResult valid = StripeRequestValidator.checkPaymentIntent(new PaymentIntentRequest(1000L, "usd", "pm_card_visa", true));
+
+        Assert.assertEquals(first.violations(), List.of(new Violation("amount", "amount_too_small", "Amount must be between 50 and 99,999,999")));
+        Assert.assertEquals(second.violations(), List.of(new Violation("currency", "invalid_currency", "Unsupported currency")));
+        Assert.assertSame(valid, ValidationResult.VALID);
+        Assert.assertThrows(IllegalStateException.class,
+                () -> StripeRequestValidator.checkRefund(new RefundRequest("", 0L), ValidationResult.VALID));
+        Assert.assertTrue(ValidationResult.VALID.isValid());
+    }
+
+    @Test
+    public void shouldStopAtGuardsAndReuseTheResult() {
+        ValidationResult result = StripeRequestValidator.newRefundResult();
+
+        Assert.assertSame(StripeRequestValidator.checkRefund(null, result), result);
+        Assert.assertEquals(result.violations(), List.of(new Violation("request", "parameter_missing", "RefundRequest must not be null")));
+
+        StripeRequestValidator.checkRefund(new RefundRequest("", 0L), result);
+        Assert.assertTrue(result.hasViolation("payment_intent", "parameter_missing"));
+        Assert.assertTrue(result.hasViolation("amount", "amount_too_small"));
+
+        Assert.assertTrue(StripeRequestValidator.checkRefund(new RefundRequest("pi_123", null), result).isValid());
+        Assert.assertEquals(result.size(), 0);
+        StripeRequestValidator.validateRefund(new RefundRequest("pi_123", 1L));
+        Assert.assertThrows(IllegalArgumentException.class, () -> StripeRequestValidator.validatePaymentIntent(null));
+    }
+
+    @Test
+    public void shouldGrowResultsSharedAcrossRuleSets() {
+        CompiledRules<String> rules = CompiledRules.compile(
+                guard("value", "parameter_missing", "value is required", value -> value != null),
+                rule("value", "too_short", "value is too short", value -> value.length() > 3),
+                rule("value", "not_lowercase", "value must be lowercase", value -> value.equals(value.toLowerCase())),
+                rule("value", "not_prefixed", "value must start with pi_", value -> value.startsWith("pi_")));
+        ValidationResult small = new ValidationResult(1);
+
+        Assert.assertEquals(rules.validate("AB", small).size(), 3);
+        Assert.assertEquals(small.violation(2).code(), "not_prefixed");
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> small.violation(3));
+    }
+
+    @Test
+    public void shouldNotAllocateWhenValidatingValidRequests() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        PaymentIntentRequest[] requests = {
+                new PaymentIntentRequest(2000L, "usd", "pm_card_visa", true),
+                new PaymentIntentRequest(50L, "EUR", "pm_card_mastercard", false),
+                new PaymentIntentRequest(99_999_999L, "Cad", "pm_card_visa", null)};
+        ValidationResult result = StripeRequestValidator.newPaymentIntentResult();
+        int valid = 0;
+        for (int i = 0; i < 200_000; i++) {
+            valid += StripeRequestValidator.checkPaymentIntent(requests[i % requests.length], result).size();
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            valid += StripeRequestValidator.checkPaymentIntent(requests[i % requests.length], result).size();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        Assert.assertEquals(valid, 0);
+        Assert.assertTrue(allocated < 16_384, "allocated " + allocated + " bytes for 100000 valid requests");
+    }
+}
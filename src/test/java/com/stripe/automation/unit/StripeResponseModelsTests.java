@@ -0,0 +1,76 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.models.PaymentIntentResponse;
+import com.stripe.automation.api.models.RefundResponse;
+import com.stripe.automation.api.validation.ResponseSchemaValidator;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class StripeResponseModelsTests {
+
+    @Test
+    public void shouldParsePaymentIntentOnceWithStatusAndHeaders() {
+        PaymentIntentResponse intent = PaymentIntentResponse.from(response(200,
+                "{\"id\":\"pi_123\",\"object\":\"payment_intent\",\"amount\":2000,\"amount_received\":2000,"
+                        + "\"currency\":\"usd\",\"status\":\"succeeded\",\"payment_method\":\"pm_card_visa\",\"metadata\":{}}"));
+
+        Assert.assertTrue(intent.isSuccessful());
+        Assert.assertEquals(intent.id(), "pi_123");
+        Assert.assertEquals(intent.amount(), Long.valueOf(2000L));
+        Assert.assertEquals(intent.amountReceived(), Long.valueOf(2000L));
+        Assert.assertEquals(intent.currency(), "usd");
+        Assert.assertEquals(intent.status(), "succeeded");
+        Assert.assertEquals(intent.paymentMethod(), "pm_card_visa");
+        Assert.assertNull(intent.error());
+        Assert.assertEquals(intent.header("Request-Id"), "req_abc");
+        Assert.assertTrue(intent.json().path("metadata").isObject());
+        Assert.assertEquals(ResponseSchemaValidator.violations(intent.json(), ResponseSchemaValidator.PAYMENT_INTENT_SCHEMA), List.of());
+    }
+
+    @Test
+    public void shouldExposeStripeErrorsOnFailedCalls() {
+        RefundResponse refund = RefundResponse.from(response(400,
+                "{\"error\":{\"type\":\"invalid_request_error\",\"code\":\"amount_too_large\",\"param\":\"amount\","
+                        + "\"message\":\"Refund amount is greater than unrefunded amount\"}}"));
+
+        Assert.assertFalse(refund.isSuccessful());
+        Assert.assertNull(refund.id());
+        Assert.assertEquals(refund.error().type(), "invalid_request_error");
+        Assert.assertEquals(refund.error().code(), "amount_too_large");
+        Assert.assertEquals(refund.error().param(), "amount");
+    }
+
+    @Test
+    public void shouldReportSchemaViolationsFromTheParsedTree() {
+        PaymentIntentResponse intent = PaymentIntentResponse.from(response(200,
+                "{\"id\":\"pi_123\",\"object\":\"payment_intent\",\"amount\":\"2000\"}"));
+
+        List<String> violations = ResponseSchemaValidator.violations(intent.json(), ResponseSchemaValidator.PAYMENT_INTENT_SCHEMA);
+
+        Assert.assertEquals(violations.size(), 2, violations.toString());
+        Assert.assertTrue(violations.stream().anyMatch(v -> v.contains("currency")), violations.toString());
+        Assert.assertTrue(violations.stream().anyMatch(v -> v.startsWith("/amount")), violations.toString());
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> ResponseSchemaValidator.validate(intent.json(), ResponseSchemaValidator.PAYMENT_INTENT_SCHEMA));
+    }
+
+    @Test
+    public void shouldRejectNonJsonBodies() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> PaymentIntentResponse.from(response(502, "<html>Bad gateway</html>")));
+        Assert.assertTrue(RefundResponse.from(response(204, "")).json().isMissingNode());
+    }
+
+    private static Response response(int status, String body) {
+        return new ResponseBuilder()
+                .setStatusCode(status)
+                .setContentType(ContentType.JSON)
+                .setHeader("Request-Id", "req_abc")
+                .setBody(body)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.api.client.AdaptiveRateLimiter;
+import com.stripe.automation.api.client.StripeApiClient;
+import com.stripe.automation.api.models.PaymentIntentRequest;
+import com.stripe.automation.api.models.RefundRequest;
+import com.stripe.automation.api.stub.StripeStandInServer;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.support.TestPrerequisites;
+import io.restassured.response.Response;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+
+public class StripeStandInServerTests {
+    private static final String SECRET_KEY = "sk_test_standin_unit";
+
+    private final StripeStandInServer standIn = new StripeStandInServer(Set.of(SECRET_KEY), 0);
+    private final StripeApiClient client = new StripeApiClient(new AdaptiveRateLimiter(
+            new AdaptiveRateLimiter.Settings(false, 1, 1, 1, 1, 0.5, 1, Duration.ofSeconds(1))));
+
+    @BeforeClass
+    public void startStandIn() throws Exception {
+        standIn.start(0);
+        ConfigManager.override("stripe.secretKey", SECRET_KEY);
+        ConfigManager.override("stripe.api.baseUrl", standIn.baseUrl());
+    }
+
+    @AfterClass
+    public void stopStandIn() {
+        standIn.stop();
+        ConfigManager.clearOverride("stripe.secretKey");
+        ConfigManager.clearOverride("stripe.api.baseUrl");
+    }
+
+    @Test
+    public void shouldCreateConfirmAndRefundPaymentIntents() {
+        Response created = client.createPaymentIntent(new PaymentIntentRequest(2000L, "USD", "pm_card_visa", false), null);
+        Assert.assertEquals(created.statusCode(), 200);
+        Assert.assertEquals(created.jsonPath().getString("status"), "requires_confirmation");
+        String id = created.jsonPath().getString("id");
+
+        Response confirmed = client.confirmPaymentIntent(id);
+        Assert.assertEquals(confirmed.jsonPath().getString("status"), "succeeded");
+        Assert.assertEquals(client.confirmPaymentIntent(id).jsonPath().getString("error.code"), "payment_intent_unexpected_state");
+
+        Assert.assertEquals(client.createRefund(new RefundRequest(id, 500L)).jsonPath().getLong("amount"), 500L);
+        Response overRefund = client.createRefund(new RefundRequest(id, 1_600L));
+        Assert.assertEquals(overRefund.statusCode(), 400);
+        Assert.assertEquals(overRefund.jsonPath().getString("error.code"), "amount_too_large");
+        Assert.assertEquals(client.createRefund(new RefundRequest(id, null)).jsonPath().getLong("amount"), 1_500L);
+        Assert.assertEquals(client.createRefund(new RefundRequest(id, null)).jsonPath().getString("error.code"), "charge_already_refunded");
+    }
+
+    @Test
+    public void shouldReplayIdempotentRequestsAndRejectReusedKeysWithNewParameters() {
+        PaymentIntentRequest request = new PaymentIntentRequest(1200L, "eur", "pm_card_visa", true);
+        Response first = client.createPaymentIntent(request, "idem-standin-1");
+        Response replay = client.createPaymentIntent(request, "idem-standin-1");
+
+        Assert.assertEquals(replay.jsonPath().getString("id"), first.jsonPath().getString("id"));
+        Assert.assertEquals(replay.getHeader("Idempotent-Replayed"), "true");
+
+        Response conflict = client.createPaymentIntent(new PaymentIntentRequest(1300L, "eur", "pm_card_visa", true), "idem-standin-1");
+        Assert.assertEquals(conflict.statusCode(), 400);
+        Assert.assertEquals(conflict.jsonPath().getString("error.type"), "idempotency_error");
+    }
+
+    @Test
+    public void shouldReleaseIdempotencyKeysWhenARequestFails() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Response failed = given().baseUri(standIn.baseUrl()).header("Authorization", "Bearer " + SECRET_KEY)
+                    .header("Idempotency-Key", "idem-standin-broken").contentType("application/x-www-form-urlencoded")
+                    .body("amount=%zz").post("/payment_intents");
+            Assert.assertEquals(failed.statusCode(), 500);
+            Assert.assertEquals(failed.jsonPath().getString("error.type"), "api_error");
+        }
+    }
+
+    @Test
+    public void shouldDeclineCardsAndRejectUnknownKeysAndObjects() {
+        Response declined = client.createPaymentIntent(new PaymentIntentRequest(2000L, "usd", "pm_card_chargeDeclined", true), null);
+        Assert.assertEquals(declined.statusCode(), 402);
+        Assert.assertEquals(declined.jsonPath().getString("error.code"), "card_declined");
+
+        Assert.assertEquals(client.confirmPaymentIntent("pi_missing").statusCode(), 404);
+        Assert.assertEquals(client.createRefundWithHeaders(new RefundRequest("pi_missing", 10L), Map.of()).statusCode(), 400);
+        Assert.assertEquals(given().baseUri(standIn.baseUrl()).header("Authorization", "Bearer sk_test_wrong")
+                .post("/payment_intents").statusCode(), 401);
+    }
+
+    @Test
+    public void shouldRestoreCallerOverridesWhenStandInStops() {
+        ConfigManager.override("stripe.api.standIn", "true");
+        try {
+            StripeStandInServer started = TestPrerequisites.startStripeStandInIfNeeded();
+            Assert.assertNotNull(started);
+            Assert.assertEquals(ConfigManager.get("stripe.api.baseUrl"), started.baseUrl());
+            Assert.assertEquals(ConfigManager.get("stripe.secretKey"), SECRET_KEY);
+
+            TestPrerequisites.stopStripeStandIn(started);
+            Assert.assertEquals(ConfigManager.get("stripe.api.baseUrl"), standIn.baseUrl());
+            Assert.assertEquals(ConfigManager.get("stripe.secretKey"), SECRET_KEY);
+        } finally {
+            ConfigManager.clearOverride("stripe.api.standIn");
+        }
+    }
+
+    @Test
+    public void shouldSimulateRateLimitingWhenConfigured() throws Exception {
+        StripeStandInServer limited = new StripeStandInServer(Set.of(SECRET_KEY), 2);
+        limited.start(0);
+        try {
+            int throttled = 0;
+            for (int i = 0; i < 6; i++) {
+                Response response = given().baseUri(limited.baseUrl()).header("Authorization", "Bearer " + SECRET_KEY)
+                        .formParam("amount", 100).formParam("currency", "usd").post("/payment_intents");
+                if (response.statusCode() == 429) {
+                    throttled++;
+                    Assert.assertEquals(response.getHeader("Retry-After"), "1");
+                }
+            }
+            Assert.assertTrue(throttled >= 2, "throttled " + throttled);
+            Assert.assertEquals(limited.rateLimitedCount(), throttled);
+        } finally {
+            limited.stop();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.utils.DaemonThreads;
+import com.stripe.automation.utils.VirtualThreads;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualThreadsTests {
+
+    @Test
+    public void shouldNamePerTaskThreadsAfterThePrefix() throws Exception {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("unit-probe");
+        try {
+            String name = executor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+            Assert.assertTrue(name.matches("unit-probe-\\d+"), name);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldCreateNumberedDaemonPlatformThreads() {
+        ThreadFactory factory = DaemonThreads.factory("unit-daemon");
+        Thread first = factory.newThread(() -> { });
+        Thread second = factory.newThread(() -> { });
+
+        Assert.assertTrue(first.isDaemon());
+        Assert.assertEquals(first.getName(), "unit-daemon-1");
+        Assert.assertEquals(second.getName(), "unit-daemon-2");
+    }
+}
@@ -0,0 +1,209 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.support.WebhookSignatures;
+import com.stripe.automation.webhook.JournalSyncPolicy;
+import com.stripe.automation.webhook.WebhookDedupJournal;
+import com.stripe.automation.webhook.WebhookExecutorMode;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class WebhookDedupJournalTests {
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("dedup-journal");
+    }
+
+    @AfterMethod
+    public void cleanUp() throws IOException {
+        ConfigManager.clearOverride("stripe.webhook.secret");
+        ConfigManager.clearOverride("webhook.dedup.journal.path");
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void shouldRecoverAppendedEventsAfterReopen() throws IOException {
+        Path file = directory.resolve("events.journal");
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.PER_WRITE)) {
+            Assert.assertTrue(journal.append("evt_1", 1_000L));
+            Assert.assertTrue(journal.append("evt_2", 2_000L));
+        }
+
+        Map<String, Long> recovered = new LinkedHashMap<>();
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+            Assert.assertEquals(journal.recover(recovered::put, 1_500L), 1);
+            Assert.assertEquals(journal.size(), 2);
+        }
+        Assert.assertEquals(recovered, Map.of("evt_2", 2_000L));
+    }
+
+    @Test
+    public void shouldNotRecoverRetractedEvents() throws IOException {
+        Path file = directory.resolve("events.journal");
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.PER_WRITE)) {
+            journal.append("evt_kept", 1_000L);
+            journal.append("evt_retracted", 2_000L);
+            journal.append("evt_later", 3_000L);
+            Assert.assertTrue(journal.retract("evt_retracted"));
+            Assert.assertFalse(journal.retract("evt_retracted"));
+        }
+
+        Map<String, Long> recovered = new LinkedHashMap<>();
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+            Assert.assertEquals(journal.size(), 3);
+            Assert.assertEquals(journal.recover(recovered::put, 1L), 2);
+            Assert.assertEquals(journal.compact(1L), 1);
+        }
+        Assert.assertEquals(recovered, Map.of("evt_kept", 1_000L, "evt_later", 3_000L));
+    }
+
+    @Test
+    public void shouldGrowMappingBeyondInitialCapacity() throws IOException {
+        Path file = directory.resolve("events.journal");
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.BATCHED)) {
+            for (int i = 0; i < 150_000; i++) {
+                journal.append("evt_" + i, 1_000L + i);
+            }
+        }
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+            Assert.assertEquals(journal.size(), 150_000);
+        }
+    }
+
+    @Test
+    public void shouldDropExpiredEntriesOnCompaction() throws IOException {
+        Path file = directory.resolve("events.journal");
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.append("evt_" + i, i * 1_000L);
+            }
+            Assert.assertEquals(journal.compact(8_000L), 7);
+            Assert.assertEquals(journal.size(), 3);
+            Assert.assertTrue(journal.append("evt_11", 11_000L));
+        }
+
+        Map<String, Long> recovered = new LinkedHashMap<>();
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+            journal.recover(recovered::put, 0L);
+        }
+        Assert.assertEquals(recovered.keySet().toString(), "[evt_8, evt_9, evt_10, evt_11]");
+    }
+
+    @Test
+    public void shouldKeepJournalUsableWhenCompactionFails() throws IOException {
+        Path file = directory.resolve("events.journal");
+        Path blocker = Files.createDirectories(directory.resolve("events.journal.compact"));
+        Files.writeString(blocker.resolve("occupied"), "x");
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+            journal.append("evt_1", 1_000L);
+            journal.append("evt_2", 9_000L);
+            Assert.assertThrows(IOException.class, () -> journal.compact(8_000L));
+
+            Assert.assertTrue(journal.append("evt_3", 10_000L));
+            Assert.assertEquals(journal.size(), 3);
+        }
+
+        Map<String, Long> recovered = new LinkedHashMap<>();
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(file, JournalSyncPolicy.OS)) {
+            journal.recover(recovered::put, 0L);
+        }
+        Assert.assertEquals(recovered.keySet().toString(), "[evt_1, evt_2, evt_3]");
+    }
+
+    @Test
+    public void shouldSkipIdsThatDoNotFitInARecord() throws IOException {
+        try (WebhookDedupJournal journal = new WebhookDedupJournal(directory.resolve("events.journal"), JournalSyncPolicy.OS)) {
+            Assert.assertFalse(journal.append("evt_" + "x".repeat(WebhookDedupJournal.MAX_ID_BYTES), 1_000L));
+            Assert.assertEquals(journal.skipped(), 1);
+        }
+    }
+
+    @Test
+    public void shouldReportDuplicateAcrossReceiverRestart() throws Exception {
+        ConfigManager.override("stripe.webhook.secret", "unit-test-secret");
+        ConfigManager.override("webhook.dedup.journal.path", directory.resolve("receiver.journal").toString());
+        String payload = "{\"id\":\"evt_restart\",\"type\":\"payment_intent.succeeded\"}";
+
+        WebhookReceiverServer first = new WebhookReceiverServer(WebhookExecutorMode.PLATFORM, 2);
+        first.start(0);
+        try {
+            Assert.assertEquals(send(first, payload), 200);
+        } finally {
+            first.stop();
+        }
+
+        WebhookReceiverServer second = new WebhookReceiverServer(WebhookExecutorMode.PLATFORM, 2);
+        second.start(0);
+        try {
+            Assert.assertEquals(send(second, payload), 208);
+        } finally {
+            second.stop();
+        }
+    }
+
+    @Test
+    public void shouldNotPersistEventsRejectedWhileTheDispatcherIsSaturated() throws Exception {
+        ConfigManager.override("stripe.webhook.secret", "unit-test-secret");
+        ConfigManager.override("webhook.dedup.journal.path", directory.resolve("saturated.journal").toString());
+        ConfigManager.override("webhook.dispatch.queueCapacity", "1");
+        ConfigManager.override("webhook.dispatch.workers", "1");
+        String rejected = "{\"id\":\"evt_saturated_3\",\"type\":\"payment_intent.succeeded\"}";
+        CountDownLatch handlerEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WebhookReceiverServer first = new WebhookReceiverServer(WebhookExecutorMode.PLATFORM, 2);
+        first.registerHandler("payment_intent.succeeded", batch -> {
+            handlerEntered.countDown();
+            release.await();
+        });
+        first.start(0);
+        try {
+            Assert.assertEquals(send(first, "{\"id\":\"evt_saturated_1\",\"type\":\"payment_intent.succeeded\"}"), 200);
+            Assert.assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(send(first, "{\"id\":\"evt_saturated_2\",\"type\":\"payment_intent.succeeded\"}"), 200);
+            Assert.assertEquals(send(first, rejected), 503);
+        } finally {
+            release.countDown();
+            first.stop();
+            ConfigManager.clearOverride("webhook.dispatch.queueCapacity");
+            ConfigManager.clearOverride("webhook.dispatch.workers");
+        }
+
+        WebhookReceiverServer second = new WebhookReceiverServer(WebhookExecutorMode.PLATFORM, 2);
+        second.start(0);
+        try {
+            Assert.assertEquals(send(second, rejected), 200);
+            Assert.assertEquals(send(second, "{\"id\":\"evt_saturated_2\",\"type\":\"payment_intent.succeeded\"}"), 208);
+        } finally {
+            second.stop();
+        }
+    }
+
+    private static int send(WebhookReceiverServer server, String payload) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/stripe/webhook"))
+                .header("Stripe-Signature", "v1=" + WebhookSignatures.hmac("unit-test-secret", payload))
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+}
@@ -0,0 +1,71 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.webhook.WebhookEnvelopeReader;
+import com.stripe.automation.webhook.WebhookEventEnvelope;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class WebhookEnvelopeReaderTests {
+
+    @Test
+    public void shouldExtractEnvelopeFieldsAndSkipNestedObjectIds() throws IOException {
+        String payload = "{\"object\":\"event\",\"data\":{\"previous_attributes\":{\"id\":\"ignored\"},"
+                + "\"object\":{\"charges\":{\"data\":[{\"id\":\"ch_nested\"}]},\"id\":\"pi_123\",\"amount\":2000}},"
+                + "\"created\":1700000000,\"id\":\"evt_123\",\"type\":\"payment_intent.succeeded\"}";
+
+        WebhookEventEnvelope envelope = WebhookEnvelopeReader.read(bytes(payload));
+
+        Assert.assertEquals(envelope.id(), "evt_123");
+        Assert.assertEquals(envelope.type(), "payment_intent.succeeded");
+        Assert.assertEquals(envelope.created(), 1_700_000_000L);
+        Assert.assertEquals(envelope.objectId(), "pi_123");
+    }
+
+    @Test
+    public void shouldStopReadingOnceAllEnvelopeFieldsAreFound() throws IOException {
+        String payload = "{\"id\":\"evt_1\",\"type\":\"charge.refunded\",\"created\":1,\"data\":{\"object\":{\"id\":\"ch_1\"}},"
+                + "\"request\": this tail is never parsed";
+
+        WebhookEventEnvelope envelope = WebhookEnvelopeReader.read(bytes(payload));
+
+        Assert.assertEquals(envelope.objectId(), "ch_1");
+    }
+
+    @Test
+    public void shouldExtractPaymentIntentOfChargeObjects() throws IOException {
+        String charge = "{\"id\":\"evt_4\",\"type\":\"charge.refunded\",\"data\":{\"object\":{\"id\":\"ch_4\",\"object\":\"charge\","
+                + "\"payment_intent\":\"pi_4\",\"refunded\":true}}}";
+        String expanded = "{\"id\":\"evt_5\",\"type\":\"charge.succeeded\",\"data\":{\"object\":{\"id\":\"ch_5\","
+                + "\"payment_intent\":{\"id\":\"pi_5\",\"payment_intent\":\"ignored\"},\"paid\":true}}}";
+
+        WebhookEventEnvelope refunded = WebhookEnvelopeReader.read(bytes(charge));
+        WebhookEventEnvelope succeeded = WebhookEnvelopeReader.read(bytes(expanded));
+
+        Assert.assertEquals(refunded.objectId(), "ch_4");
+        Assert.assertEquals(refunded.paymentIntent(), "pi_4");
+        Assert.assertEquals(succeeded.objectId(), "ch_5");
+        Assert.assertEquals(succeeded.paymentIntent(), "pi_5");
+    }
+
+    @Test
+    public void shouldLeaveMissingFieldsEmpty() throws IOException {
+        WebhookEventEnvelope envelope = WebhookEnvelopeReader.read(bytes("{\"id\":\"evt_2\"}"));
+
+        Assert.assertEquals(envelope.id(), "evt_2");
+        Assert.assertNull(envelope.type());
+        Assert.assertNull(envelope.objectId());
+        Assert.assertNull(envelope.paymentIntent());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldRejectNonObjectPayload() throws IOException {
+        WebhookEnvelopeReader.read(bytes("[\"evt_3\"]"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,189 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.webhook.WebhookEventDeduplicator;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WebhookEventDeduplicatorTests {
+
+    @Test
+    public void shouldReportRepeatedEventIdAsDuplicate() {
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(1), 100, 4, new MutableClock(0));
+        Assert.assertTrue(deduplicator.markIfNew("evt_1"));
+        Assert.assertFalse(deduplicator.markIfNew("evt_1"));
+
+        WebhookEventDeduplicator.Stats stats = deduplicator.stats();
+        Assert.assertEquals(stats.hits(), 1);
+        Assert.assertEquals(stats.misses(), 1);
+        Assert.assertEquals(stats.size(), 1);
+    }
+
+    @Test
+    public void shouldRememberEventAcrossSegmentsWithinTtl() {
+        MutableClock clock = new MutableClock(0);
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(4), 100, 4, clock);
+        deduplicator.markIfNew("evt_1");
+
+        clock.advance(Duration.ofHours(3).plusMinutes(59));
+        Assert.assertFalse(deduplicator.markIfNew("evt_1"));
+    }
+
+    @Test
+    public void shouldForgetEventOnceTtlWindowHasPassed() {
+        MutableClock clock = new MutableClock(0);
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(4), 100, 4, clock);
+        deduplicator.markIfNew("evt_1");
+
+        clock.advance(Duration.ofHours(5).plusMinutes(1));
+        Assert.assertTrue(deduplicator.markIfNew("evt_1"));
+        Assert.assertTrue(deduplicator.stats().evictions() >= 1);
+    }
+
+    @Test
+    public void shouldExpireRestoredEventsWithTheSegmentTheyWereSeenIn() {
+        MutableClock clock = new MutableClock(Duration.ofHours(10).toMillis());
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(4).plusMillis(3), 100, 4, clock);
+        long seenAt = Duration.ofHours(8).toMillis() - 1;
+        Assert.assertTrue(deduplicator.restore("evt_restored", seenAt));
+
+        clock.advance(Duration.ofMillis(seenAt + Duration.ofHours(4).toMillis() - clock.millis()));
+        Assert.assertTrue(deduplicator.contains("evt_restored"));
+        clock.advance(Duration.ofMillis(1));
+        Assert.assertFalse(deduplicator.contains("evt_restored"));
+
+        Assert.assertTrue(deduplicator.markIfNew("evt_current"));
+        Assert.assertFalse(deduplicator.restore("evt_stale", clock.millis() - Duration.ofHours(4).toMillis() - 2));
+        Assert.assertFalse(deduplicator.contains("evt_stale"));
+        Assert.assertTrue(deduplicator.contains("evt_current"));
+    }
+
+    @Test
+    public void shouldEvictOldestSegmentWhenEntryCapIsExceeded() {
+        MutableClock clock = new MutableClock(0);
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(4), 3, 4, clock);
+        deduplicator.markIfNew("evt_old");
+        clock.advance(Duration.ofHours(1));
+        deduplicator.markIfNew("evt_2");
+        deduplicator.markIfNew("evt_3");
+        deduplicator.markIfNew("evt_4");
+
+        Assert.assertFalse(deduplicator.contains("evt_old"));
+        Assert.assertTrue(deduplicator.contains("evt_4"));
+        Assert.assertTrue(deduplicator.size() <= 3);
+    }
+
+    @Test
+    public void shouldKeepCurrentWindowWhenBurstExceedsEntryCap() {
+        MutableClock clock = new MutableClock(0);
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(4), 5, 4, clock);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(deduplicator.markIfNew("evt_" + i));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(deduplicator.markIfNew("evt_" + i), "retry of evt_" + i);
+        }
+        Assert.assertEquals(deduplicator.size(), 5);
+        Assert.assertEquals(deduplicator.stats().shed(), 5);
+        Assert.assertEquals(deduplicator.stats().evictions(), 0);
+
+        clock.advance(Duration.ofHours(1));
+        Assert.assertTrue(deduplicator.markIfNew("evt_next"));
+        Assert.assertTrue(deduplicator.contains("evt_next"));
+        Assert.assertTrue(deduplicator.size() <= 5);
+    }
+
+    @Test
+    public void shouldAcceptOnlyOneOfRacingDeliveriesAcrossSegmentRotation() throws Exception {
+        MutableClock clock = new MutableClock(0);
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(4), 100_000, 4, clock);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String eventId = "evt_race_" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger accepted = new AtomicInteger();
+                List<Future<?>> deliveries = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    boolean advance = t == 4;
+                    deliveries.add(executor.submit(() -> {
+                        start.await();
+                        if (advance) {
+                            clock.advance(Duration.ofMinutes(30));
+                        }
+                        if (deduplicator.markIfNew(eventId)) {
+                            accepted.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> delivery : deliveries) {
+                    delivery.get();
+                }
+                Assert.assertEquals(accepted.get(), 1, eventId);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldStayWithinEntryCapOverMillionsOfEvents() {
+        MutableClock clock = new MutableClock(0);
+        WebhookEventDeduplicator deduplicator = new WebhookEventDeduplicator(Duration.ofHours(72), 50_000, 72, clock);
+        for (int i = 0; i < 2_000_000; i++) {
+            deduplicator.markIfNew("evt_" + i);
+            if (i % 10_000 == 0) {
+                clock.advance(Duration.ofMinutes(10));
+            }
+            Assert.assertTrue(deduplicator.size() <= 50_000);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private final AtomicLong millis;
+
+        private MutableClock(long millis) {
+            this.millis = new AtomicLong(millis);
+        }
+
+        private void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
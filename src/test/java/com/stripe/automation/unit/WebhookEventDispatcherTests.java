@@ -0,0 +1,277 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.support.WebhookSignatures;
+import com.stripe.automation.webhook.WebhookEnvelopeReader;
+import com.stripe.automation.webhook.WebhookEvent;
+import com.stripe.automation.webhook.WebhookEventDispatcher;
+import com.stripe.automation.webhook.WebhookEventEnvelope;
+import com.stripe.automation.webhook.WebhookExecutorMode;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class WebhookEventDispatcherTests {
+
+    @AfterMethod
+    public void clearOverrides() {
+        ConfigManager.clearOverride("stripe.webhook.secret");
+        ConfigManager.clearOverride("webhook.dispatch.queueCapacity");
+        ConfigManager.clearOverride("webhook.dispatch.workers");
+    }
+
+    @Test
+    public void shouldRouteEventsToHandlersRegisteredForTheirType() throws Exception {
+        WebhookEventDispatcher dispatcher = new WebhookEventDispatcher(16, 2, 8);
+        List<String> succeeded = new CopyOnWriteArrayList<>();
+        List<String> everything = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        dispatcher.registerHandler("payment_intent.succeeded", batch -> batch.forEach(e -> succeeded.add(e.id())));
+        dispatcher.registerHandler(WebhookEventDispatcher.ANY_EVENT_TYPE, batch -> batch.forEach(e -> {
+            everything.add(e.id());
+            done.countDown();
+        }));
+        dispatcher.start();
+        try {
+            Assert.assertTrue(dispatcher.publish(event("evt_1", "payment_intent.succeeded")));
+            Assert.assertTrue(dispatcher.publish(event("evt_2", "charge.refunded")));
+            Assert.assertTrue(dispatcher.publish(event("evt_3", "payment_intent.succeeded")));
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            dispatcher.stop(Duration.ofSeconds(1));
+        }
+
+        Assert.assertEqualsNoOrder(succeeded.toArray(), new Object[]{"evt_1", "evt_3"});
+        Assert.assertEquals(everything.size(), 3);
+        Assert.assertEquals(dispatcher.stats().processed(), 3);
+        Assert.assertEquals(dispatcher.stats().handlers().get("payment_intent.succeeded#1").events(), 2);
+        Assert.assertEquals(dispatcher.stats().handlers().get("*#1").events(), 3);
+        Assert.assertEquals(dispatcher.stats().handlers().get("*#1").eventType(), WebhookEventDispatcher.ANY_EVENT_TYPE);
+    }
+
+    @Test
+    public void shouldCountFailuresPerHandlerRegistrationAndKeepDispatching() throws Exception {
+        WebhookEventDispatcher dispatcher = new WebhookEventDispatcher(16, 1, 8);
+        CountDownLatch done = new CountDownLatch(2);
+        String broken = dispatcher.registerHandler("charge.refunded", batch -> {
+            throw new IllegalStateException("handler bug");
+        });
+        String healthy = dispatcher.registerHandler("charge.refunded", batch -> batch.forEach(e -> done.countDown()));
+        dispatcher.start();
+        try {
+            Assert.assertTrue(dispatcher.publish(event("evt_fail_1", "charge.refunded")));
+            Assert.assertTrue(dispatcher.publish(event("evt_fail_2", "charge.refunded")));
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            dispatcher.stop(Duration.ofSeconds(1));
+        }
+
+        Assert.assertEquals(broken, "charge.refunded#1");
+        Assert.assertEquals(healthy, "charge.refunded#2");
+        WebhookEventDispatcher.Stats stats = dispatcher.stats();
+        Assert.assertTrue(stats.handlers().get(broken).failures() >= 1);
+        Assert.assertEquals(stats.handlers().get(broken).events(), 2);
+        Assert.assertEquals(stats.handlers().get(healthy).failures(), 0);
+    }
+
+    @Test
+    public void shouldCountEventsStillQueuedAfterTheDrainTimeoutAsDropped() throws Exception {
+        WebhookEventDispatcher dispatcher = new WebhookEventDispatcher(8, 1, 1);
+        CountDownLatch handlerEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.registerHandler("charge.refunded", batch -> {
+            handlerEntered.countDown();
+            release.await();
+        });
+        dispatcher.start();
+        try {
+            Assert.assertTrue(dispatcher.publish(event("evt_stuck", "charge.refunded")));
+            Assert.assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(dispatcher.publish(event("evt_queued_1", "charge.refunded")));
+            Assert.assertTrue(dispatcher.publish(event("evt_queued_2", "charge.refunded")));
+            dispatcher.stop(Duration.ofMillis(100));
+        } finally {
+            release.countDown();
+        }
+
+        WebhookEventDispatcher.Stats stats = dispatcher.stats();
+        Assert.assertEquals(stats.dropped(), 2);
+        Assert.assertEquals(stats.rejected(), 0);
+        Assert.assertEquals(dispatcher.queueDepth(), 0);
+    }
+
+    @Test
+    public void shouldRejectPublishWhenQueueIsFull() throws Exception {
+        WebhookEventDispatcher dispatcher = new WebhookEventDispatcher(1, 1, 1);
+        CountDownLatch handlerEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.registerHandler("charge.refunded", batch -> {
+            handlerEntered.countDown();
+            release.await();
+        });
+        dispatcher.start();
+        try {
+            Assert.assertTrue(dispatcher.publish(event("evt_1", "charge.refunded")));
+            Assert.assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(dispatcher.publish(event("evt_2", "charge.refunded")));
+            Assert.assertFalse(dispatcher.publish(event("evt_3", "charge.refunded")));
+            Assert.assertEquals(dispatcher.queueDepth(), 1);
+            Assert.assertEquals(dispatcher.stats().rejected(), 1);
+        } finally {
+            release.countDown();
+            dispatcher.stop(Duration.ofSeconds(1));
+        }
+    }
+
+    @Test
+    public void shouldAcknowledgeBeforeHandlerRunsAndAnswer503WhenSaturated() throws Exception {
+        ConfigManager.override("stripe.webhook.secret", "unit-test-secret");
+        ConfigManager.override("webhook.dispatch.queueCapacity", "1");
+        ConfigManager.override("webhook.dispatch.workers", "1");
+        WebhookReceiverServer server = new WebhookReceiverServer(WebhookExecutorMode.PLATFORM, 4);
+        CountDownLatch handlerEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server.registerHandler("payment_intent.succeeded", batch -> {
+            handlerEntered.countDown();
+            release.await();
+        });
+        server.start(0);
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            Assert.assertEquals(send(client, server, "evt_ack_1").statusCode(), 200);
+            Assert.assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(send(client, server, "evt_ack_2").statusCode(), 200);
+            Assert.assertEquals(send(client, server, "evt_ack_3").statusCode(), 503);
+            Assert.assertFalse(server.deduplicator().contains("evt_ack_3"));
+        } finally {
+            release.countDown();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void shouldProcessChargeAndPaymentIntentEventsForOnePaymentSeriallyInArrivalOrder() throws Exception {
+        WebhookEventDispatcher dispatcher = new WebhookEventDispatcher(256, 4, 8);
+        String charge = "ch_3OrderedCharge";
+        for (int i = 1; dispatcher.stripeOf(charge) == dispatcher.stripeOf("pi_3Ordered"); i++) {
+            charge = "ch_3OrderedCharge" + i;
+        }
+        String orderedCharge = charge;
+        List<String> observed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(30);
+        dispatcher.registerHandler(WebhookEventDispatcher.ANY_EVENT_TYPE, batch -> batch.forEach(e -> {
+            if ("pi_3Ordered".equals(e.envelope().objectId()) || "pi_3Ordered".equals(e.envelope().paymentIntent())) {
+                observed.add(e.id());
+            }
+            done.countDown();
+        }));
+        dispatcher.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                String paymentIntent = i % 2 == 0 ? "pi_3Ordered" : "pi_3Other" + i;
+                String chargeId = i % 2 == 0 ? orderedCharge : "ch_3Other" + i;
+                Assert.assertTrue(dispatcher.publish(paymentIntentEvent("evt_" + i + "_created", "payment_intent.created", paymentIntent, null)));
+                Assert.assertTrue(dispatcher.publish(paymentIntentEvent("evt_" + i + "_succeeded", "payment_intent.succeeded", paymentIntent, chargeId)));
+                Assert.assertTrue(dispatcher.publish(chargeEvent("evt_" + i + "_refunded", "charge.refunded", chargeId, paymentIntent)));
+            }
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            dispatcher.stop(Duration.ofSeconds(1));
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i += 2) {
+            expected.add("evt_" + i + "_created");
+            expected.add("evt_" + i + "_succeeded");
+            expected.add("evt_" + i + "_refunded");
+        }
+        Assert.assertEquals(observed, expected);
+    }
+
+    @Test
+    public void shouldKeepOtherStripesMovingWhileOneObjectIsBlocked() throws Exception {
+        WebhookEventDispatcher dispatcher = new WebhookEventDispatcher(64, 4, 4);
+        String blocked = "pi_blocked";
+        String free = "pi_free_0";
+        for (int i = 1; dispatcher.stripeOf(free) == dispatcher.stripeOf(blocked); i++) {
+            free = "pi_free_" + i;
+        }
+        String freeObject = free;
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch freeProcessed = new CountDownLatch(1);
+        dispatcher.registerHandler("payment_intent.succeeded", batch -> {
+            for (WebhookEvent event : batch) {
+                if (event.envelope().objectId().equals(blocked)) {
+                    release.await();
+                } else if (event.envelope().objectId().equals(freeObject)) {
+                    freeProcessed.countDown();
+                }
+            }
+        });
+        dispatcher.start();
+        try {
+            Assert.assertTrue(dispatcher.publish(objectEvent("evt_blocked", "payment_intent.succeeded", blocked)));
+            Assert.assertTrue(dispatcher.publish(objectEvent("evt_free", "payment_intent.succeeded", freeObject)));
+            Assert.assertTrue(freeProcessed.await(5, TimeUnit.SECONDS));
+
+            WebhookEventDispatcher.Stats stats = dispatcher.stats();
+            Assert.assertEquals(stats.stripes().size(), 4);
+            Assert.assertEquals(stats.stripes().get(dispatcher.stripeOf(blocked)).published(), 1);
+            Assert.assertEquals(stats.stripeSkew(), 2.0, 0.0001);
+        } finally {
+            release.countDown();
+            dispatcher.stop(Duration.ofSeconds(1));
+        }
+    }
+
+    private static HttpResponse<String> send(HttpClient client, WebhookReceiverServer server, String eventId) throws Exception {
+        String payload = "{\"id\":\"" + eventId + "\",\"type\":\"payment_intent.succeeded\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/stripe/webhook"))
+                .header("Stripe-Signature", "v1=" + WebhookSignatures.hmac("unit-test-secret", payload))
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static WebhookEvent event(String id, String type) throws Exception {
+        byte[] payload = ("{\"id\":\"" + id + "\",\"type\":\"" + type + "\"}").getBytes(StandardCharsets.UTF_8);
+        WebhookEventEnvelope envelope = WebhookEnvelopeReader.read(payload);
+        return new WebhookEvent(envelope, payload, System.nanoTime());
+    }
+
+    private static WebhookEvent objectEvent(String id, String type, String objectId) throws Exception {
+        return payloadEvent("{\"id\":\"" + id + "\",\"type\":\"" + type + "\",\"data\":{\"object\":{\"id\":\"" + objectId + "\"}}}");
+    }
+
+    private static WebhookEvent paymentIntentEvent(String id, String type, String paymentIntent, String latestCharge) throws Exception {
+        String latest = latestCharge == null ? "null" : "\"" + latestCharge + "\"";
+        return payloadEvent("{\"id\":\"" + id + "\",\"object\":\"event\",\"type\":\"" + type + "\",\"created\":1700000000,"
+                + "\"data\":{\"object\":{\"id\":\"" + paymentIntent + "\",\"object\":\"payment_intent\",\"amount\":2000,"
+                + "\"currency\":\"usd\",\"latest_charge\":" + latest + ",\"status\":\"succeeded\"}}}");
+    }
+
+    private static WebhookEvent chargeEvent(String id, String type, String charge, String paymentIntent) throws Exception {
+        return payloadEvent("{\"id\":\"" + id + "\",\"object\":\"event\",\"type\":\"" + type + "\",\"created\":1700000000,"
+                + "\"data\":{\"object\":{\"id\":\"" + charge + "\",\"object\":\"charge\",\"amount\":2000,\"amount_refunded\":2000,"
+                + "\"payment_intent\":\"" + paymentIntent + "\",\"refunded\":true},"
+                + "\"previous_attributes\":{\"amount_refunded\":0,\"refunded\":false}}}");
+    }
+
+    private static WebhookEvent payloadEvent(String json) throws Exception {
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        return new WebhookEvent(WebhookEnvelopeReader.read(payload), payload, System.nanoTime());
+    }
+}
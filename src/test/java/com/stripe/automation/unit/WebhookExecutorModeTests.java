@@ -0,0 +1,77 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.support.WebhookSignatures;
+import com.stripe.automation.webhook.WebhookExecutorMode;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class WebhookExecutorModeTests {
+    private static final int REQUESTS = 300;
+
+    @BeforeClass
+    public void setUp() {
+        ConfigManager.override("stripe.webhook.secret", "unit-test-secret");
+    }
+
+    @AfterClass
+    public void tearDown() {
+        ConfigManager.clearOverride("stripe.webhook.secret");
+    }
+
+    @DataProvider(name = "executorModes")
+    public Object[][] executorModes() {
+        return new Object[][]{{WebhookExecutorMode.SINGLE}, {WebhookExecutorMode.PLATFORM}, {WebhookExecutorMode.VIRTUAL}};
+    }
+
+    @Test
+    public void shouldParseExecutorModeFromConfigValue() {
+        Assert.assertEquals(WebhookExecutorMode.from("platform"), WebhookExecutorMode.PLATFORM);
+        Assert.assertEquals(WebhookExecutorMode.from(" Single "), WebhookExecutorMode.SINGLE);
+        Assert.assertEquals(WebhookExecutorMode.from(null), WebhookExecutorMode.VIRTUAL);
+    }
+
+    @Test(dataProvider = "executorModes")
+    public void shouldAcceptConcurrentDeliveriesInEveryExecutorMode(WebhookExecutorMode mode) throws Exception {
+        WebhookReceiverServer server = new WebhookReceiverServer(mode, 16);
+        server.start(0);
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            URI endpoint = URI.create("http://localhost:" + server.port() + "/stripe/webhook");
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                String payload = "{\"id\":\"evt_" + mode + "_" + i + "\",\"type\":\"payment_intent.succeeded\"}";
+                HttpRequest request = HttpRequest.newBuilder(endpoint)
+                        .header("Stripe-Signature", "v1=" + WebhookSignatures.hmac("unit-test-secret", payload))
+                        .POST(HttpRequest.BodyPublishers.ofString(payload))
+                        .build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                Assert.assertEquals(response.join().statusCode(), 200);
+            }
+            Reporter.log(String.format("%s executor: %d webhooks in %d ms (%.0f req/s)", mode, REQUESTS,
+                    elapsedNanos / 1_000_000, REQUESTS / (elapsedNanos / 1_000_000_000.0)), true);
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.load.LoadReport;
+import com.stripe.automation.load.WebhookLoadGenerator;
+import com.stripe.automation.load.WebhookPayloadFactory;
+import com.stripe.automation.webhook.WebhookExecutorMode;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+public class WebhookLoadGeneratorTests {
+    private static final String SECRET = "whsec_load_test";
+    private final WebhookReceiverServer server = new WebhookReceiverServer(WebhookExecutorMode.VIRTUAL, 8);
+    private URI endpoint;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        ConfigManager.override("stripe.webhook.secret", SECRET);
+        server.start(0);
+        endpoint = URI.create("http://localhost:" + server.port() + "/stripe/webhook");
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop();
+        ConfigManager.clearOverride("stripe.webhook.secret");
+    }
+
+    @Test
+    public void shouldDriveFixedArrivalRateWithDuplicates() throws Exception {
+        WebhookPayloadFactory payloads = new WebhookPayloadFactory(SECRET, 1024, 0.3,
+                Map.of("payment_intent.succeeded", 1, "charge.refunded", 1), List.of());
+        LoadReport report = new WebhookLoadGenerator(payloads).run(new WebhookLoadGenerator.Options(endpoint,
+                WebhookLoadGenerator.Mode.FIXED_RATE, 200, 0, Duration.ofSeconds(1), Duration.ofSeconds(5)));
+
+        Reporter.log(report.summary(), true);
+        Assert.assertEquals(report.sent(), 200);
+        Assert.assertEquals(report.failed(), 0);
+        Assert.assertEquals(report.status(200) + report.status(208), 200);
+        Assert.assertTrue(report.status(208) > 0);
+        Assert.assertEquals(report.latency().count(), 200);
+    }
+
+    @Test
+    public void shouldDriveFixedConcurrency() throws Exception {
+        WebhookPayloadFactory payloads = new WebhookPayloadFactory(SECRET, 256, 0.0, Map.of(), List.of());
+        LoadReport report = new WebhookLoadGenerator(payloads).run(new WebhookLoadGenerator.Options(endpoint,
+                WebhookLoadGenerator.Mode.FIXED_CONCURRENCY, 0, 4, Duration.ofMillis(500), Duration.ofSeconds(5)));
+
+        Reporter.log(report.summary(), true);
+        Assert.assertTrue(report.sent() > 0);
+        Assert.assertEquals(report.status(200), report.sent());
+    }
+
+    @Test
+    public void shouldReplayCapturedEventsWithFreshSignatures() throws Exception {
+        Path capture = Files.createTempFile("captured-events", ".jsonl");
+        Files.writeString(capture, "{\"id\":\"evt_replay_1\",\"type\":\"charge.refunded\"}\n"
+                + "{\"id\":\"evt_replay_2\",\"type\":\"payment_intent.succeeded\"}\n", StandardCharsets.UTF_8);
+        try {
+            WebhookPayloadFactory payloads = new WebhookPayloadFactory(SECRET, 0, 0.0, Map.of(),
+                    WebhookPayloadFactory.loadCapturedEvents(capture));
+            LoadReport report = new WebhookLoadGenerator(payloads).run(new WebhookLoadGenerator.Options(endpoint,
+                    WebhookLoadGenerator.Mode.FIXED_RATE, 20, 0, Duration.ofMillis(300), Duration.ofSeconds(5)));
+
+            Assert.assertEquals(report.sent(), 6);
+            Assert.assertEquals(report.status(200), 2);
+            Assert.assertEquals(report.status(208), 4);
+        } finally {
+            Files.deleteIfExists(capture);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.stripe.automation.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.automation.config.ConfigManager;
+import com.stripe.automation.support.WebhookSignatures;
+import com.stripe.automation.webhook.WebhookExecutorMode;
+import com.stripe.automation.webhook.WebhookReceiverServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class WebhookMetricsEndpointTests {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private WebhookReceiverServer server;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        ConfigManager.override("stripe.webhook.secret", "unit-test-secret");
+        server = new WebhookReceiverServer(WebhookExecutorMode.PLATFORM, 4);
+        server.start(0);
+
+        String payload = "{\"id\":\"evt_metrics\",\"type\":\"payment_intent.succeeded\"}";
+        post(payload, "v1=" + WebhookSignatures.hmac("unit-test-secret", payload));
+        post(payload, "v1=" + WebhookSignatures.hmac("unit-test-secret", payload));
+        post(payload, "v1=bad");
+        String malformed = "not-json";
+        post(malformed, "v1=" + WebhookSignatures.hmac("unit-test-secret", malformed));
+    }
+
+    @AfterClass
+    public void tearDown() {
+        server.stop();
+        ConfigManager.clearOverride("stripe.webhook.secret");
+    }
+
+    @Test
+    public void shouldExposePrometheusCountersAndLatencySummaries() throws Exception {
+        HttpResponse<String> response = get("/metrics");
+
+        Assert.assertEquals(response.statusCode(), 200);
+        Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String body = response.body();
+        Assert.assertTrue(body.contains("webhook_requests_total{status=\"200\"} 1"), body);
+        Assert.assertTrue(body.contains("webhook_requests_total{status=\"208\"} 1"), body);
+        Assert.assertTrue(body.contains("webhook_requests_total{status=\"400\"} 2"), body);
+        Assert.assertFalse(body.contains("webhook_requests_total{status=\"500\"}"), body);
+        Assert.assertTrue(body.contains("webhook_latency_seconds{stage=\"verify\",quantile=\"0.99\"}"), body);
+        Assert.assertTrue(body.contains("webhook_latency_seconds_count{stage=\"total\"} 4"), body);
+        Assert.assertTrue(body.contains("webhook_dedup_hits_total 1"), body);
+        Assert.assertTrue(body.contains("webhook_errors_total{exception=\"JsonParseException\"} 1"), body);
+    }
+
+    @Test
+    public void shouldExposeJsonMetrics() throws Exception {
+        HttpResponse<String> response = get("/metrics?format=json");
+
+        JsonNode root = new ObjectMapper().readTree(response.body());
+        Assert.assertEquals(root.path("requests").path("208").asLong(), 1);
+        Assert.assertEquals(root.path("latency").path("parse").path("count").asLong(), 2);
+        Assert.assertEquals(root.path("dedup").path("misses").asLong(), 1);
+        Assert.assertTrue(root.path("dispatch").has("queueDepth"));
+    }
+
+    private void post(String payload, String signature) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/stripe/webhook"))
+                .header("Stripe-Signature", signature)
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build();
+        client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,59 @@
+package com.stripe.automation.unit;
+
+import com.stripe.automation.support.WebhookSignatures;
+import com.stripe.automation.webhook.WebhookSignatureVerifier;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+public class WebhookSignatureVerifierTests {
+    private static final String SECRET = "whsec_unit_test_secret";
+    private static final long NOW = 1_700_000_000L;
+    private static final String PAYLOAD = "{\"id\":\"evt_sig\",\"type\":\"charge.refunded\"}";
+
+    private final WebhookSignatureVerifier verifier = new WebhookSignatureVerifier(SECRET, Duration.ofMinutes(5),
+            Clock.fixed(Instant.ofEpochSecond(NOW), ZoneOffset.UTC));
+
+    @Test
+    public void shouldAcceptTimestampedStripeHeader() {
+        String header = "t=" + NOW + ",v1=" + WebhookSignatures.hmac(SECRET, NOW + "." + PAYLOAD);
+        Assert.assertTrue(verifier.verify(PAYLOAD, header));
+    }
+
+    @Test
+    public void shouldAcceptAnyMatchingSignatureDuringSecretRotation() {
+        String header = "t=" + NOW + ",v1=" + "ab".repeat(32) + ", v1=" + WebhookSignatures.hmac(SECRET, NOW + "." + PAYLOAD) + ",v0=legacy";
+        Assert.assertTrue(verifier.verify(PAYLOAD.getBytes(StandardCharsets.UTF_8), header));
+    }
+
+    @Test
+    public void shouldRejectTimestampOutsideTolerance() {
+        long stale = NOW - Duration.ofMinutes(6).getSeconds();
+        String header = "t=" + stale + ",v1=" + WebhookSignatures.hmac(SECRET, stale + "." + PAYLOAD);
+        Assert.assertFalse(verifier.verify(PAYLOAD, header));
+    }
+
+    @Test
+    public void shouldRejectSignatureComputedForDifferentTimestamp() {
+        String header = "t=" + (NOW + 1) + ",v1=" + WebhookSignatures.hmac(SECRET, NOW + "." + PAYLOAD);
+        Assert.assertFalse(verifier.verify(PAYLOAD, header));
+    }
+
+    @Test
+    public void shouldVerifyUntimestampedHeaderAgainstRawPayload() {
+        Assert.assertTrue(verifier.verify(PAYLOAD, "v1=" + WebhookSignatures.hmac(SECRET, PAYLOAD)));
+        Assert.assertFalse(verifier.verify(PAYLOAD, "v1=" + WebhookSignatures.hmac(SECRET, PAYLOAD).substring(2)));
+        Assert.assertFalse(verifier.verify(PAYLOAD, "t=" + NOW));
+    }
+
+    @Test
+    public void shouldVerifyPayloadSliceOfLargerBuffer() {
+        byte[] body = ("xx" + PAYLOAD + "yy").getBytes(StandardCharsets.UTF_8);
+        Assert.assertTrue(verifier.verify(body, 2, PAYLOAD.length(), "v1=" + WebhookSignatures.hmac(SECRET, PAYLOAD)));
+    }
+}